@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for POST /api/v1/messages/text-to-speech.
+ * <p>
+ * Requests are sent on a fixed schedule at each target rate regardless of how many are outstanding,
+ * and latency is measured from the scheduled send time, so a stalled server shows up as latency
+ * instead of a lower request rate. While a step runs, the application's CPU, heap and thread
+ * counts are sampled from the actuator.
+ * <p>
+ * Results are written as JSON. With --baseline, the run is compared with an earlier result and the
+ * process exits with status 1 if p99 latency or the error rate regressed at any common rate.
+ * <p>
+ * Run with: java LoadGenerator.java --rates 10,25,50 --duration 60
+ */
+public class LoadGenerator {
+
+    private static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+    private static final String[] WORDS = ("your appointment is confirmed for tuesday at ten thirty please arrive "
+            + "fifteen minutes early and bring a valid photo id reply stop to cancel").split(" ");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        double[] rates = Arrays.stream(options.getOrDefault("rates", "10,25,50").split(","))
+                .mapToDouble(Double::parseDouble).toArray();
+        Duration stepDuration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        int textChars = Integer.parseInt(options.getOrDefault("text-chars", "120"));
+        double repeatFraction = Double.parseDouble(options.getOrDefault("repeat-fraction", "0"));
+        int maxOutstanding = Integer.parseInt(options.getOrDefault("max-outstanding", "10000"));
+        String credentials = options.getOrDefault("user", "admin:admin");
+        Path outDir = Path.of(options.getOrDefault("out", "loadtest/results"));
+        double maxP99Regression = Double.parseDouble(options.getOrDefault("max-p99-regression", "0.10"));
+        double maxErrorRateIncrease = Double.parseDouble(options.getOrDefault("max-error-rate-increase", "0.01"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        Target target = new Target(client, baseUrl, authorization, textChars, repeatFraction, maxOutstanding);
+
+        if (!warmup.isZero()) {
+            System.out.printf("Warming up at %.1f req/s for %ds%n", rates[0], warmup.toSeconds());
+            runStep(target, rates[0], warmup);
+        }
+
+        List<StepResult> results = new ArrayList<>();
+        for (double rate : rates) {
+            System.out.printf("Running %.1f req/s for %ds%n", rate, stepDuration.toSeconds());
+            StepResult result = runStep(target, rate, stepDuration);
+            results.add(result);
+            System.out.printf(Locale.ROOT, "  achieved=%.1f req/s errors=%.2f%% p50=%d ms p99=%d ms max=%d ms cpu=%.0f%%%n",
+                    result.achievedRps(), 100 * result.errorRate(), result.percentile(0.50), result.percentile(0.99),
+                    result.percentile(1.0), 100 * result.resources().getOrDefault("process.cpu.usage.mean", 0.0));
+        }
+
+        Files.createDirectories(outDir);
+        Path output = outDir.resolve("loadtest-" + Instant.now().toString().replace(":", "-") + ".json");
+        Files.writeString(output, toJson(baseUrl, textChars, repeatFraction, results));
+        System.out.println("Results written to " + output);
+
+        if (options.containsKey("baseline")) {
+            boolean regressed = compareWithBaseline(Path.of(options.get("baseline")), results,
+                    maxP99Regression, maxErrorRateIncrease);
+            System.exit(regressed ? 1 : 0);
+        }
+        System.exit(0);
+    }
+
+    private static StepResult runStep(Target target, double rate, Duration duration) throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicLong dropped = new AtomicLong();
+
+        ResourceSampler sampler = new ResourceSampler(target.client(), target.baseUrl(), target.authorization());
+        sampler.start();
+
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + duration.toNanos();
+        long sent = 0;
+
+        for (long scheduled = startNanos; scheduled < endNanos; scheduled += intervalNanos) {
+            long waitNanos = scheduled - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            if (outstanding.get() >= target.maxOutstanding()) {
+                dropped.incrementAndGet();
+                continue;
+            }
+
+            long intendedNanos = scheduled;
+            outstanding.incrementAndGet();
+            sent++;
+            target.client().sendAsync(target.nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - intendedNanos));
+                        String outcome = error != null ? error.getClass().getSimpleName()
+                                : String.valueOf(response.statusCode());
+                        outcomes.computeIfAbsent(outcome, key -> new AtomicInteger()).incrementAndGet();
+                        outstanding.decrementAndGet();
+                    });
+        }
+
+        // Let in-flight requests finish, up to a minute
+        long drainDeadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        sampler.stop();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Integer> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((key, count) -> outcomeCounts.put(key, count.get()));
+        return new StepResult(rate, sent, sorted.length / elapsedSeconds, sorted, outcomeCounts,
+                dropped.get(), outstanding.get(), sampler.summary());
+    }
+
+    private record Target(HttpClient client, String baseUrl, String authorization,
+                          int textChars, double repeatFraction, int maxOutstanding) {
+
+        HttpRequest nextRequest() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // Repeated texts exercise the synthesis cache; unique ones always reach the provider
+            long seed = random.nextDouble() < repeatFraction ? random.nextInt(100) : random.nextLong();
+            String body = "{\"text\":\"" + text(seed, textChars) + "\",\"requestedBy\":\"loadtest-"
+                    + random.nextInt(8) + "\"}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/messages/text-to-speech"))
+                    .timeout(Duration.ofMinutes(2))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", authorization)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private static String text(long seed, int chars) {
+            Random random = new Random(seed);
+            StringBuilder text = new StringBuilder(chars + 16);
+            while (text.length() < chars) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            return text.substring(0, chars).strip();
+        }
+    }
+
+    private record StepResult(double targetRps, long sent, double achievedRps, long[] latenciesMs,
+                              Map<String, Integer> outcomes, long dropped, int unfinished,
+                              Map<String, Double> resources) {
+
+        long percentile(double quantile) {
+            if (latenciesMs.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * latenciesMs.length) - 1;
+            return latenciesMs[Math.max(0, Math.min(index, latenciesMs.length - 1))];
+        }
+
+        double errorRate() {
+            long total = outcomes.values().stream().mapToLong(Integer::longValue).sum() + dropped + unfinished;
+            long succeeded = outcomes.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith("2"))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            return total == 0 ? 0 : 1.0 - (double) succeeded / total;
+        }
+
+        long[] histogram() {
+            long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+            for (long latency : latenciesMs) {
+                int bucket = 0;
+                while (bucket < BUCKET_BOUNDS_MS.length && latency > BUCKET_BOUNDS_MS[bucket]) {
+                    bucket++;
+                }
+                counts[bucket]++;
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Polls actuator gauges once a second and keeps their mean and maximum
+     */
+    private static final class ResourceSampler {
+
+        private static final Map<String, String> METRICS = Map.of(
+                "process.cpu.usage", "/actuator/metrics/process.cpu.usage",
+                "system.cpu.usage", "/actuator/metrics/system.cpu.usage",
+                "jvm.memory.used.heap", "/actuator/metrics/jvm.memory.used?tag=area:heap",
+                "jvm.threads.live", "/actuator/metrics/jvm.threads.live");
+        private static final Pattern VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.eE+-]+)");
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final String authorization;
+        private final Map<String, List<Double>> samples = new ConcurrentHashMap<>();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        private ResourceSampler(HttpClient client, String baseUrl, String authorization) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+            this.authorization = authorization;
+        }
+
+        void start() {
+            scheduler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+        }
+
+        Map<String, Double> summary() {
+            Map<String, Double> summary = new TreeMap<>();
+            samples.forEach((name, values) -> {
+                summary.put(name + ".mean", values.stream().mapToDouble(Double::doubleValue).average().orElse(0));
+                summary.put(name + ".max", values.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+            });
+            return summary;
+        }
+
+        private void sample() {
+            METRICS.forEach((name, path) -> {
+                try {
+                    HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                            .timeout(Duration.ofSeconds(1))
+                            .header("Authorization", authorization)
+                            .build(), HttpResponse.BodyHandlers.ofString());
+                    Matcher matcher = VALUE.matcher(response.body());
+                    if (response.statusCode() == 200 && matcher.find()) {
+                        samples.computeIfAbsent(name, key -> new CopyOnWriteArrayList<>())
+                                .add(Double.parseDouble(matcher.group(1)));
+                    }
+                } catch (IOException | InterruptedException | RuntimeException e) {
+                    // A missed sample is not worth failing the run for
+                }
+            });
+        }
+    }
+
+    private static String toJson(String baseUrl, int textChars, double repeatFraction, List<StepResult> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"target\": \"").append(baseUrl).append("\",\n");
+        json.append("  \"textChars\": ").append(textChars).append(",\n");
+        json.append("  \"repeatFraction\": ").append(repeatFraction).append(",\n");
+        json.append("  \"bucketBoundsMs\": ").append(Arrays.toString(BUCKET_BOUNDS_MS)).append(",\n");
+        json.append("  \"steps\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            StepResult result = results.get(i);
+            json.append("    {\"targetRps\": ").append(result.targetRps())
+                    .append(", \"sent\": ").append(result.sent())
+                    .append(", \"achievedRps\": ").append(String.format(Locale.ROOT, "%.2f", result.achievedRps()))
+                    .append(", \"errorRate\": ").append(String.format(Locale.ROOT, "%.5f", result.errorRate()))
+                    .append(", \"dropped\": ").append(result.dropped())
+                    .append(", \"unfinished\": ").append(result.unfinished())
+                    .append(",\n     \"latencyMs\": {\"p50\": ").append(result.percentile(0.50))
+                    .append(", \"p90\": ").append(result.percentile(0.90))
+                    .append(", \"p95\": ").append(result.percentile(0.95))
+                    .append(", \"p99\": ").append(result.percentile(0.99))
+                    .append(", \"p999\": ").append(result.percentile(0.999))
+                    .append(", \"max\": ").append(result.percentile(1.0)).append("}")
+                    .append(",\n     \"histogram\": ").append(Arrays.toString(result.histogram()))
+                    .append(",\n     \"outcomes\": ").append(toJsonObject(result.outcomes()))
+                    .append(",\n     \"resources\": ").append(toJsonObject(result.resources()))
+                    .append("}").append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        return json.toString();
+    }
+
+    private static String toJsonObject(Map<String, ?> values) {
+        StringBuilder json = new StringBuilder("{");
+        values.forEach((key, value) -> json.append(json.length() > 1 ? ", " : "")
+                .append('"').append(key).append("\": ").append(value));
+        return json.append('}').toString();
+    }
+
+    private static boolean compareWithBaseline(Path baselineFile, List<StepResult> results,
+                                               double maxP99Regression, double maxErrorRateIncrease) throws IOException {
+        Pattern step = Pattern.compile("\"targetRps\": ([0-9.]+).*?\"errorRate\": ([0-9.]+).*?\"p99\": ([0-9]+)", Pattern.DOTALL);
+        Matcher matcher = step.matcher(Files.readString(baselineFile));
+        Map<Double, double[]> baseline = new HashMap<>();
+        while (matcher.find()) {
+            baseline.put(Double.parseDouble(matcher.group(1)),
+                    new double[]{Double.parseDouble(matcher.group(2)), Double.parseDouble(matcher.group(3))});
+        }
+
+        boolean regressed = false;
+        for (StepResult result : results) {
+            double[] previous = baseline.get(result.targetRps());
+            if (previous == null) {
+                continue;
+            }
+            long p99 = result.percentile(0.99);
+            boolean latencyRegressed = p99 > previous[1] * (1 + maxP99Regression);
+            boolean errorsRegressed = result.errorRate() > previous[0] + maxErrorRateIncrease;
+            System.out.printf(Locale.ROOT, "%.1f req/s: p99 %d ms (baseline %.0f), errors %.2f%% (baseline %.2f%%)%s%n",
+                    result.targetRps(), p99, previous[1], 100 * result.errorRate(), 100 * previous[0],
+                    latencyRegressed || errorsRegressed ? "  REGRESSION" : "");
+            regressed |= latencyRegressed || errorsRegressed;
+        }
+        return regressed;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
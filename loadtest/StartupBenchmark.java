@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how quickly each packaging of the application starts serving.
+ * <p>
+ * Each mode is launched several times. For every launch the time from process start to the first
+ * successful response is recorded, together with the resident set size at that moment and its
+ * high-water mark a few seconds later, read from /proc (so this runs on Linux only). Mongo, Kafka
+ * and the stand-ins must already be running, as started by loadtest/run.sh.
+ * <p>
+ * Run with: java StartupBenchmark.java --modes jar,cds,native --runs 5
+ */
+public class StartupBenchmark {
+
+    private static final Pattern RSS = Pattern.compile("^(VmRSS|VmHWM):\\s+(\\d+) kB$", Pattern.MULTILINE);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080/actuator/health");
+        List<String> modes = List.of(options.getOrDefault("modes", "jar,cds,native").split(","));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "120")));
+        Duration settle = Duration.ofSeconds(Long.parseLong(options.getOrDefault("settle", "5")));
+        String credentials = options.getOrDefault("user", "admin:admin");
+        String profile = options.getOrDefault("profile", "loadtest");
+        Path outDir = Path.of(options.getOrDefault("out", "loadtest/results"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+
+        Map<String, List<Launch>> results = new LinkedHashMap<>();
+        for (String mode : modes) {
+            List<String> command = command(mode, profile);
+            List<Launch> launches = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                Launch launch = launch(command, client, request, timeout, settle);
+                launches.add(launch);
+                System.out.printf(Locale.ROOT, "%-6s run %d: first response %d ms, rss %d MB, peak rss %d MB%n",
+                        mode, run, launch.firstResponseMs(), launch.rssKb() / 1024, launch.peakRssKb() / 1024);
+            }
+            results.put(mode, launches);
+        }
+
+        System.out.println();
+        System.out.printf("%-6s %12s %12s %10s %14s%n", "mode", "p50 ms", "max ms", "rss MB", "peak rss MB");
+        results.forEach((mode, launches) -> System.out.printf(Locale.ROOT, "%-6s %12d %12d %10d %14d%n", mode,
+                median(launches, Launch::firstResponseMs), max(launches, Launch::firstResponseMs),
+                median(launches, Launch::rssKb) / 1024, median(launches, Launch::peakRssKb) / 1024));
+
+        Files.createDirectories(outDir);
+        Path output = outDir.resolve("startup-" + Instant.now().toString().replace(":", "-") + ".json");
+        Files.writeString(output, toJson(url, results));
+        System.out.println("Results written to " + output);
+    }
+
+    /**
+     * The command starting one packaging, as produced by the default, cds and native Maven profiles
+     */
+    private static List<String> command(String mode, String profile) throws IOException {
+        String profileArg = "--spring.profiles.active=" + profile;
+        return switch (mode) {
+            case "jar" -> List.of("java", "-jar", findJar(Path.of("target")).toString(), profileArg);
+            case "cds" -> List.of("java", "-XX:SharedArchiveFile=target/cds/application.jsa",
+                    "-jar", findJar(Path.of("target/cds")).toString(), profileArg);
+            case "native" -> List.of("target/message-transformer-platform", profileArg);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode + " (expected jar, cds or native)");
+        };
+    }
+
+    private static Launch launch(List<String> command, HttpClient client, HttpRequest request,
+                                 Duration timeout, Duration settle) throws Exception {
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("target/startup-benchmark-app.log").toFile())
+                .start();
+        try {
+            long deadline = startNanos + timeout.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited; see target/startup-benchmark-app.log");
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("No successful response within " + timeout.toSeconds() + "s");
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            long firstResponseMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            long rssKb = memory(process.pid()).getOrDefault("VmRSS", 0L);
+
+            // Lazy initialization triggered by the first requests shows up in the high-water mark
+            Thread.sleep(settle.toMillis());
+            long peakRssKb = memory(process.pid()).getOrDefault("VmHWM", 0L);
+            return new Launch(firstResponseMs, rssKb, peakRssKb);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static Map<String, Long> memory(long pid) throws IOException {
+        Matcher matcher = RSS.matcher(Files.readString(Path.of("/proc", String.valueOf(pid), "status")));
+        Map<String, Long> values = new HashMap<>();
+        while (matcher.find()) {
+            values.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        }
+        return values;
+    }
+
+    private static Path findJar(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("message-transformer-platform-.*\\.jar"))
+                    .filter(file -> !file.getFileName().toString().endsWith("-plain.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + directory));
+        }
+    }
+
+    private static long median(List<Launch> launches, java.util.function.ToLongFunction<Launch> metric) {
+        long[] values = launches.stream().mapToLong(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    private static long max(List<Launch> launches, java.util.function.ToLongFunction<Launch> metric) {
+        return launches.stream().mapToLong(metric).max().orElse(0);
+    }
+
+    private static String toJson(String url, Map<String, List<Launch>> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"target\": \"").append(url).append("\",\n");
+        json.append("  \"modes\": {\n");
+        int i = 0;
+        for (Map.Entry<String, List<Launch>> entry : results.entrySet()) {
+            List<Launch> launches = entry.getValue();
+            json.append("    \"").append(entry.getKey()).append("\": {")
+                    .append("\"firstResponseMs\": {\"p50\": ").append(median(launches, Launch::firstResponseMs))
+                    .append(", \"max\": ").append(max(launches, Launch::firstResponseMs)).append("}")
+                    .append(", \"rssKb\": ").append(median(launches, Launch::rssKb))
+                    .append(", \"peakRssKb\": ").append(median(launches, Launch::peakRssKb))
+                    .append(", \"runs\": ").append(launches.size())
+                    .append("}").append(++i < results.size() ? ",\n" : "\n");
+        }
+        json.append("  }\n}\n");
+        return json.toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private record Launch(long firstResponseMs, long rssKb, long peakRssKb) {
+    }
+}
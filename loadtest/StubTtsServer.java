@@ -0,0 +1,109 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the OpenAI speech endpoint, for load tests.
+ * <p>
+ * Answers POST /v1/audio/speech after a log-normally distributed delay with a chunked body whose
+ * size grows with the input text. A configurable share of requests fails with 429 or 500.
+ * Run with: java StubTtsServer.java
+ */
+public class StubTtsServer {
+
+    private static final Pattern INPUT = Pattern.compile("\"input\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private static final int PORT = intEnv("STUB_TTS_PORT", 8090);
+    private static final double LATENCY_MEDIAN_MS = doubleEnv("STUB_TTS_LATENCY_MEDIAN_MS", 400);
+    private static final double LATENCY_SIGMA = doubleEnv("STUB_TTS_LATENCY_SIGMA", 0.5);
+    private static final double ERROR_RATE = doubleEnv("STUB_TTS_ERROR_RATE", 0.0);
+    private static final double THROTTLE_RATE = doubleEnv("STUB_TTS_THROTTLE_RATE", 0.0);
+    private static final int BYTES_PER_CHAR = intEnv("STUB_TTS_BYTES_PER_CHAR", 600);
+    private static final int CHUNK_BYTES = intEnv("STUB_TTS_CHUNK_BYTES", 8192);
+
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    public static void main(String[] args) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 1024);
+        server.createContext("/v1/audio/speech", StubTtsServer::speech);
+        server.createContext("/stats", exchange -> respond(exchange, 200,
+                "{\"requests\":" + requests.get() + ",\"failures\":" + failures.get() + "}"));
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        System.out.printf("Stub TTS listening on :%d (median %.0f ms, sigma %.2f, errors %.3f, throttles %.3f)%n",
+                PORT, LATENCY_MEDIAN_MS, LATENCY_SIGMA, ERROR_RATE, THROTTLE_RATE);
+    }
+
+    private static void speech(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Log-normal latency: the median is exp(mu), sigma controls the tail
+        long delayMs = Math.round(LATENCY_MEDIAN_MS * Math.exp(LATENCY_SIGMA * random.nextGaussian()));
+        sleep(delayMs);
+
+        double roll = random.nextDouble();
+        if (roll < THROTTLE_RATE) {
+            failures.incrementAndGet();
+            respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\"}}");
+            return;
+        }
+        if (roll < THROTTLE_RATE + ERROR_RATE) {
+            failures.incrementAndGet();
+            respond(exchange, 500, "{\"error\":{\"message\":\"Internal error\"}}");
+            return;
+        }
+
+        Matcher matcher = INPUT.matcher(body);
+        int inputChars = matcher.find() ? matcher.group(1).length() : 100;
+        long audioBytes = (long) inputChars * BYTES_PER_CHAR;
+
+        exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+        exchange.sendResponseHeaders(200, 0); // Chunked, like the real provider
+        byte[] chunk = new byte[CHUNK_BYTES];
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (long remaining = audioBytes; remaining > 0; remaining -= chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static double doubleEnv(String name, double defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
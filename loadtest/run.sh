@@ -0,0 +1,24 @@
+#!/usr/bin/env bash
+# Runs the end-to-end load test against local stand-ins for TTS, S3 (MinIO), Mongo and Kafka.
+# Generator options are passed through, e.g.: loadtest/run.sh --rates 10,25,50 --duration 60 --baseline loadtest/baseline.json
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+docker compose -f compose.yaml -f loadtest/compose.loadtest.yaml up -d mongodb minio createbuckets zookeeper kafka stub-tts
+
+./mvnw -q -DskipTests package
+java -jar target/message-transformer-platform-*.jar --spring.profiles.active=loadtest > target/loadtest-app.log 2>&1 &
+APP_PID=$!
+trap 'kill "$APP_PID" 2>/dev/null || true' EXIT
+
+echo "Waiting for the application to start..."
+until curl -sf http://localhost:8080/actuator/health > /dev/null; do
+  if ! kill -0 "$APP_PID" 2>/dev/null; then
+    echo "Application exited; see target/loadtest-app.log" >&2
+    exit 1
+  fi
+  sleep 2
+done
+
+java loadtest/LoadGenerator.java "$@"
@@ -0,0 +1,106 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.service.TextToSpeechService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how a provider response is gathered into one byte array in
+ * {@link TextToSpeechService#convertTextToSpeech}, against copying each buffer straight into a
+ * pre-sized array.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation per response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AudioBufferJoinBenchmark {
+
+    @Param({"65536", "1048576"})
+    private int responseBytes;
+
+    @Param({"8192"})
+    private int chunkBytes;
+
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private List<byte[]> chunks;
+    private TextToSpeechService textToSpeechService;
+
+    @Setup
+    public void setUp() {
+        chunks = new ArrayList<>();
+        for (int remaining = responseBytes; remaining > 0; remaining -= chunkBytes) {
+            byte[] chunk = new byte[Math.min(chunkBytes, remaining)];
+            ThreadLocalRandom.current().nextBytes(chunk);
+            chunks.add(chunk);
+        }
+
+        // Only the buffer handling is exercised; the provider stream is replayed from memory
+        textToSpeechService = new TextToSpeechService(null, null, null) {
+            @Override
+            public Flux<DataBuffer> streamTextToSpeech(String text, AudioFormat format) {
+                return providerResponse();
+            }
+        };
+    }
+
+    @Benchmark
+    public byte[] joinThenCopy() {
+        return textToSpeechService.convertTextToSpeech("benchmark", AudioFormat.MP3).block();
+    }
+
+    @Benchmark
+    public byte[] copyIntoPresizedArray() {
+        return providerResponse()
+                .reduce(new Accumulator(responseBytes), Accumulator::append)
+                .map(Accumulator::bytes)
+                .block();
+    }
+
+    private Flux<DataBuffer> providerResponse() {
+        return Flux.fromIterable(chunks).map(bufferFactory::wrap);
+    }
+
+    private static final class Accumulator {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Accumulator(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private Accumulator append(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            buffer.read(bytes, position, length);
+            position += length;
+            return this;
+        }
+
+        private byte[] bytes() {
+            return bytes;
+        }
+    }
+}
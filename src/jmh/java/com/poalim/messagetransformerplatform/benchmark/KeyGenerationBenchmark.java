@@ -0,0 +1,59 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.service.S3StorageService;
+import com.poalim.messagetransformerplatform.service.SynthesisCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures S3 object key generation and the content-addressed synthesis cache key, which runs
+ * for every message when the cache is enabled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyGenerationBenchmark {
+
+    @Param({"80", "600", "4000"})
+    private int textLength;
+
+    private S3StorageService s3StorageService;
+    private SynthesisCacheService synthesisCacheService;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        s3StorageService = new S3StorageService(null, null, null, null);
+        synthesisCacheService = new SynthesisCacheService(null, new SynthesisCacheProperties(), new SimpleMeterRegistry());
+
+        String sentence = "Your appointment is confirmed for Tuesday at 10:30.  ";
+        text = sentence.repeat(textLength / sentence.length() + 1).substring(0, textLength);
+    }
+
+    @Benchmark
+    public String objectKey() {
+        return s3StorageService.generateObjectKey(AudioFormat.MP3);
+    }
+
+    @Benchmark
+    public String synthesisCacheKey() {
+        return synthesisCacheService.cacheKey(text, "tts-1", "alloy", "mp3");
+    }
+}
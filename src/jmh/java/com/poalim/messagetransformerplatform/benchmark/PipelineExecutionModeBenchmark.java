@@ -0,0 +1,181 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.config.LongTextProperties;
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import com.poalim.messagetransformerplatform.repository.VoiceMessageRepository;
+import com.poalim.messagetransformerplatform.service.KafkaProducerService;
+import com.poalim.messagetransformerplatform.service.LongTextSynthesisService;
+import com.poalim.messagetransformerplatform.service.MessageTransformerService;
+import com.poalim.messagetransformerplatform.service.PipelineInstrumentation;
+import com.poalim.messagetransformerplatform.service.S3StorageService;
+import com.poalim.messagetransformerplatform.service.StatusWriteBehindService;
+import com.poalim.messagetransformerplatform.service.SynthesisCacheService;
+import com.poalim.messagetransformerplatform.service.TextToSpeechService;
+import com.poalim.messagetransformerplatform.service.TemplateSynthesisService;
+import com.poalim.messagetransformerplatform.service.VirtualThreadPipelineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the reactive and virtual-thread execution modes with many messages in flight.
+ * <p>
+ * Mongo, S3 and the TTS provider are replaced by stubs with fixed latencies: blocking stubs sleep,
+ * reactive stubs complete on a timer. Throughput is reported in messages per second; the peak
+ * number of platform threads during each trial is printed alongside.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineExecutionModeBenchmark {
+
+    private static final int MESSAGES_IN_FLIGHT = 1000;
+    private static final Duration MONGO_LATENCY = Duration.ofMillis(2);
+    private static final Duration S3_LATENCY = Duration.ofMillis(10);
+    private static final Duration TTS_LATENCY = Duration.ofMillis(50);
+
+    @Param({"REACTIVE", "VIRTUAL_THREADS"})
+    private PipelineProperties.ExecutionMode mode;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private MessageTransformerService messageTransformerService;
+    private VirtualThreadPipelineService virtualThreadPipelineService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, VoiceMessage> store = new ConcurrentHashMap<>();
+
+        ReactiveVoiceMessageRepository reactiveRepository = mock(ReactiveVoiceMessageRepository.class);
+        when(reactiveRepository.save(any(VoiceMessage.class))).thenAnswer(invocation -> {
+            VoiceMessage message = invocation.getArgument(0);
+            return Mono.delay(MONGO_LATENCY).then(Mono.fromCallable(() -> {
+                store.put(message.getId(), message);
+                return message;
+            }));
+        });
+        when(reactiveRepository.findById(anyString())).thenAnswer(invocation ->
+                Mono.delay(MONGO_LATENCY).then(Mono.fromCallable(() -> store.get(invocation.<String>getArgument(0)))));
+
+        VoiceMessageRepository blockingRepository = mock(VoiceMessageRepository.class);
+        when(blockingRepository.save(any(VoiceMessage.class))).thenAnswer(invocation -> {
+            VoiceMessage message = invocation.getArgument(0);
+            Thread.sleep(MONGO_LATENCY.toMillis());
+            store.put(message.getId(), message);
+            return message;
+        });
+        when(blockingRepository.findById(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(MONGO_LATENCY.toMillis());
+            return Optional.ofNullable(store.get(invocation.<String>getArgument(0)));
+        });
+
+        S3Client s3Client = mock(S3Client.class);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            Thread.sleep(S3_LATENCY.toMillis());
+            return PutObjectResponse.builder().build();
+        });
+        S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(() -> PutObjectResponse.builder().build(),
+                        CompletableFuture.delayedExecutor(S3_LATENCY.toMillis(), TimeUnit.MILLISECONDS)));
+
+        TextToSpeechService textToSpeechService = mock(TextToSpeechService.class);
+        when(textToSpeechService.getModel()).thenReturn("tts-1");
+        when(textToSpeechService.getVoice()).thenReturn("alloy");
+        when(textToSpeechService.convertTextToSpeech(anyString(), any()))
+                .thenAnswer(invocation -> Mono.delay(TTS_LATENCY).thenReturn(new byte[16 * 1024]));
+        when(textToSpeechService.streamTextToSpeech(anyString(), any())).thenReturn(Flux.empty());
+
+        KafkaProducerService kafkaProducerService = mock(KafkaProducerService.class);
+        when(kafkaProducerService.publishStatusUpdate(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        AwsS3Properties s3Properties = new AwsS3Properties();
+        s3Properties.setBucketName("voice-messages-bucket");
+        S3StorageService s3StorageService = new S3StorageService(s3Client, s3AsyncClient, null, s3Properties);
+        SynthesisCacheProperties cacheProperties = new SynthesisCacheProperties();
+        cacheProperties.setEnabled(false);
+        SynthesisCacheService synthesisCacheService =
+                new SynthesisCacheService(null, cacheProperties, new SimpleMeterRegistry());
+        LongTextSynthesisService longTextSynthesisService =
+                new LongTextSynthesisService(textToSpeechService, s3StorageService, new LongTextProperties());
+        PipelineInstrumentation pipelineInstrumentation =
+                new PipelineInstrumentation(ObservationRegistry.NOOP, new SimpleMeterRegistry());
+
+        TemplateSynthesisService templateSynthesisService = mock(TemplateSynthesisService.class);
+        StatusWriteBehindService statusWriteBehindService = mock(StatusWriteBehindService.class);
+        when(statusWriteBehindService.write(anyString(), any(), any()))
+                .thenAnswer(invocation -> Mono.delay(MONGO_LATENCY).then());
+
+        messageTransformerService = new MessageTransformerService(blockingRepository, reactiveRepository,
+                textToSpeechService, s3StorageService, kafkaProducerService, synthesisCacheService,
+                longTextSynthesisService, pipelineInstrumentation, templateSynthesisService, statusWriteBehindService);
+        virtualThreadPipelineService = new VirtualThreadPipelineService(blockingRepository, messageTransformerService,
+                textToSpeechService, s3StorageService, kafkaProducerService, synthesisCacheService,
+                longTextSynthesisService, pipelineInstrumentation, templateSynthesisService, statusWriteBehindService,
+                "voice-messages-bucket");
+
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void reportThreads() {
+        System.out.printf("%n[%s] peak platform threads: %d%n", mode, threads.getPeakThreadCount());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_IN_FLIGHT)
+    public Long processConcurrently() {
+        return Flux.range(0, MESSAGES_IN_FLIGHT)
+                .flatMap(i -> process("Your appointment is confirmed for Tuesday at 10:30. #" + i), MESSAGES_IN_FLIGHT)
+                .count()
+                .block();
+    }
+
+    private Mono<VoiceMessage> process(String text) {
+        return mode == PipelineProperties.ExecutionMode.VIRTUAL_THREADS
+                ? virtualThreadPipelineService.processTextMessage(text, "benchmark", AudioFormat.MP3)
+                : messageTransformerService.processTextMessage(text, "benchmark", AudioFormat.MP3);
+    }
+}
@@ -0,0 +1,84 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.config.PresignedUrlCacheProperties;
+import com.poalim.messagetransformerplatform.service.PresignedUrlCacheService;
+import com.poalim.messagetransformerplatform.service.S3StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SigV4 presigning in {@link S3StorageService#generatePresignedUrl} against a hit in the
+ * presigned URL cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PresignedUrlBenchmark {
+
+    private static final Duration EXPIRATION = Duration.ofMinutes(15);
+
+    private S3Presigner presigner;
+    private S3StorageService s3StorageService;
+    private PresignedUrlCacheService presignedUrlCacheService;
+    private String objectKey;
+
+    @Setup
+    public void setUp() {
+        // The per-call info log would otherwise dominate the signing cost
+        ((Logger) LoggerFactory.getLogger(S3StorageService.class)).setLevel(Level.WARN);
+
+        presigner = S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("benchmark", "benchmark")))
+                .build();
+        AwsS3Properties s3Properties = new AwsS3Properties();
+        s3Properties.setBucketName("voice-messages-bucket");
+
+        s3StorageService = new S3StorageService(null, null, presigner, s3Properties);
+        presignedUrlCacheService = new PresignedUrlCacheService(
+                s3StorageService, null, new PresignedUrlCacheProperties(), new SimpleMeterRegistry());
+        objectKey = "audio/" + UUID.randomUUID() + ".mp3";
+    }
+
+    @TearDown
+    public void tearDown() {
+        presigner.close();
+    }
+
+    @Benchmark
+    public URL sign() {
+        return s3StorageService.generatePresignedUrl(objectKey, EXPIRATION);
+    }
+
+    @Benchmark
+    public URL cachedHit() {
+        return presignedUrlCacheService.getPresignedUrl(objectKey, EXPIRATION);
+    }
+}
@@ -0,0 +1,99 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping a completed {@link VoiceMessage} to and from its Mongo document, and to the
+ * JSON returned by the status endpoint.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VoiceMessageMappingBenchmark {
+
+    private MappingMongoConverter mongoConverter;
+    private ObjectMapper objectMapper;
+    private VoiceMessage message;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        // Same conversions as the application, including java.time support
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        mongoConverter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        mongoConverter.setCustomConversions(conversions);
+        mongoConverter.afterPropertiesSet();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        message = VoiceMessage.builder()
+                .id(UUID.randomUUID().toString())
+                .originalText("Your appointment is confirmed for Tuesday at 10:30. Reply STOP to cancel.")
+                .s3BucketName("voice-messages-bucket")
+                .s3ObjectKey("audio/cache/" + UUID.randomUUID() + ".mp3")
+                .contentType("audio/mpeg")
+                .fileSizeBytes(48_213L)
+                .checksumSha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .status(MessageStatus.COMPLETED)
+                .requestedBy("benchmark")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .processedAt(LocalDateTime.now())
+                .cacheHit(false)
+                .chunkCount(1)
+                .chunkDurationsMs(List.of(812L))
+                .stageDurationsMs(Map.of("status-update", 4L, "synthesis", 840L, "tts-streaming-upload", 831L))
+                .build();
+
+        document = new Document();
+        mongoConverter.write(message, document);
+    }
+
+    @Benchmark
+    public Document toDocument() {
+        Document target = new Document();
+        mongoConverter.write(message, target);
+        return target;
+    }
+
+    @Benchmark
+    public VoiceMessage fromDocument() {
+        return mongoConverter.read(VoiceMessage.class, document);
+    }
+
+    @Benchmark
+    public byte[] toJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+}
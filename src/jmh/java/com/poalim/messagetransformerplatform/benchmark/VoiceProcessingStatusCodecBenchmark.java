@@ -0,0 +1,94 @@
+package com.poalim.messagetransformerplatform.benchmark;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusDeserializer;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and compact binary encodings of status events on the Kafka path.
+ * <p>
+ * Throughput is reported in events per second; the encoded size of each event is printed
+ * once per trial as bytes/event.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VoiceProcessingStatusCodecBenchmark {
+
+    private static final String TOPIC = "voice-processing-status";
+
+    @Param({"RECEIVED", "COMPLETED", "FAILED"})
+    private MessageStatus status;
+
+    private final JsonSerializer<VoiceProcessingStatus> jsonSerializer = new JsonSerializer<>();
+    private final JsonDeserializer<VoiceProcessingStatus> jsonDeserializer =
+            new JsonDeserializer<>(VoiceProcessingStatus.class, false);
+    private final VoiceProcessingStatusSerializer binarySerializer = new VoiceProcessingStatusSerializer();
+    private final VoiceProcessingStatusDeserializer binaryDeserializer = new VoiceProcessingStatusDeserializer();
+
+    private VoiceProcessingStatus event;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setUp() {
+        String messageId = UUID.randomUUID().toString();
+        VoiceProcessingStatus.VoiceProcessingStatusBuilder builder = VoiceProcessingStatus.builder()
+                .messageId(messageId)
+                .status(status)
+                .timestamp(LocalDateTime.now());
+        if (status == MessageStatus.COMPLETED) {
+            builder.s3BucketName("voice-messages-bucket")
+                    .s3ObjectKey("audio/" + UUID.randomUUID() + ".mp3");
+        } else if (status == MessageStatus.FAILED) {
+            builder.errorMessage("503 Service Unavailable from POST https://api.openai.com/v1/audio/speech");
+        }
+        event = builder.build();
+
+        jsonBytes = jsonSerializer.serialize(TOPIC, event);
+        binaryBytes = binarySerializer.serialize(TOPIC, event);
+        System.out.printf("%n[%s] bytes/event: json=%d binary=%d (%.1f%%)%n", status,
+                jsonBytes.length, binaryBytes.length, 100.0 * binaryBytes.length / jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public VoiceProcessingStatus jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonBytes);
+    }
+
+    @Benchmark
+    public VoiceProcessingStatus binaryDeserialize() {
+        return binaryDeserializer.deserialize(TOPIC, binaryBytes);
+    }
+}
@@ -0,0 +1,26 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Configuration
+@ConfigurationProperties(prefix = "admission")
+@Data
+public class AdmissionControlProperties {
+
+    private boolean enabled = true;
+    private int maxInFlight = 1000; // Submissions being handled by this instance
+    private long maxPendingBytes = 32L * 1024 * 1024; // UTF-8 text of in-flight submissions; audio buffers grow with it
+    private Duration maxStageLatency = Duration.ofSeconds(20); // Recent mean duration of the latency stage
+    private String latencyStage = "synthesis"; // Pipeline stage whose latency signals a slow provider or S3
+    private Duration latencySampleInterval = Duration.ofSeconds(1);
+    private double latencySmoothing = 0.3; // Weight of the newest sample in the moving average
+    private Duration minRetryAfter = Duration.ofSeconds(1);
+    private Duration maxRetryAfter = Duration.ofSeconds(60);
+    private Set<String> priorityRequesters = new HashSet<>(); // requestedBy values that are never shed
+}
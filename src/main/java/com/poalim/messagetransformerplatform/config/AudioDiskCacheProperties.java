@@ -0,0 +1,14 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "audio.disk-cache")
+@Data
+public class AudioDiskCacheProperties {
+
+    private String directory = System.getProperty("java.io.tmpdir") + "/voice-audio-cache";
+    private long maxSizeBytes = 1024L * 1024 * 1024; // 1 GiB
+}
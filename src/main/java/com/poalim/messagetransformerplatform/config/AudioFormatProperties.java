@@ -0,0 +1,37 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Configuration
+@ConfigurationProperties(prefix = "audio.formats")
+@Data
+public class AudioFormatProperties {
+
+    private AudioFormat defaultFormat = AudioFormat.MP3; // Used when a request does not ask for a format
+    private Set<AudioFormat> enabled = EnumSet.allOf(AudioFormat.class); // Formats requests may negotiate
+
+    /**
+     * Fail startup on a configuration no request could be served with
+     *
+     * @throws IllegalStateException If the default format is not enabled, or no enabled format can be
+     *                               stitched for long texts and templates
+     */
+    @PostConstruct
+    void validate() {
+        if (!enabled.contains(defaultFormat)) {
+            throw new IllegalStateException("audio.formats.default-format " + defaultFormat
+                    + " is not in audio.formats.enabled " + enabled);
+        }
+        if (enabled.stream().noneMatch(AudioFormat::isStitchable)) {
+            throw new IllegalStateException("audio.formats.enabled " + enabled
+                    + " has no stitchable format for long texts and templates");
+        }
+    }
+}
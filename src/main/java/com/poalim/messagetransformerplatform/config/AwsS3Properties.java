@@ -1,5 +1,6 @@
 package com.poalim.messagetransformerplatform.config;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -9,8 +10,20 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class AwsS3Properties {
 
+    // S3 rejects a multipart upload whose parts, except the last, are smaller than this
+    public static final int MIN_MULTIPART_PART_SIZE_BYTES = 5 * 1024 * 1024;
+
     private String bucketName;
     private String region;
     private String endpoint; // Used for local development with MinIO
     private boolean pathStyleAccessEnabled; // Used for local development with MinIO
-}
\ No newline at end of file
+    private int multipartPartSizeBytes = MIN_MULTIPART_PART_SIZE_BYTES; // Part size for streaming uploads
+
+    @PostConstruct
+    void validate() {
+        if (multipartPartSizeBytes < MIN_MULTIPART_PART_SIZE_BYTES) {
+            throw new IllegalStateException("aws.s3.multipart-part-size-bytes " + multipartPartSizeBytes
+                    + " is below the S3 minimum part size of " + MIN_MULTIPART_PART_SIZE_BYTES + " bytes");
+        }
+    }
+}
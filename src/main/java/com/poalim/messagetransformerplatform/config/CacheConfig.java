@@ -0,0 +1,32 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String VOICE_MESSAGES_CACHE = "voiceMessages";
+
+    @Bean
+    public CacheManager cacheManager(MessageCacheProperties messageCacheProperties) {
+        if (!messageCacheProperties.isEnabled()) {
+            return new NoOpCacheManager();
+        }
+
+        // Caches are created up front so the actuator binds their hit/miss metrics at startup
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(VOICE_MESSAGES_CACHE);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(messageCacheProperties.getMaxEntries())
+                .expireAfterWrite(messageCacheProperties.getTimeToLive())
+                .recordStats());
+        return cacheManager;
+    }
+}
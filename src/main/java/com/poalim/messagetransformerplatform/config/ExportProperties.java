@@ -0,0 +1,21 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "export")
+@Data
+public class ExportProperties {
+
+    private String directory = System.getProperty("java.io.tmpdir") + "/message-exports"; // Parts and fetched objects
+    private String s3Prefix = "exports/"; // Key prefix of parts uploaded for the S3 destination
+    private int concurrency = 8; // Objects fetched from S3 concurrently per job
+    private int pageSize = 500; // Messages read per keyset query
+    private int maxPartEntries = 1000; // Messages per archive part; each closed part is a checkpoint
+    private long maxPartBytes = 1024L * 1024 * 1024; // 1 GiB, well under the 5 GiB single PUT limit
+    private Duration leaseTimeout = Duration.ofMinutes(5); // A running job not renewed for this long may be taken over
+}
@@ -1,30 +1,49 @@
 package com.poalim.messagetransformerplatform.config;
 
+import com.poalim.messagetransformerplatform.model.SynthesisWorkItem;
 import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusDeserializer;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConfig {
 
+    private final PipelineProperties pipelineProperties;
+    private final StatusProducerProperties statusProducerProperties;
+    private final MessageCacheProperties messageCacheProperties;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Value("${kafka.topics.voice-processing-status}")
     private String voiceProcessingStatusTopic;
 
+    @Value("${kafka.topics.voice-synthesis-requests}")
+    private String voiceSynthesisRequestsTopic;
+
     @Bean
     public NewTopic voiceProcessingStatusTopic() {
         return TopicBuilder.name(voiceProcessingStatusTopic)
@@ -33,12 +52,30 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic voiceSynthesisRequestsTopic() {
+        // Partition count bounds how many worker consumers the group can spread across
+        return TopicBuilder.name(voiceSynthesisRequestsTopic)
+                .partitions(pipelineProperties.getWorker().getTopicPartitions())
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, VoiceProcessingStatus> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                statusProducerProperties.getCodec() == StatusProducerProperties.Codec.BINARY
+                        ? VoiceProcessingStatusSerializer.class
+                        : JsonSerializer.class);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, statusProducerProperties.getCompressionType());
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, statusProducerProperties.getLingerMs());
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, statusProducerProperties.getBatchSizeBytes());
+        configProps.put(ProducerConfig.ACKS_CONFIG, statusProducerProperties.getAcks());
+        // Idempotence requires acks=all, so lowering acks has to turn it off explicitly
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, statusProducerProperties.isEnableIdempotence());
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -46,4 +83,67 @@ public class KafkaConfig {
     public KafkaTemplate<String, VoiceProcessingStatus> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+
+    @Bean
+    public ProducerFactory<String, SynthesisWorkItem> workItemProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, SynthesisWorkItem> workItemKafkaTemplate() {
+        return new KafkaTemplate<>(workItemProducerFactory());
+    }
+
+    @Bean
+    public ConsumerFactory<String, SynthesisWorkItem> workItemConsumerFactory() {
+        PipelineProperties.Worker worker = pipelineProperties.getWorker();
+
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, worker.getGroupId());
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, worker.getMaxPollRecords());
+        configProps.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, worker.getMaxPollIntervalMs());
+        return new DefaultKafkaConsumerFactory<>(configProps,
+                new StringDeserializer(), new JsonDeserializer<>(SynthesisWorkItem.class, false));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, SynthesisWorkItem> synthesisWorkerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, SynthesisWorkItem> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(workItemConsumerFactory());
+        factory.setConcurrency(pipelineProperties.getWorker().getConcurrency());
+        factory.setBatchListener(true);
+        factory.setAutoStartup(pipelineProperties.getWorker().isEnabled());
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<String, VoiceProcessingStatus> statusEventConsumerFactory() {
+        // Every instance needs every status event, so each one joins its own consumer group and
+        // starts from the latest offset
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG,
+                messageCacheProperties.getInvalidationGroupPrefix() + UUID.randomUUID());
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return new DefaultKafkaConsumerFactory<>(configProps,
+                new StringDeserializer(), new VoiceProcessingStatusDeserializer());
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, VoiceProcessingStatus> statusEventContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, VoiceProcessingStatus> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(statusEventConsumerFactory());
+        factory.setAutoStartup(messageCacheProperties.isEnabled());
+        return factory;
+    }
+}
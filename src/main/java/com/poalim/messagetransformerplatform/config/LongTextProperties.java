@@ -0,0 +1,16 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "synthesis.long-text")
+@Data
+public class LongTextProperties {
+
+    private boolean enabled = true;
+    private int thresholdChars = 600; // Texts longer than this are synthesized in chunks
+    private int maxChunkChars = 600; // Must stay below the provider input limit (4096 for OpenAI)
+    private int concurrency = 8; // Chunks synthesized concurrently per message
+}
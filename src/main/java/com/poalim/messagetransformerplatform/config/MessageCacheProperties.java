@@ -0,0 +1,18 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "message-cache")
+@Data
+public class MessageCacheProperties {
+
+    private boolean enabled = true;
+    private int maxEntries = 50_000;
+    private Duration timeToLive = Duration.ofSeconds(30); // Upper bound on staleness if status events are lost
+    private String invalidationGroupPrefix = "message-cache-";
+}
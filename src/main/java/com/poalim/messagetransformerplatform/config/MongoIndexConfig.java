@@ -0,0 +1,42 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Flux;
+
+/**
+ * Creates the indexes declared on documents once the application is up.
+ * <p>
+ * Spring Data's auto-index-creation runs while the template is built and blocks startup until the
+ * database answers; here the indexes are ensured in the background, and a failure is logged rather
+ * than keeping the service from starting.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexConfig {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+
+        Flux.fromIterable(mongoMappingContext.getPersistentEntities())
+                .filter(entity -> entity.isAnnotationPresent(Document.class))
+                .concatMap(entity -> Flux.fromIterable(resolver.resolveIndexFor(entity.getTypeInformation()))
+                        .concatMap(index -> reactiveMongoTemplate.indexOps(entity.getType()).ensureIndex(index)))
+                .subscribe(
+                        name -> log.info("Ensured MongoDB index: {}", name),
+                        e -> log.error("Failed to ensure MongoDB indexes", e));
+    }
+}
@@ -0,0 +1,58 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.BatchItemRequest;
+import com.poalim.messagetransformerplatform.model.BatchItemResult;
+import com.poalim.messagetransformerplatform.model.ExportManifestEntry;
+import com.poalim.messagetransformerplatform.model.MessageListingLine;
+import com.poalim.messagetransformerplatform.model.SloSample;
+import com.poalim.messagetransformerplatform.model.SloWindow;
+import com.poalim.messagetransformerplatform.model.SloWindowReport;
+import com.poalim.messagetransformerplatform.model.SynthesisWorkItem;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusDeserializer;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection hints for the native image build.
+ * <p>
+ * Spring AOT derives hints for controller signatures and repository entities on its own; the types
+ * registered here are bound by Jackson elsewhere (Kafka records, Kafka Streams state, the batch
+ * reader, export manifests) or instantiated by Kafka from a class name, which AOT cannot see.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.MessageTransformerRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class MessageTransformerRuntimeHints implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // JSON payloads read and written outside controller signatures
+            bindingHints.registerReflectionHints(hints.reflection(),
+                    VoiceMessage.class,
+                    VoiceProcessingStatus.class,
+                    SynthesisWorkItem.class,
+                    SloSample.class,
+                    SloWindow.class,
+                    SloWindowReport.class,
+                    MessageListingLine.class,
+                    BatchItemRequest.class,
+                    BatchItemResult.class,
+                    ExportManifestEntry.class);
+
+            // Configured by class in the producer and consumer properties
+            hints.reflection()
+                    .registerType(VoiceProcessingStatusSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                    .registerType(VoiceProcessingStatusDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Configuration
+@ConfigurationProperties(prefix = "pipeline")
+@Data
+public class PipelineProperties {
+
+    // Accept submissions with 202 and hand synthesis to the Kafka-backed workers
+    private boolean asyncEnabled = false;
+
+    // How each message's synthesis runs, in-process and on the workers
+    private ExecutionMode executionMode = ExecutionMode.REACTIVE;
+
+    private Worker worker = new Worker();
+    private Batch batch = new Batch();
+    private WriteBehind writeBehind = new WriteBehind();
+
+    public enum ExecutionMode {
+        REACTIVE, // Non-blocking operators on the Reactor schedulers
+        VIRTUAL_THREADS // Blocking clients, one virtual thread per message plus forks for independent steps
+    }
+
+    @Data
+    public static class Worker {
+
+        private boolean enabled = true; // Disable on API-only instances
+        private String groupId = "synthesis-workers";
+        private int concurrency = 3; // Consumer threads per instance
+        private int parallelismPerConsumer = 4; // Messages synthesized concurrently within one polled batch
+        private int maxPollRecords = 8; // Caps work taken per poll; the rest waits as consumer lag
+        private int maxPollIntervalMs = 600_000;
+        // A redelivered message still PROCESSING after this long is taken to be abandoned by a dead worker
+        private Duration claimTimeout = Duration.ofMinutes(15);
+        private int topicPartitions = 12;
+    }
+
+    @Data
+    public static class Batch {
+
+        private int concurrency = 16; // Items synthesized concurrently per batch request
+        private int insertChunkSize = 500; // Documents per bulk insert
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        private boolean enabled = true; // Buffer status updates and write them as unordered bulk updates
+        private int maxBatchSize = 500; // Updates per bulk write; a full buffer is flushed right away
+        private Duration flushInterval = Duration.ofMillis(50);
+        // Transitions flushed right away; the rest wait for the next flush interval
+        private Set<MessageStatus> synchronousStatuses = EnumSet.of(MessageStatus.COMPLETED, MessageStatus.FAILED);
+    }
+}
@@ -0,0 +1,17 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "aws.s3.presigned-url")
+@Data
+public class PresignedUrlCacheProperties {
+
+    private Duration expiration = Duration.ofMinutes(15);
+    private double reuseFraction = 0.5; // Reuse a URL until this fraction of its validity has passed
+    private int maxEntries = 10_000;
+}
@@ -0,0 +1,27 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "llm.api.limiter")
+@Data
+public class ProviderLimiterProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 8;
+    private int minLimit = 1;
+    private int maxLimit = 64;
+    private double backoffRatio = 0.7; // Multiplicative decrease on 429/5xx or slow responses
+    private Duration latencyThreshold = Duration.ofSeconds(15); // Slower calls count as congestion
+    private Duration backoffCooldown = Duration.ofSeconds(1); // At most one decrease per cooldown
+    private int maxQueueSize = 500;
+    private Duration maxWait = Duration.ofSeconds(60);
+    private int defaultWeight = 1;
+    private Map<String, Integer> tenantWeights = new HashMap<>(); // requestedBy -> share of the provider
+}
@@ -0,0 +1,34 @@
+package com.poalim.messagetransformerplatform.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+
+import java.net.URI;
+
+@Configuration
+public class S3AsyncClientConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public S3AsyncClient s3AsyncClient(AwsS3Properties s3Properties,
+                                       ObjectProvider<AwsCredentialsProvider> credentialsProvider) {
+        // Netty-based async client used for streaming multipart uploads
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(s3Properties.getRegion()))
+                .credentialsProvider(credentialsProvider.getIfAvailable(DefaultCredentialsProvider::create))
+                .forcePathStyle(s3Properties.isPathStyleAccessEnabled());
+
+        if (s3Properties.getEndpoint() != null && !s3Properties.getEndpoint().isBlank()) {
+            builder.endpointOverride(URI.create(s3Properties.getEndpoint()));
+        }
+
+        return builder.build();
+    }
+}
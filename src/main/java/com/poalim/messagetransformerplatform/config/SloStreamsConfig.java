@@ -0,0 +1,101 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.SloSample;
+import com.poalim.messagetransformerplatform.model.SloWindow;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusDeserializer;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.JoinWindows;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.StreamJoined;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.state.WindowStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+import java.time.Duration;
+
+/**
+ * Kafka Streams topology computing live per-requester SLO figures from the status topic.
+ * <p>
+ * Each message's RECEIVED event is joined with its COMPLETED or FAILED event to get its end-to-end
+ * latency, and the results are aggregated per requester into windows held in the
+ * {@value #SLO_WINDOWS_STORE} store, which {@link com.poalim.messagetransformerplatform.service.SloQueryService}
+ * serves as an interactive query.
+ */
+@Configuration
+@EnableKafkaStreams
+@RequiredArgsConstructor
+public class SloStreamsConfig {
+
+    public static final String SLO_WINDOWS_STORE = "slo-windows";
+
+    private static final String DEFAULT_REQUESTER = "anonymous";
+
+    private final SloStreamsProperties sloStreamsProperties;
+
+    @Value("${kafka.topics.voice-processing-status}")
+    private String voiceProcessingStatusTopic;
+
+    @Bean
+    public KStream<String, SloSample> sloSamples(StreamsBuilder streamsBuilder) {
+        Serde<VoiceProcessingStatus> statusSerde =
+                Serdes.serdeFrom(new VoiceProcessingStatusSerializer(), new VoiceProcessingStatusDeserializer());
+        Serde<SloSample> sampleSerde = new JsonSerde<>(SloSample.class).noTypeInfo().ignoreTypeHeaders();
+        Serde<SloWindow> windowSerde = new JsonSerde<>(SloWindow.class).noTypeInfo().ignoreTypeHeaders();
+
+        // Status events are keyed by message ID, so both sides of the join are already co-partitioned
+        KStream<String, VoiceProcessingStatus> events = streamsBuilder.stream(
+                voiceProcessingStatusTopic, Consumed.with(Serdes.String(), statusSerde).withName("slo-status-events"));
+        KStream<String, VoiceProcessingStatus> received = events.filter(
+                (messageId, event) -> event != null && event.getStatus() == MessageStatus.RECEIVED,
+                Named.as("slo-received"));
+        KStream<String, VoiceProcessingStatus> finished = events.filter(
+                (messageId, event) -> event != null && (event.getStatus() == MessageStatus.COMPLETED
+                        || event.getStatus() == MessageStatus.FAILED),
+                Named.as("slo-finished"));
+
+        KStream<String, SloSample> samples = received.join(finished, SloStreamsConfig::toSample,
+                JoinWindows.ofTimeDifferenceWithNoGrace(sloStreamsProperties.getMaxLatency()),
+                StreamJoined.with(Serdes.String(), statusSerde, statusSerde).withStoreName("slo-join"));
+
+        // Windows follow the finishing event's time, so each window counts the messages completed in it
+        samples.selectKey((messageId, sample) -> sample.getRequestedBy(), Named.as("slo-by-requester"))
+                .groupByKey(Grouped.with("slo-by-requester", Serdes.String(), sampleSerde))
+                .windowedBy(TimeWindows.ofSizeAndGrace(sloStreamsProperties.getWindow(), sloStreamsProperties.getGrace()))
+                .aggregate(SloWindow::new, (requestedBy, sample, window) -> window.add(sample),
+                        Materialized.<String, SloWindow, WindowStore<Bytes, byte[]>>as(SLO_WINDOWS_STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(windowSerde)
+                                .withRetention(sloStreamsProperties.getRetention()));
+
+        return samples;
+    }
+
+    private static SloSample toSample(VoiceProcessingStatus received, VoiceProcessingStatus finished) {
+        String requestedBy = received.getRequestedBy() != null ? received.getRequestedBy()
+                : finished.getRequestedBy() != null ? finished.getRequestedBy() : DEFAULT_REQUESTER;
+        long latencyMs = received.getTimestamp() != null && finished.getTimestamp() != null
+                ? Math.max(0, Duration.between(received.getTimestamp(), finished.getTimestamp()).toMillis())
+                : 0;
+
+        return SloSample.builder()
+                .requestedBy(requestedBy)
+                .latencyMs(latencyMs)
+                .failed(finished.getStatus() == MessageStatus.FAILED)
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "slo.streams")
+@Data
+public class SloStreamsProperties {
+
+    private Duration window = Duration.ofMinutes(1); // Aggregation window per requester
+    private Duration grace = Duration.ofSeconds(30); // How late a finished message may still land in its window
+    private Duration maxLatency = Duration.ofHours(1); // Messages finishing later than this after RECEIVED are not joined
+    private Duration retention = Duration.ofHours(24); // How long windows stay queryable
+}
@@ -0,0 +1,30 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Producer profile for the high-volume voice-processing-status stream.
+ * <p>
+ * Defaults to JSON with acks=all and idempotence. The binary codec and weaker acks are opt-in, for
+ * deployments whose consumers all read the binary format and that can lose a status event on a
+ * broker failover.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "kafka.producer.status")
+@Data
+public class StatusProducerProperties {
+
+    private Codec codec = Codec.JSON;
+    private String compressionType = "lz4";
+    private int lingerMs = 20;
+    private int batchSizeBytes = 64 * 1024;
+    private String acks = "all";
+    private boolean enableIdempotence = true;
+
+    public enum Codec {
+        JSON,
+        BINARY
+    }
+}
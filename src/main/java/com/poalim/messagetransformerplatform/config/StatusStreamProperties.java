@@ -0,0 +1,19 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "status-stream")
+@Data
+public class StatusStreamProperties {
+
+    private boolean enabled = true;
+    private String groupPrefix = "status-stream-"; // Each instance consumes every status event under its own group
+    private int maxIdsPerSubscription = 1000;
+    private int subscriberBufferSize = 64; // Pending events per subscriber before it is dropped as too slow
+    private Duration heartbeatInterval = Duration.ofSeconds(20); // Keeps idle connections open through proxies
+}
@@ -0,0 +1,15 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "synthesis.cache")
+@Data
+public class SynthesisCacheProperties {
+
+    private boolean enabled = true;
+    private int maxEntries = 10_000; // Size of the in-process LRU tier
+    private String keyPrefix = "audio/cache/"; // S3 prefix for content-addressed audio objects
+}
@@ -0,0 +1,15 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "synthesis.templates")
+@Data
+public class TemplateProperties {
+
+    private long segmentCacheMaxBytes = 64L * 1024 * 1024; // Static segment audio held in memory, per instance
+    private boolean prewarm = true; // Synthesize static segments in the default format on registration
+    private int concurrency = 8; // Segments synthesized concurrently per message
+}
@@ -0,0 +1,36 @@
+package com.poalim.messagetransformerplatform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "llm.api.routing")
+@Data
+public class TtsRoutingProperties {
+
+    // When empty, the single backend from llm.api.endpoint/key/model/voice is used
+    private List<Backend> backends = new ArrayList<>();
+
+    private double ewmaAlpha = 0.2; // Weight of the newest sample in latency and error rate averages
+    private double errorPenalty = 4.0; // Score multiplier per unit of error rate
+    private boolean hedgingEnabled = true;
+    private double hedgePercentile = 0.95; // Hedge once the first byte is later than this latency percentile
+    private Duration minHedgeDelay = Duration.ofMillis(500);
+    private int latencyWindow = 100; // Recent samples per backend used for the percentile
+
+    @Data
+    public static class Backend {
+
+        private String name;
+        private String endpoint;
+        private String key;
+        private String model; // Defaults to llm.api.model; backends should produce interchangeable audio
+        private String voice; // Defaults to llm.api.voice
+        private int weight = 1;
+    }
+}
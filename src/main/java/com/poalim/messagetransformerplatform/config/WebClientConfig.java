@@ -10,7 +10,7 @@ public class WebClientConfig {
 
     @Bean
     public WebClient webClient() {
-        // Configure exchange strategies with a larger buffer size for handling audio responses
+        // Configure exchange strategies with a larger buffer size for handling buffered (non-streaming) audio responses
         final ExchangeStrategies strategies = ExchangeStrategies.builder()
                 .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(10 * 1024 * 1024)) // 10MB buffer
                 .build();
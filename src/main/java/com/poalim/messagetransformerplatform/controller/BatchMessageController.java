@@ -0,0 +1,56 @@
+package com.poalim.messagetransformerplatform.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poalim.messagetransformerplatform.model.BatchItemRequest;
+import com.poalim.messagetransformerplatform.model.BatchItemResult;
+import com.poalim.messagetransformerplatform.service.BatchSubmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/messages")
+@RequiredArgsConstructor
+public class BatchMessageController {
+
+    private final BatchSubmissionService batchSubmissionService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Submit a batch of text messages for conversion to speech
+     * <p>
+     * The body is either NDJSON (one item per line) or a JSON array of items, and is parsed
+     * incrementally. Results are streamed back as NDJSON in completion order. Each item is admitted
+     * like a single submission; a shed item fails with the delay after which it may be resubmitted.
+     *
+     * @param request The HTTP request carrying the batch body
+     * @param requestedBy Requester used for items that do not specify one
+     * @return The per-item results
+     */
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchItemResult> submitBatch(HttpServletRequest request,
+                                             @RequestParam(defaultValue = "anonymous") String requestedBy) throws IOException {
+        // A root-level JSON array is unwrapped by the iterator, so both formats read the same way
+        MappingIterator<BatchItemRequest> items = objectMapper.readerFor(BatchItemRequest.class)
+                .readValues(request.getInputStream());
+
+        return batchSubmissionService.submitBatch(items, requestedBy)
+                .doFinally(signal -> {
+                    try {
+                        items.close();
+                    } catch (IOException ignored) {
+                        // Nothing left to release
+                    }
+                });
+    }
+}
@@ -0,0 +1,81 @@
+package com.poalim.messagetransformerplatform.controller;
+
+import com.poalim.messagetransformerplatform.model.ExportDestination;
+import com.poalim.messagetransformerplatform.model.ExportJob;
+import com.poalim.messagetransformerplatform.service.AudioExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/exports")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final AudioExportService audioExportService;
+
+    /**
+     * Start exporting the audio of messages completed in a creation time range
+     * <p>
+     * The export runs in the background and writes ZIP parts, each with a {@code manifest.ndjson},
+     * to this instance's export directory or to the audio bucket. Poll the job for progress.
+     *
+     * @param request {@code from} (inclusive) and {@code to} (exclusive), and optional
+     *                {@code destination} ({@code FILE} by default) and {@code requestedBy}
+     * @return The started job, or 400 if the range is missing or empty
+     */
+    @PostMapping
+    public Mono<ResponseEntity<ExportJob>> startExport(@RequestBody ExportRequest request) {
+        if (request.from() == null || request.to() == null || !request.from().isBefore(request.to())) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return audioExportService.startExport(request.from(), request.to(),
+                        request.destination() != null ? request.destination() : ExportDestination.FILE,
+                        request.requestedBy() != null ? request.requestedBy() : "anonymous")
+                .map(job -> ResponseEntity.accepted().body(job));
+    }
+
+    /**
+     * Get an export job with its progress, parts and checkpoint
+     *
+     * @param jobId The job ID
+     * @return The job, or 404 if unknown
+     */
+    @GetMapping("/{jobId}")
+    public Mono<ResponseEntity<ExportJob>> getExport(@PathVariable String jobId) {
+        return audioExportService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Resume a failed or interrupted export from its last closed part
+     * <p>
+     * A job still marked running whose lease has expired, because the instance running it died, is
+     * taken over the same way.
+     *
+     * @param jobId The job ID
+     * @return The resumed job, 404 if unknown, or 409 if the job is running or completed
+     */
+    @PostMapping("/{jobId}/resume")
+    public Mono<ResponseEntity<ExportJob>> resumeExport(@PathVariable String jobId) {
+        return audioExportService.resumeExport(jobId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .switchIfEmpty(Mono.defer(() -> audioExportService.getJob(jobId)
+                        .map(job -> ResponseEntity.status(HttpStatus.CONFLICT).<ExportJob>build())
+                        .defaultIfEmpty(ResponseEntity.notFound().build())));
+    }
+
+    record ExportRequest(LocalDateTime from, LocalDateTime to, ExportDestination destination, String requestedBy) {
+    }
+}
@@ -1,15 +1,42 @@
 package com.poalim.messagetransformerplatform.controller;
 
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.config.StatusStreamProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageListingLine;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
 import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.service.AdmissionControlService;
+import com.poalim.messagetransformerplatform.service.AudioDiskCacheService;
+import com.poalim.messagetransformerplatform.service.LongTextSynthesisService;
+import com.poalim.messagetransformerplatform.service.MessageListingService;
 import com.poalim.messagetransformerplatform.service.MessageTransformerService;
-import com.poalim.messagetransformerplatform.service.S3StorageService;
+import com.poalim.messagetransformerplatform.service.PresignedUrlCacheService;
+import com.poalim.messagetransformerplatform.service.StatusEventBroadcaster;
+import com.poalim.messagetransformerplatform.service.VirtualThreadPipelineService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.net.URL;
-import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,24 +44,155 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MessageController {
 
+    private static final String AUDIO_PIN_ATTRIBUTE = MessageController.class.getName() + ".audioPin";
+
     private final MessageTransformerService messageTransformerService;
-    private final S3StorageService s3StorageService;
+    private final PresignedUrlCacheService presignedUrlCacheService;
+    private final AudioDiskCacheService audioDiskCacheService;
+    private final PipelineProperties pipelineProperties;
+    private final VirtualThreadPipelineService virtualThreadPipelineService;
+    private final AudioFormatProperties audioFormatProperties;
+    private final LongTextSynthesisService longTextSynthesisService;
+    private final MessageListingService messageListingService;
+    private final StatusEventBroadcaster statusEventBroadcaster;
+    private final StatusStreamProperties statusStreamProperties;
+    private final AdmissionControlService admissionControlService;
 
     /**
      * Submit a new text message for conversion to speech
+     * <p>
+     * In asynchronous mode the message is only accepted and enqueued, and 202 is returned right away.
+     * The optional {@code format} field lists acceptable audio formats in order of preference, e.g.
+     * {@code "opus,aac,mp3"}; the negotiated one is recorded as the message's content type. Long texts are
+     * joined from chunks, so only formats that can be joined are negotiated for them.
+     * <p>
+     * Submissions are shed with 429 and a {@code Retry-After} header while the instance is overloaded.
      *
      * @param request The text message request
-     * @return The created voice message
+     * @return The created voice message, 400 if none of the requested formats is available, or 429
+     *         if the submission was shed
      */
     @PostMapping("/text-to-speech")
     public Mono<ResponseEntity<VoiceMessage>> submitTextToSpeech(@RequestBody Map<String, String> request) {
         String text = request.get("text");
         String requestedBy = request.getOrDefault("requestedBy", "anonymous");
 
-        return messageTransformerService.processTextMessage(text, requestedBy)
+        AudioFormat format;
+        try {
+            format = longTextSynthesisService.negotiateFormat(text, request.get("format"), audioFormatProperties);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        AdmissionControlService.Permit permit = admissionControlService.tryAdmit(requestedBy, text);
+        if (!permit.isAdmitted()) {
+            return Mono.just(tooManyRequests(permit));
+        }
+
+        return submit(text, requestedBy, format)
+                .doFinally(signal -> permit.release());
+    }
+
+    private Mono<ResponseEntity<VoiceMessage>> submit(String text, String requestedBy, AudioFormat format) {
+        if (pipelineProperties.isAsyncEnabled()) {
+            return messageTransformerService.submitTextMessage(text, requestedBy, format)
+                    .map(message -> message.getStatus() == MessageStatus.FAILED
+                            ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(message)
+                            : ResponseEntity.accepted().body(message));
+        }
+
+        if (pipelineProperties.getExecutionMode() == PipelineProperties.ExecutionMode.VIRTUAL_THREADS) {
+            return virtualThreadPipelineService.processTextMessage(text, requestedBy, format)
+                    .map(ResponseEntity::ok);
+        }
+
+        return messageTransformerService.processTextMessage(text, requestedBy, format)
                 .map(ResponseEntity::ok);
     }
 
+    /**
+     * The response for a shed submission
+     *
+     * @param permit The rejected permit
+     * @return 429 with the delay after which the caller may retry
+     */
+    static <T> ResponseEntity<T> tooManyRequests(AdmissionControlService.Permit permit) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(permit.getRetryAfter().toSeconds()))
+                .build();
+    }
+
+    /**
+     * List voice messages, newest first, streamed as NDJSON
+     * <p>
+     * A page ends with a {@code continuationToken} line when more messages follow; pass it back with
+     * the same filters to fetch the next page.
+     *
+     * @param status Only list messages in this status
+     * @param requestedBy Only list messages from this requester
+     * @param from Only list messages created at or after this time
+     * @param to Only list messages created before this time
+     * @param limit The page size
+     * @param continuationToken Token ending the previous page
+     * @return The page, or 400 if the continuation token is malformed
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<MessageListingLine>> listMessages(
+            @RequestParam(required = false) MessageStatus status,
+            @RequestParam(required = false) String requestedBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(name = "continuation", required = false) String continuationToken) {
+        VoiceMessageFilter filter = VoiceMessageFilter.builder()
+                .status(status)
+                .requestedBy(requestedBy)
+                .createdFrom(from)
+                .createdTo(to)
+                .build();
+
+        try {
+            return ResponseEntity.ok(messageListingService.listMessages(filter, continuationToken, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stream the status of a voice message as Server-Sent Events until it is finished
+     * <p>
+     * The current status is sent first, then each transition, so clients no longer need to poll.
+     *
+     * @param messageId The message ID
+     * @return The status events
+     */
+    @GetMapping(value = "/{messageId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<VoiceProcessingStatus>> streamStatusEvents(@PathVariable String messageId) {
+        return toServerSentEvents(statusEventBroadcaster.watch(List.of(messageId)));
+    }
+
+    /**
+     * Stream the status of many voice messages over one Server-Sent Events connection
+     *
+     * @param ids Comma-separated message IDs
+     * @return The status events of all messages, completing once every one is finished, or 400 if
+     *         too many IDs are given
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<VoiceProcessingStatus>>> streamMultipleStatusEvents(
+            @RequestParam("ids") String ids) {
+        List<String> messageIds = Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .toList();
+        if (messageIds.isEmpty() || messageIds.size() > statusStreamProperties.getMaxIdsPerSubscription()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(toServerSentEvents(statusEventBroadcaster.watch(messageIds)));
+    }
+
     /**
      * Get a voice message by ID
      *
@@ -55,15 +213,59 @@ public class MessageController {
      */
     @GetMapping("/{messageId}/audio-url")
     public ResponseEntity<Map<String, String>> getAudioUrl(@PathVariable String messageId) {
+        URL presignedUrl = presignedUrlCacheService.getAudioUrl(messageId);
+
+        if (presignedUrl == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(Map.of("audioUrl", presignedUrl.toString()));
+    }
+
+    /**
+     * Stream the audio file of a voice message
+     * <p>
+     * Served from the local disk cache, fetching from S3 on a miss. Range requests are answered with
+     * 206 Partial Content by Spring's resource region support.
+     *
+     * @param messageId The message ID
+     * @return The audio content
+     */
+    @GetMapping("/{messageId}/audio")
+    public ResponseEntity<Resource> getAudio(@PathVariable String messageId) {
         VoiceMessage message = messageTransformerService.getVoiceMessage(messageId);
 
         if (message.getS3ObjectKey() == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        URL presignedUrl = s3StorageService.generatePresignedUrl(
-                message.getS3ObjectKey(), Duration.ofMinutes(15));
+        AudioDiskCacheService.CachedAudio audio = audioDiskCacheService.getOrFetch(message.getS3ObjectKey());
+        // The body is written before the request completes; until then the file must not be evicted
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                AUDIO_PIN_ATTRIBUTE, audio::release, RequestAttributes.SCOPE_REQUEST);
 
-        return ResponseEntity.ok(Map.of("audioUrl", presignedUrl.toString()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(message.getContentType() != null
+                        ? message.getContentType() : "audio/mpeg"))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(new FileSystemResource(audio.getFile()));
+    }
+
+    private Flux<ServerSentEvent<VoiceProcessingStatus>> toServerSentEvents(Flux<VoiceProcessingStatus> events) {
+        return Flux.defer(() -> {
+            Sinks.Empty<Void> finished = Sinks.empty();
+            Flux<ServerSentEvent<VoiceProcessingStatus>> statusEvents = events
+                    .map(event -> ServerSentEvent.builder(event)
+                            .event(event.getStatus() != null ? "status" : "not-found")
+                            .build())
+                    .doFinally(signal -> finished.tryEmitEmpty());
+            // Heartbeat comments keep idle connections from being closed by proxies
+            Flux<ServerSentEvent<VoiceProcessingStatus>> heartbeats = Flux.interval(
+                            statusStreamProperties.getHeartbeatInterval())
+                    .map(tick -> ServerSentEvent.<VoiceProcessingStatus>builder().comment("heartbeat").build())
+                    .takeUntilOther(finished.asMono());
+
+            return Flux.merge(statusEvents, heartbeats);
+        });
     }
-}
\ No newline at end of file
+}
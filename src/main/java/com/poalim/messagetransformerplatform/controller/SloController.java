@@ -0,0 +1,75 @@
+package com.poalim.messagetransformerplatform.controller;
+
+import com.poalim.messagetransformerplatform.model.SloWindowReport;
+import com.poalim.messagetransformerplatform.service.SloQueryService;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.streams.state.HostInfo;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/v1/slo")
+@RequiredArgsConstructor
+public class SloController {
+
+    private final SloQueryService sloQueryService;
+
+    /**
+     * Get a requester's live throughput, latency and failure figures per window
+     * <p>
+     * When another instance owns the requester's windows, the request is redirected there.
+     *
+     * @param requestedBy The requester
+     * @param minutes How far back to report
+     * @return The windows, oldest first, or 503 while the streams are not running
+     */
+    @GetMapping("/{requestedBy}")
+    public ResponseEntity<List<SloWindowReport>> getRequesterWindows(@PathVariable String requestedBy,
+                                                                     @RequestParam(defaultValue = "15") long minutes) {
+        if (!sloQueryService.isQueryable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Optional<HostInfo> owner = sloQueryService.ownerOf(requestedBy);
+        if (owner.isPresent()) {
+            return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .host(owner.get().host())
+                            .port(owner.get().port())
+                            .build()
+                            .toUri())
+                    .build();
+        }
+
+        return ResponseEntity.ok(sloQueryService.getWindows(requestedBy, since(minutes)));
+    }
+
+    /**
+     * Get the windows of every requester owned by this instance
+     *
+     * @param minutes How far back to report
+     * @return The windows held locally, or 503 while the streams are not running
+     */
+    @GetMapping
+    public ResponseEntity<List<SloWindowReport>> getLocalWindows(@RequestParam(defaultValue = "5") long minutes) {
+        if (!sloQueryService.isQueryable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(sloQueryService.getLocalWindows(since(minutes)));
+    }
+
+    private static Instant since(long minutes) {
+        return Instant.now().minus(Duration.ofMinutes(Math.max(1, minutes)));
+    }
+}
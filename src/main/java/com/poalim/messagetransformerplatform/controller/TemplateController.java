@@ -0,0 +1,131 @@
+package com.poalim.messagetransformerplatform.controller;
+
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.MessageTemplate;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.service.AdmissionControlService;
+import com.poalim.messagetransformerplatform.service.MessageTransformerService;
+import com.poalim.messagetransformerplatform.service.TemplateSynthesisService;
+import com.poalim.messagetransformerplatform.service.VirtualThreadPipelineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/templates")
+@RequiredArgsConstructor
+public class TemplateController {
+
+    private final TemplateSynthesisService templateSynthesisService;
+    private final MessageTransformerService messageTransformerService;
+    private final VirtualThreadPipelineService virtualThreadPipelineService;
+    private final PipelineProperties pipelineProperties;
+    private final AdmissionControlService admissionControlService;
+
+    /**
+     * Register a notification template
+     * <p>
+     * Placeholders are written as {@code {name}}. Templates cannot be changed once registered, since
+     * their static segments are cached as audio; register a new ID instead.
+     *
+     * @param request The template ID and text
+     * @return The registered template, 400 if the ID or text is missing, or 409 if the ID is taken
+     */
+    @PostMapping
+    public Mono<ResponseEntity<MessageTemplate>> registerTemplate(@RequestBody Map<String, String> request) {
+        String templateId = request.get("id");
+        String text = request.get("text");
+        if (templateId == null || templateId.isBlank() || text == null || text.isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return templateSynthesisService.registerTemplate(templateId, text)
+                .map(template -> ResponseEntity.status(HttpStatus.CREATED).body(template))
+                .onErrorResume(DuplicateKeyException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    /**
+     * Get a template by ID
+     *
+     * @param templateId The template ID
+     * @return The template, or 404 if none is registered under the ID
+     */
+    @GetMapping("/{templateId}")
+    public Mono<ResponseEntity<MessageTemplate>> getTemplate(@PathVariable String templateId) {
+        return templateSynthesisService.getTemplate(templateId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Submit a message built from a template for conversion to speech
+     * <p>
+     * Dispatched like {@code POST /api/v1/messages/text-to-speech}. Template audio is joined from
+     * separately synthesized segments, so only formats that can be joined are negotiated.
+     *
+     * @param templateId The template ID
+     * @param request The {@code variables} object, and optional {@code requestedBy} and {@code format}
+     * @return The created voice message, 404 if the template is unknown, 400 if a variable is
+     *         missing or none of the requested formats is available and joinable, or 429 if the submission was shed
+     */
+    @PostMapping("/{templateId}/messages")
+    public Mono<ResponseEntity<VoiceMessage>> submitTemplateMessage(@PathVariable String templateId,
+                                                                    @RequestBody TemplateMessageRequest request) {
+        AudioFormat format;
+        try {
+            format = templateSynthesisService.negotiateFormat(request.format());
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        String requestedBy = request.requestedBy() != null ? request.requestedBy() : "anonymous";
+        Map<String, String> variables = request.variables() != null ? request.variables() : Map.of();
+
+        return templateSynthesisService.getTemplate(templateId)
+                .flatMap(template -> {
+                    VoiceMessage message;
+                    try {
+                        message = messageTransformerService.newTemplateMessage(template, variables, requestedBy, format);
+                    } catch (IllegalArgumentException e) {
+                        return Mono.just(ResponseEntity.badRequest().<VoiceMessage>build());
+                    }
+
+                    AdmissionControlService.Permit permit =
+                            admissionControlService.tryAdmit(requestedBy, message.getOriginalText());
+                    if (!permit.isAdmitted()) {
+                        return Mono.just(MessageController.<VoiceMessage>tooManyRequests(permit));
+                    }
+
+                    return submit(message)
+                            .doFinally(signal -> permit.release());
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private Mono<ResponseEntity<VoiceMessage>> submit(VoiceMessage message) {
+        if (pipelineProperties.isAsyncEnabled()) {
+            return messageTransformerService.submitNewMessage(message)
+                    .map(saved -> saved.getStatus() == MessageStatus.FAILED
+                            ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(saved)
+                            : ResponseEntity.accepted().body(saved));
+        }
+
+        if (pipelineProperties.getExecutionMode() == PipelineProperties.ExecutionMode.VIRTUAL_THREADS) {
+            return virtualThreadPipelineService.processNewMessage(message)
+                    .map(ResponseEntity::ok);
+        }
+
+        return messageTransformerService.processNewMessage(message)
+                .map(ResponseEntity::ok);
+    }
+
+    record TemplateMessageRequest(Map<String, String> variables, String requestedBy, String format) {
+    }
+}
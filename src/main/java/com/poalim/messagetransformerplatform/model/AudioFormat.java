@@ -0,0 +1,110 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Audio encodings the TTS provider can produce, with the metadata needed to store and serve them
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AudioFormat {
+
+    MP3("mp3", "mp3", "audio/mpeg", true),
+    OPUS("opus", "opus", "audio/ogg", false), // Ogg container; compact, suited to mobile clients
+    AAC("aac", "aac", "audio/aac", true), // ADTS frames, self-contained like MP3
+    FLAC("flac", "flac", "audio/flac", false),
+    WAV("wav", "wav", "audio/wav", false),
+    PCM("pcm", "pcm", "audio/L16", true); // Raw 24kHz 16-bit samples, no header
+
+    private final String responseFormat; // Value of the provider's response_format parameter
+    private final String extension;
+    private final String contentType;
+    private final boolean stitchable; // Independently encoded segments can be joined by concatenation
+
+    /**
+     * Resolve a format from its name, file extension or MIME type
+     *
+     * @param value The requested format, e.g. "opus" or "audio/mpeg"
+     * @return The format
+     * @throws IllegalArgumentException If the value names no supported format
+     */
+    public static AudioFormat fromValue(String value) {
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (AudioFormat format : values()) {
+            if (format.responseFormat.equals(normalized) || format.extension.equals(normalized)
+                    || format.contentType.equalsIgnoreCase(normalized)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported audio format: " + value);
+    }
+
+    /**
+     * Resolve the format recorded in a message's content type
+     *
+     * @param contentType The MIME type, may be null for messages accepted before formats were selectable
+     * @return The format, MP3 when the content type is unset or unknown
+     */
+    public static AudioFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            for (AudioFormat format : values()) {
+                if (format.contentType.equalsIgnoreCase(contentType)) {
+                    return format;
+                }
+            }
+        }
+        return MP3;
+    }
+
+    /**
+     * Pick the first acceptable format from a caller's preference list
+     *
+     * @param preferences Comma-separated formats in order of preference, e.g. "opus,aac"; may be null or blank
+     * @param enabled The formats the service currently produces
+     * @param fallback The format used when the caller expressed no preference
+     * @return The negotiated format
+     * @throws IllegalArgumentException If none of the preferred formats is supported and enabled
+     */
+    public static AudioFormat negotiate(String preferences, Set<AudioFormat> enabled, AudioFormat fallback) {
+        if (preferences == null || preferences.isBlank()) {
+            return fallback;
+        }
+        for (String preference : preferences.split(",")) {
+            try {
+                AudioFormat format = fromValue(preference);
+                if (enabled.contains(format)) {
+                    return format;
+                }
+            } catch (IllegalArgumentException e) {
+                // Unknown entries are skipped so clients can list formats newer than this service
+            }
+        }
+        throw new IllegalArgumentException("None of the requested audio formats is available: " + preferences);
+    }
+
+    /**
+     * Pick the first acceptable format audio joined from separately synthesized segments can be stored in
+     * <p>
+     * Only stitchable formats are considered. When the caller expressed no preference and the fallback
+     * cannot be joined, the first enabled stitchable format is used instead.
+     *
+     * @param preferences Comma-separated formats in order of preference, e.g. "opus,aac"; may be null or blank
+     * @param enabled The formats the service currently produces
+     * @param fallback The format used when the caller expressed no preference
+     * @return The negotiated format
+     * @throws IllegalArgumentException If none of the preferred formats is stitchable, supported and enabled
+     */
+    public static AudioFormat negotiateStitchable(String preferences, Set<AudioFormat> enabled, AudioFormat fallback) {
+        Set<AudioFormat> stitchable = EnumSet.noneOf(AudioFormat.class);
+        enabled.stream().filter(AudioFormat::isStitchable).forEach(stitchable::add);
+        if (stitchable.isEmpty()) {
+            throw new IllegalArgumentException("No stitchable audio format is enabled");
+        }
+        return negotiate(preferences, stitchable, stitchable.contains(fallback) ? fallback : stitchable.iterator().next());
+    }
+}
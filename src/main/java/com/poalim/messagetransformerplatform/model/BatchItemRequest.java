@@ -0,0 +1,20 @@
+package com.poalim.messagetransformerplatform.model;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemRequest {
+
+    @NotBlank
+    private String text;
+    private String requestedBy;
+    private String format; // Optional comma-separated audio format preferences, e.g. "opus,aac"
+    private String clientReference; // Optional caller-side correlation ID, echoed back in the result
+}
@@ -0,0 +1,23 @@
+package com.poalim.messagetransformerplatform.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    private Long index; // Position of the item in the submitted batch
+    private String clientReference;
+    private String messageId;
+    private MessageStatus status;
+    private String s3ObjectKey;
+    private String errorMessage;
+    private Long retryAfterSeconds; // Set when the item was shed; it may be resubmitted after this delay
+}
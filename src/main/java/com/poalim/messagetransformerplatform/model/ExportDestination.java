@@ -0,0 +1,6 @@
+package com.poalim.messagetransformerplatform.model;
+
+public enum ExportDestination {
+    FILE, // Archive parts stay in the export directory of the instance running the job
+    S3 // Archive parts are uploaded to the audio bucket and removed locally
+}
@@ -0,0 +1,49 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "export_jobs")
+public class ExportJob {
+
+    @Id
+    private String id;
+
+    // Completed messages created in [createdFrom, createdTo) are exported, newest first
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+    private ExportDestination destination;
+    private String requestedBy;
+
+    private ExportJobStatus status;
+    private String errorMessage;
+    private String runId; // Identifies the run holding the job's lease; claiming the job replaces it
+
+    // Progress; counts cover closed parts only, plus the open part while the job runs on this instance
+    private Long totalMessages; // Matching messages when the job last started
+    private long messagesExported;
+    private long messagesFailed; // Listed in the manifest with an error instead of audio
+    private long bytesExported;
+
+    // Checkpoint: the last message of the last closed part; a resumed job seeks past it
+    private LocalDateTime checkpointCreatedAt;
+    private String checkpointMessageId;
+    @Builder.Default
+    private List<String> parts = new ArrayList<>(); // File paths or S3 object keys of closed parts, in order
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,8 @@
+package com.poalim.messagetransformerplatform.model;
+
+public enum ExportJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    INTERRUPTED // Stopped by an instance shutdown; resumable like FAILED
+}
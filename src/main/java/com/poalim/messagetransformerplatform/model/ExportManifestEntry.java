@@ -0,0 +1,31 @@
+package com.poalim.messagetransformerplatform.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of an export part's {@code manifest.ndjson}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportManifestEntry {
+
+    private String messageId;
+    private LocalDateTime createdAt;
+    private String requestedBy;
+    private String s3ObjectKey;
+    private String contentType;
+
+    private String entryName; // Path of the audio inside the archive; absent if the audio could not be fetched
+    private Long sizeBytes;
+    private String checksumSha256;
+    private String errorMessage;
+}
@@ -0,0 +1,22 @@
+package com.poalim.messagetransformerplatform.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a streamed message listing: either a message, or the continuation token that ends a
+ * page with more results after it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageListingLine {
+
+    private VoiceMessage message;
+    private String continuationToken;
+}
@@ -0,0 +1,27 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "message_templates")
+public class MessageTemplate {
+
+    @Id
+    private String id;
+
+    private String text; // Static text with {name} placeholders, e.g. "Your account ending {account} was charged {amount}"
+    private List<String> variables; // Placeholder names in order of appearance
+
+    private LocalDateTime createdAt;
+}
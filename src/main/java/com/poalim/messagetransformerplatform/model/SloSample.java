@@ -0,0 +1,20 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * End-to-end outcome of one message, from its RECEIVED event to its COMPLETED or FAILED event
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SloSample {
+
+    private String requestedBy;
+    private long latencyMs;
+    private boolean failed;
+}
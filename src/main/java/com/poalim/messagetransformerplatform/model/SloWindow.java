@@ -0,0 +1,81 @@
+package com.poalim.messagetransformerplatform.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+/**
+ * Per-requester aggregate of the messages that finished within one time window.
+ * <p>
+ * Latencies go into log-scaled buckets, each {@value #BUCKET_GROWTH}x wider than the last, so windows
+ * stay small and percentiles are reported to within one bucket's width.
+ */
+@Data
+public class SloWindow {
+
+    private static final double FIRST_BUCKET_MS = 10;
+    private static final double BUCKET_GROWTH = 1.2;
+    private static final int BUCKET_COUNT = 72; // Last bounded bucket ends past one hour
+
+    private long count;
+    private long failures;
+    private long latencySumMs;
+    private long maxLatencyMs;
+    private long[] latencyBuckets = new long[BUCKET_COUNT + 1]; // The extra bucket holds anything slower
+
+    /**
+     * Add a finished message to the window
+     *
+     * @param sample The message's outcome
+     * @return This window
+     */
+    public SloWindow add(SloSample sample) {
+        count++;
+        if (sample.isFailed()) {
+            failures++;
+        }
+        latencySumMs += sample.getLatencyMs();
+        maxLatencyMs = Math.max(maxLatencyMs, sample.getLatencyMs());
+        latencyBuckets[bucketOf(sample.getLatencyMs())]++;
+        return this;
+    }
+
+    /**
+     * Estimate a latency percentile
+     *
+     * @param quantile The quantile, between 0 and 1
+     * @return The upper bound of the bucket holding the quantile, capped at the largest latency seen
+     */
+    public long latencyPercentileMs(double quantile) {
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < latencyBuckets.length; bucket++) {
+            seen += latencyBuckets[bucket];
+            if (seen >= rank && seen > 0) {
+                return bucket < BUCKET_COUNT ? Math.min(upperBoundMs(bucket), maxLatencyMs) : maxLatencyMs;
+            }
+        }
+        return 0;
+    }
+
+    @JsonIgnore
+    public double getFailureRate() {
+        return count == 0 ? 0 : (double) failures / count;
+    }
+
+    @JsonIgnore
+    public long getMeanLatencyMs() {
+        return count == 0 ? 0 : latencySumMs / count;
+    }
+
+    private static int bucketOf(long latencyMs) {
+        if (latencyMs <= FIRST_BUCKET_MS) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log(latencyMs / FIRST_BUCKET_MS) / Math.log(BUCKET_GROWTH));
+        return Math.min(bucket, BUCKET_COUNT);
+    }
+
+    private static long upperBoundMs(int bucket) {
+        return (long) Math.ceil(FIRST_BUCKET_MS * Math.pow(BUCKET_GROWTH, bucket));
+    }
+}
@@ -0,0 +1,31 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SloWindowReport {
+
+    private String requestedBy;
+    private Instant windowStart;
+    private Instant windowEnd;
+
+    private long finished; // Messages that reached COMPLETED or FAILED within the window
+    private double throughputPerMinute;
+    private long failures;
+    private double failureRate;
+
+    // End-to-end latency from RECEIVED to COMPLETED or FAILED
+    private long latencyP50Ms;
+    private long latencyP95Ms;
+    private long latencyP99Ms;
+    private long latencyMeanMs;
+    private long latencyMaxMs;
+}
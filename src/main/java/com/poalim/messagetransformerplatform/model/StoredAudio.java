@@ -0,0 +1,28 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredAudio {
+
+    private String s3BucketName;
+    private String s3ObjectKey;
+    private String contentType;
+    private Long fileSizeBytes;
+    private String checksumSha256;
+
+    // Long-text mode: number of synthesized chunks and how long each took
+    private Integer chunkCount;
+    private List<Long> chunkDurationsMs;
+
+    // Whether the audio was served from the synthesis cache instead of a fresh TTS call
+    private boolean cacheHit;
+}
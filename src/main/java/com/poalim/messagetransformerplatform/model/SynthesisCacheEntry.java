@@ -0,0 +1,33 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "synthesis_cache")
+public class SynthesisCacheEntry {
+
+    @Id
+    private String id; // Hash of (normalized text, model, voice, format)
+
+    private String s3BucketName;
+    private String s3ObjectKey;
+    private String contentType;
+    private Long fileSizeBytes;
+    private String checksumSha256;
+
+    private String model;
+    private String voice;
+    private String format;
+
+    private LocalDateTime createdAt;
+}
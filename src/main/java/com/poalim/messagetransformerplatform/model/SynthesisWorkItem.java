@@ -0,0 +1,19 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SynthesisWorkItem {
+
+    private String messageId;
+    private String requestedBy;
+    private LocalDateTime enqueuedAt;
+}
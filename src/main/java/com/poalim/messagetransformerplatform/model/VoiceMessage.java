@@ -5,15 +5,25 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "voice_messages")
+// Listings page newest first on (createdAt, _id); the trailing _id keeps the keyset sort fully indexed
+@CompoundIndexes({
+        @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "requestedBy_createdAt", def = "{'requestedBy': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "createdAt", def = "{'createdAt': -1, '_id': -1}")
+})
 public class VoiceMessage {
 
     @Id
@@ -28,6 +38,13 @@ public class VoiceMessage {
     }
     private String contentType;
     private Long fileSizeBytes;
+    private String checksumSha256;
+    private Boolean cacheHit; // Audio was reused from the synthesis cache
+
+    // Long-text mode: number of synthesized chunks and how long each took
+    private Integer chunkCount;
+    private List<Long> chunkDurationsMs;
+    private Map<String, Long> stageDurationsMs; // Pipeline stage -> milliseconds, up to completion; keys must not contain dots
 
     private MessageStatus status;
     private String errorMessage;
@@ -39,4 +56,8 @@ public class VoiceMessage {
     // Additional metadata fields
     private String requestedBy;
     private String voiceType; // Could be used for different voice types if supported by LLM
+
+    // Template messages: static segments are synthesized once per template, only the variables per message
+    private String templateId;
+    private Map<String, String> templateVariables;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.poalim.messagetransformerplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoiceMessageFilter {
+
+    // All fields are optional; unset fields do not constrain the listing
+    private MessageStatus status;
+    private String requestedBy;
+    private LocalDateTime createdFrom; // Inclusive
+    private LocalDateTime createdTo; // Exclusive
+}
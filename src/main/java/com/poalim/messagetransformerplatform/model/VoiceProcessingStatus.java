@@ -21,4 +21,5 @@ public class VoiceProcessingStatus {
     // Additional fields that might be useful
     private String s3BucketName;
     private String s3ObjectKey;
+    private String requestedBy;
 }
\ No newline at end of file
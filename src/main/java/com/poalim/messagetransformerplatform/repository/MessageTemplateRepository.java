@@ -0,0 +1,9 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.MessageTemplate;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageTemplateRepository extends ReactiveMongoRepository<MessageTemplate, String> {
+}
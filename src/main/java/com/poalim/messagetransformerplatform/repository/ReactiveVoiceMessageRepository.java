@@ -0,0 +1,13 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking access to voice messages, used by the processing pipeline.
+ */
+@Repository
+public interface ReactiveVoiceMessageRepository extends ReactiveMongoRepository<VoiceMessage, String>,
+        VoiceMessageListingRepository, VoiceMessageClaimRepository {
+}
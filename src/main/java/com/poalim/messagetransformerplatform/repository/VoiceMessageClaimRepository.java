@@ -0,0 +1,24 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Atomic hand-over of voice messages to a synthesis worker.
+ */
+public interface VoiceMessageClaimRepository {
+
+    /**
+     * Move a message to PROCESSING unless another worker holds it or it is already completed
+     * <p>
+     * RECEIVED and FAILED messages are claimable, as are PROCESSING messages last updated before
+     * {@code abandonedBefore}, whose worker is assumed to have died.
+     *
+     * @param messageId The message ID
+     * @param abandonedBefore Claims last updated before this time are taken over
+     * @return The claimed message in PROCESSING status, or empty if it is missing or not claimable
+     */
+    Mono<VoiceMessage> claimForProcessing(String messageId, LocalDateTime abandonedBefore);
+}
@@ -0,0 +1,32 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+class VoiceMessageClaimRepositoryImpl implements VoiceMessageClaimRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<VoiceMessage> claimForProcessing(String messageId, LocalDateTime abandonedBefore) {
+        Query query = Query.query(Criteria.where("_id").is(messageId).orOperator(
+                Criteria.where("status").in(MessageStatus.RECEIVED, MessageStatus.FAILED),
+                Criteria.where("status").is(MessageStatus.PROCESSING).and("updatedAt").lt(abandonedBefore)));
+        Update update = new Update()
+                .set("status", MessageStatus.PROCESSING)
+                .set("updatedAt", LocalDateTime.now());
+
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                VoiceMessage.class);
+    }
+}
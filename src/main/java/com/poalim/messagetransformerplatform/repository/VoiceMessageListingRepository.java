@@ -0,0 +1,33 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset-paginated listing of voice messages, newest first.
+ */
+public interface VoiceMessageListingRepository {
+
+    /**
+     * Stream one page of messages ordered by creation time then ID, both descending
+     *
+     * @param filter Constraints on the listed messages
+     * @param afterCreatedAt Creation time of the last message of the previous page, or null for the first page
+     * @param afterId ID of the last message of the previous page, or null for the first page
+     * @param limit The maximum number of messages to return
+     * @return The messages, streamed from the database cursor
+     */
+    Flux<VoiceMessage> findPage(VoiceMessageFilter filter, LocalDateTime afterCreatedAt, String afterId, int limit);
+
+    /**
+     * Count the messages a listing would return across all pages
+     *
+     * @param filter Constraints on the counted messages
+     * @return The number of matching messages
+     */
+    Mono<Long> countMatching(VoiceMessageFilter filter);
+}
@@ -0,0 +1,69 @@
+package com.poalim.messagetransformerplatform.repository;
+
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class VoiceMessageListingRepositoryImpl implements VoiceMessageListingRepository {
+
+    private static final int MAX_CURSOR_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<VoiceMessage> findPage(VoiceMessageFilter filter, LocalDateTime afterCreatedAt, String afterId, int limit) {
+        List<Criteria> criteria = filterCriteria(filter);
+        if (afterCreatedAt != null && afterId != null) {
+            // Seek past the previous page instead of skipping over it, so every page costs the same
+            criteria.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(afterCreatedAt),
+                    new Criteria().andOperator(
+                            Criteria.where("createdAt").is(afterCreatedAt),
+                            Criteria.where("_id").lt(afterId))));
+        }
+
+        Query query = new Query(combine(criteria))
+                .with(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id")))
+                .limit(limit)
+                .cursorBatchSize(Math.min(limit, MAX_CURSOR_BATCH_SIZE));
+
+        return reactiveMongoTemplate.find(query, VoiceMessage.class);
+    }
+
+    @Override
+    public Mono<Long> countMatching(VoiceMessageFilter filter) {
+        return reactiveMongoTemplate.count(new Query(combine(filterCriteria(filter))), VoiceMessage.class);
+    }
+
+    private static List<Criteria> filterCriteria(VoiceMessageFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            criteria.add(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getRequestedBy() != null) {
+            criteria.add(Criteria.where("requestedBy").is(filter.getRequestedBy()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            criteria.add(Criteria.where("createdAt").gte(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            criteria.add(Criteria.where("createdAt").lt(filter.getCreatedTo()));
+        }
+        return criteria;
+    }
+
+    private static Criteria combine(List<Criteria> criteria) {
+        return criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria);
+    }
+}
@@ -6,14 +6,20 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.stream.Stream;
 
+/**
+ * Blocking access to voice messages.
+ * <p>
+ * Finder results are backed by a database cursor and must be closed; listings meant for clients go
+ * through {@link ReactiveVoiceMessageRepository#findPage} instead.
+ */
 @Repository
 public interface VoiceMessageRepository extends MongoRepository<VoiceMessage, String> {
 
-    List<VoiceMessage> findByStatus(MessageStatus status);
+    Stream<VoiceMessage> findByStatusOrderByCreatedAtDesc(MessageStatus status);
 
-    List<VoiceMessage> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+    Stream<VoiceMessage> findByCreatedAtBetweenOrderByCreatedAtDesc(LocalDateTime start, LocalDateTime end);
 
-    List<VoiceMessage> findByRequestedBy(String requestedBy);
+    Stream<VoiceMessage> findByRequestedByOrderByCreatedAtDesc(String requestedBy);
 }
\ No newline at end of file
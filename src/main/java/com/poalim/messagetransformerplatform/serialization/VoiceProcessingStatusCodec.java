@@ -0,0 +1,237 @@
+package com.poalim.messagetransformerplatform.serialization;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Compact, schema-versioned binary encoding of {@link VoiceProcessingStatus}.
+ * <p>
+ * Layout (version 1):
+ * <pre>
+ * byte    version
+ * byte    presence flags (see FLAG_* constants)
+ * [16]    message ID as UUID, or varint length + UTF-8 when not a UUID
+ * byte    status ordinal
+ * long    timestamp, epoch millis in UTC
+ * [n]     error message, bucket name, object key and requester as varint length + UTF-8, when present
+ * </pre>
+ * Every bit of the flags byte is taken, so a further field needs a new version, which decoders that
+ * predate it reject rather than misread.
+ */
+public final class VoiceProcessingStatusCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final int FLAG_MESSAGE_ID = 1;
+    private static final int FLAG_MESSAGE_ID_UUID = 1 << 1;
+    private static final int FLAG_STATUS = 1 << 2;
+    private static final int FLAG_TIMESTAMP = 1 << 3;
+    private static final int FLAG_ERROR_MESSAGE = 1 << 4;
+    private static final int FLAG_BUCKET_NAME = 1 << 5;
+    private static final int FLAG_OBJECT_KEY = 1 << 6;
+    private static final int FLAG_REQUESTED_BY = 1 << 7;
+
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+
+    private VoiceProcessingStatusCodec() {
+    }
+
+    /**
+     * Encode a status event
+     *
+     * @param status The status event
+     * @return The encoded bytes
+     */
+    public static byte[] encode(VoiceProcessingStatus status) {
+        UUID messageUuid = parseUuid(status.getMessageId());
+        byte[] messageId = status.getMessageId() != null && messageUuid == null ? utf8(status.getMessageId()) : null;
+        byte[] errorMessage = utf8(status.getErrorMessage());
+        byte[] bucketName = utf8(status.getS3BucketName());
+        byte[] objectKey = utf8(status.getS3ObjectKey());
+        byte[] requestedBy = utf8(status.getRequestedBy());
+
+        int flags = 0;
+        int size = 2;
+        if (status.getMessageId() != null) {
+            flags |= FLAG_MESSAGE_ID;
+            if (messageUuid != null) {
+                flags |= FLAG_MESSAGE_ID_UUID;
+                size += 16;
+            } else {
+                size += stringSize(messageId);
+            }
+        }
+        if (status.getStatus() != null) {
+            flags |= FLAG_STATUS;
+            size += 1;
+        }
+        if (status.getTimestamp() != null) {
+            flags |= FLAG_TIMESTAMP;
+            size += 8;
+        }
+        if (errorMessage != null) {
+            flags |= FLAG_ERROR_MESSAGE;
+            size += stringSize(errorMessage);
+        }
+        if (bucketName != null) {
+            flags |= FLAG_BUCKET_NAME;
+            size += stringSize(bucketName);
+        }
+        if (objectKey != null) {
+            flags |= FLAG_OBJECT_KEY;
+            size += stringSize(objectKey);
+        }
+        if (requestedBy != null) {
+            flags |= FLAG_REQUESTED_BY;
+            size += stringSize(requestedBy);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION_1);
+        buffer.put((byte) flags);
+        if (messageUuid != null) {
+            buffer.putLong(messageUuid.getMostSignificantBits());
+            buffer.putLong(messageUuid.getLeastSignificantBits());
+        } else if (messageId != null) {
+            putString(buffer, messageId);
+        }
+        if (status.getStatus() != null) {
+            buffer.put((byte) status.getStatus().ordinal());
+        }
+        if (status.getTimestamp() != null) {
+            buffer.putLong(status.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        if (errorMessage != null) {
+            putString(buffer, errorMessage);
+        }
+        if (bucketName != null) {
+            putString(buffer, bucketName);
+        }
+        if (objectKey != null) {
+            putString(buffer, objectKey);
+        }
+        if (requestedBy != null) {
+            putString(buffer, requestedBy);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a status event
+     *
+     * @param data The encoded bytes
+     * @return The status event
+     * @throws IllegalArgumentException if the data is truncated, or uses an unknown version or status
+     */
+    public static VoiceProcessingStatus decode(byte[] data) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            byte version = buffer.get();
+            if (version != VERSION_1) {
+                throw new IllegalArgumentException("Unsupported status codec version: " + version);
+            }
+            int flags = buffer.get() & 0xFF;
+
+            VoiceProcessingStatus.VoiceProcessingStatusBuilder status = VoiceProcessingStatus.builder();
+            if ((flags & FLAG_MESSAGE_ID) != 0) {
+                status.messageId((flags & FLAG_MESSAGE_ID_UUID) != 0
+                        ? new UUID(buffer.getLong(), buffer.getLong()).toString()
+                        : getString(buffer));
+            }
+            if ((flags & FLAG_STATUS) != 0) {
+                int ordinal = buffer.get() & 0xFF;
+                if (ordinal >= STATUSES.length) {
+                    throw new IllegalArgumentException("Unknown message status ordinal: " + ordinal);
+                }
+                status.status(STATUSES[ordinal]);
+            }
+            if ((flags & FLAG_TIMESTAMP) != 0) {
+                status.timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC));
+            }
+            if ((flags & FLAG_ERROR_MESSAGE) != 0) {
+                status.errorMessage(getString(buffer));
+            }
+            if ((flags & FLAG_BUCKET_NAME) != 0) {
+                status.s3BucketName(getString(buffer));
+            }
+            if ((flags & FLAG_OBJECT_KEY) != 0) {
+                status.s3ObjectKey(getString(buffer));
+            }
+            if ((flags & FLAG_REQUESTED_BY) != 0) {
+                status.requestedBy(getString(buffer));
+            }
+            return status.build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed status event", e);
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            // Only use the compact form when it round-trips to the exact same string
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] value) {
+        return varIntSize(value.length) + value.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        int length = value.length;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Malformed string length");
+            }
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed string length: " + length);
+        }
+
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
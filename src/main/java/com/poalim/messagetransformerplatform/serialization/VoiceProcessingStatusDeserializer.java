@@ -0,0 +1,38 @@
+package com.poalim.messagetransformerplatform.serialization;
+
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Kafka deserializer for {@link VoiceProcessingStatus}.
+ * <p>
+ * Reads the compact binary format, and falls back to JSON for records that start with '{' so
+ * consumers keep working while producers are being switched over.
+ */
+public class VoiceProcessingStatusDeserializer implements Deserializer<VoiceProcessingStatus> {
+
+    private final JsonDeserializer<VoiceProcessingStatus> jsonDeserializer =
+            new JsonDeserializer<>(VoiceProcessingStatus.class, false);
+
+    @Override
+    public VoiceProcessingStatus deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] == '{') {
+            return jsonDeserializer.deserialize(topic, data);
+        }
+        try {
+            return VoiceProcessingStatusCodec.decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Failed to decode voice processing status", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.poalim.messagetransformerplatform.serialization;
+
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing {@link VoiceProcessingStatus} in the compact binary format.
+ */
+public class VoiceProcessingStatusSerializer implements Serializer<VoiceProcessingStatus> {
+
+    @Override
+    public byte[] serialize(String topic, VoiceProcessingStatus status) {
+        return status != null ? VoiceProcessingStatusCodec.encode(status) : null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a submission is admitted or shed.
+ * <p>
+ * Three signals are checked: submissions in flight on this instance, the text bytes they carry, and
+ * a moving average of a pipeline stage's latency, sampled from the {@value PipelineInstrumentation#OBSERVATION_NAME}
+ * timers. Past any threshold new submissions are rejected at once with a retry delay scaled by how
+ * far the worst signal is over its limit. Priority requesters are always admitted.
+ */
+@Service
+public class AdmissionControlService {
+
+    private final AdmissionControlProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    // Stage latency moving average, updated at most once per sample interval
+    private final Object sampleLock = new Object();
+    private volatile long stageLatencyNanos;
+    private volatile long lastSampleNanos;
+    private long lastStageCount;
+    private double lastStageTotalNanos;
+
+    public AdmissionControlService(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.lastSampleNanos = System.nanoTime();
+
+        meterRegistry.gauge("admission.in.flight", inFlight);
+        meterRegistry.gauge("admission.pending.bytes", pendingBytes);
+        meterRegistry.gauge("admission.stage.latency", this,
+                service -> (double) service.stageLatencyNanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Try to admit a submission
+     *
+     * @param requestedBy Who submitted the message
+     * @param text The text to convert to speech
+     * @return A permit; when admitted it must be released once the submission has been handled
+     */
+    public Permit tryAdmit(String requestedBy, String text) {
+        long bytes = text != null ? text.getBytes(StandardCharsets.UTF_8).length : 0;
+        if (!properties.isEnabled()) {
+            return new Permit(null, 0, true, null);
+        }
+
+        sampleStageLatency();
+        int inFlightNow = inFlight.incrementAndGet();
+        long pendingBytesNow = pendingBytes.addAndGet(bytes);
+
+        double inFlightPressure = (double) inFlightNow / properties.getMaxInFlight();
+        double bytesPressure = (double) pendingBytesNow / properties.getMaxPendingBytes();
+        double latencyPressure = (double) stageLatencyNanos / properties.getMaxStageLatency().toNanos();
+        double pressure = Math.max(inFlightPressure, Math.max(bytesPressure, latencyPressure));
+
+        if (pressure <= 1.0) {
+            record("admitted", "none");
+            return new Permit(this, bytes, true, null);
+        }
+
+        String reason = pressure == inFlightPressure ? "in-flight" : pressure == bytesPressure ? "pending-bytes" : "latency";
+        if (requestedBy != null && properties.getPriorityRequesters().contains(requestedBy)) {
+            record("bypassed", reason);
+            return new Permit(this, bytes, true, null);
+        }
+
+        release(bytes);
+        record("shed", reason);
+        return new Permit(null, 0, false, retryAfter(pressure));
+    }
+
+    /**
+     * How long a shed caller should wait before retrying
+     * <p>
+     * The recent stage latency approximates how long the work in flight takes to drain, and is scaled
+     * by how overloaded the instance is.
+     */
+    private Duration retryAfter(double pressure) {
+        long minNanos = properties.getMinRetryAfter().toNanos();
+        long nanos = (long) (Math.max(stageLatencyNanos, minNanos) * pressure);
+        nanos = Math.min(Math.max(nanos, minNanos), properties.getMaxRetryAfter().toNanos());
+        // Retry-After is given in whole seconds, so round up
+        return Duration.ofSeconds((nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void sampleStageLatency() {
+        long now = System.nanoTime();
+        if (now - lastSampleNanos < properties.getLatencySampleInterval().toNanos()) {
+            return;
+        }
+        synchronized (sampleLock) {
+            if (now - lastSampleNanos < properties.getLatencySampleInterval().toNanos()) {
+                return;
+            }
+            lastSampleNanos = now;
+
+            long count = 0;
+            double totalNanos = 0;
+            for (Timer timer : meterRegistry.find(PipelineInstrumentation.OBSERVATION_NAME)
+                    .tag("stage", properties.getLatencyStage())
+                    .timers()) {
+                count += timer.count();
+                totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            }
+
+            long completed = count - lastStageCount;
+            double weight = properties.getLatencySmoothing();
+            if (completed > 0) {
+                long sample = (long) ((totalNanos - lastStageTotalNanos) / completed);
+                stageLatencyNanos = stageLatencyNanos == 0
+                        ? sample : (long) (weight * sample + (1 - weight) * stageLatencyNanos);
+            } else if (inFlight.get() == 0) {
+                // Nothing left to measure, so let a stale average fade instead of shedding forever
+                stageLatencyNanos = (long) ((1 - weight) * stageLatencyNanos);
+            }
+            lastStageCount = count;
+            lastStageTotalNanos = totalNanos;
+        }
+    }
+
+    private void release(long bytes) {
+        inFlight.decrementAndGet();
+        pendingBytes.addAndGet(-bytes);
+    }
+
+    private void record(String result, String reason) {
+        meterRegistry.counter("admission.decisions", "result", result, "reason", reason).increment();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The outcome of an admission decision
+     */
+    public static final class Permit {
+
+        private final AdmissionControlService owner; // Null when no capacity is held
+        private final long bytes;
+        @Getter
+        private final boolean admitted;
+        @Getter
+        private final Duration retryAfter; // Set when shed
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdmissionControlService owner, long bytes, boolean admitted, Duration retryAfter) {
+            this.owner = owner;
+            this.bytes = bytes;
+            this.admitted = admitted;
+            this.retryAfter = retryAfter;
+        }
+
+        /**
+         * Return the capacity held by an admitted submission; safe to call more than once
+         */
+        public void release() {
+            if (owner != null && released.compareAndSet(false, true)) {
+                owner.release(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AudioDiskCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded on-disk cache of hot audio objects, evicted least recently used first.
+ * <p>
+ * Files are named by a hash of their S3 object key, so the index can be rebuilt from the directory
+ * after a restart. Concurrent misses for the same object share one download. Every file handed out
+ * is pinned until its caller releases it, and pinned files are never evicted, so a file cannot vanish
+ * between being returned and being opened. An object larger than the whole cache is still served and
+ * stays on disk until an insertion after its release pushes it out.
+ */
+@Service
+@Slf4j
+public class AudioDiskCacheService {
+
+    private static final String FILE_SUFFIX = ".audio";
+
+    private final S3StorageService s3StorageService;
+    private final AudioDiskCacheProperties cacheProperties;
+
+    // File name -> size in bytes, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // File name -> number of callers that have not released it yet
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+
+    private Path directory;
+
+    public AudioDiskCacheService(S3StorageService s3StorageService,
+                                 AudioDiskCacheProperties cacheProperties,
+                                 MeterRegistry meterRegistry) {
+        this.s3StorageService = s3StorageService;
+        this.cacheProperties = cacheProperties;
+
+        this.hits = meterRegistry.counter("audio.disk.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("audio.disk.cache.requests", "result", "miss");
+        // Waiters on another request's download are neither served from disk nor trigger a download
+        this.coalesced = meterRegistry.counter("audio.disk.cache.requests", "result", "coalesced");
+        this.evictions = meterRegistry.counter("audio.disk.cache.evictions");
+        Gauge.builder("audio.disk.cache.size.bytes", this, AudioDiskCacheService::getTotalBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("audio.disk.cache.hit.ratio", this, AudioDiskCacheService::hitRatio)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void loadExistingEntries() throws IOException {
+        directory = Path.of(cacheProperties.getDirectory());
+        Files.createDirectories(directory);
+
+        // Re-index files left by a previous run, oldest access first
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing(AudioDiskCacheService::lastAccess))
+                    .toList();
+        }
+        synchronized (entries) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                totalBytes += size;
+            }
+            evictOverflow();
+        }
+        log.info("Audio disk cache ready: directory={}, entries={}, size={} bytes", directory, files.size(), totalBytes);
+    }
+
+    /**
+     * Get a local file holding the audio object, downloading it from S3 on a miss
+     *
+     * @param objectKey The S3 object key
+     * @return The cached file, pinned until it is released
+     */
+    public CachedAudio getOrFetch(String objectKey) {
+        String fileName = fileNameFor(objectKey);
+        Path file = directory.resolve(fileName);
+
+        synchronized (entries) {
+            if (entries.get(fileName) != null && Files.exists(file)) {
+                hits.increment();
+                return pin(fileName, file);
+            }
+        }
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(fileName, download);
+        if (existing != null) {
+            coalesced.increment();
+            existing.join();
+            synchronized (entries) {
+                if (entries.containsKey(fileName)) {
+                    return pin(fileName, file);
+                }
+            }
+            // Evicted by other insertions before this waiter could pin it
+            return getOrFetch(objectKey);
+        }
+
+        misses.increment();
+        try {
+            Path tempFile = directory.resolve(fileName + ".part");
+            Files.deleteIfExists(tempFile);
+            long size = s3StorageService.downloadAudioToFile(objectKey, tempFile);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            CachedAudio cached;
+            synchronized (entries) {
+                Long previous = entries.put(fileName, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                cached = pin(fileName, file);
+                evictOverflow();
+            }
+            download.complete(file);
+            return cached;
+        } catch (IOException e) {
+            download.completeExceptionally(e);
+            throw new UncheckedIOException("Failed to cache audio file: " + objectKey, e);
+        } catch (RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(fileName);
+        }
+    }
+
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count() + coalesced.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private CachedAudio pin(String fileName, Path file) {
+        pins.merge(fileName, 1, Integer::sum);
+        return new CachedAudio(this, fileName, file);
+    }
+
+    private void unpin(String fileName) {
+        synchronized (entries) {
+            pins.computeIfPresent(fileName, (name, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void evictOverflow() {
+        // Pinned files have been handed out and may not be open yet, so they are skipped; a later
+        // insertion evicts them once released. Unpinned files can only still be open by a reader
+        // that is done with its pin, and on POSIX its handle keeps the data readable until closed
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        List<Path> evicted = new ArrayList<>();
+        while (totalBytes > cacheProperties.getMaxSizeBytes() && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (pins.containsKey(eldest.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evicted.add(directory.resolve(eldest.getKey()));
+            evictions.increment();
+        }
+        for (Path file : evicted) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete evicted audio file: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * A cached file handed out to a caller, kept on disk until released
+     */
+    public static final class CachedAudio {
+
+        private final AudioDiskCacheService owner;
+        private final String fileName;
+        @Getter
+        private final Path file;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private CachedAudio(AudioDiskCacheService owner, String fileName, Path file) {
+            this.owner = owner;
+            this.fileName = fileName;
+            this.file = file;
+        }
+
+        /**
+         * Let the file be evicted again once no other caller holds it; safe to call more than once
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                owner.unpin(fileName);
+            }
+        }
+    }
+
+    private static String fileNameFor(String objectKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectKey.getBytes(StandardCharsets.UTF_8))) + FILE_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long lastAccess(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastAccessTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
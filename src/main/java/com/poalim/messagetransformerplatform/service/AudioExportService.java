@@ -0,0 +1,658 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poalim.messagetransformerplatform.config.ExportProperties;
+import com.poalim.messagetransformerplatform.model.ExportDestination;
+import com.poalim.messagetransformerplatform.model.ExportJob;
+import com.poalim.messagetransformerplatform.model.ExportJobStatus;
+import com.poalim.messagetransformerplatform.model.ExportManifestEntry;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import com.poalim.messagetransformerplatform.repository.ExportJobRepository;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports the audio of completed messages in a creation time range as ZIP archives.
+ * <p>
+ * Messages are read newest first in keyset pages, objects are fetched from S3 to disk with bounded
+ * concurrency and copied one at a time into the open archive part, so memory stays independent of
+ * object and export size. Each part carries a {@code manifest.ndjson} and is capped in entries and
+ * bytes; closing a part records it and the last message it holds as the job's checkpoint, and a
+ * resumed job seeks past that message and rewrites only the part that was open.
+ * <p>
+ * A running job holds a lease, renewed a few times per lease timeout; a job whose instance died stops
+ * renewing it and can be resumed once it expires. The run ID doubles as a fencing token: every write of
+ * the job is conditional on it, and a run that finds its lease taken over, or cannot renew it before it
+ * expires, stops without writing the job again.
+ */
+@Service
+@Slf4j
+public class AudioExportService {
+
+    static final String MANIFEST_ENTRY = "manifest.ndjson";
+
+    private static final String ARCHIVE_CONTENT_TYPE = "application/zip";
+    private static final Duration SHUTDOWN_SAVE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ExportJobRepository exportJobRepository;
+    private final ReactiveVoiceMessageRepository reactiveVoiceMessageRepository;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final S3StorageService s3StorageService;
+    private final ExportProperties exportProperties;
+    private final ObjectMapper objectMapper;
+    private final Counter messagesExported;
+    private final Counter messagesFailed;
+    private final Counter bytesExported;
+    private final Counter partsClosed;
+
+    private final Map<String, RunningExport> running = new ConcurrentHashMap<>();
+
+    public AudioExportService(ExportJobRepository exportJobRepository,
+                              ReactiveVoiceMessageRepository reactiveVoiceMessageRepository,
+                              ReactiveMongoTemplate reactiveMongoTemplate,
+                              S3StorageService s3StorageService,
+                              ExportProperties exportProperties,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.exportJobRepository = exportJobRepository;
+        this.reactiveVoiceMessageRepository = reactiveVoiceMessageRepository;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.s3StorageService = s3StorageService;
+        this.exportProperties = exportProperties;
+        this.objectMapper = objectMapper;
+        this.messagesExported = meterRegistry.counter("export.messages", "result", "exported");
+        this.messagesFailed = meterRegistry.counter("export.messages", "result", "failed");
+        this.bytesExported = meterRegistry.counter("export.bytes");
+        this.partsClosed = meterRegistry.counter("export.parts");
+        meterRegistry.gaugeMapSize("export.jobs.running", List.of(), running);
+    }
+
+    /**
+     * Start exporting the audio of messages completed in a time range
+     *
+     * @param createdFrom Inclusive start of the creation time range
+     * @param createdTo Exclusive end of the creation time range
+     * @param destination Where the archive parts are written
+     * @param requestedBy The requester, recorded on the job
+     * @return The started job; the export continues in the background
+     */
+    public Mono<ExportJob> startExport(LocalDateTime createdFrom, LocalDateTime createdTo,
+                                       ExportDestination destination, String requestedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        ExportJob job = ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .destination(destination)
+                .requestedBy(requestedBy)
+                .status(ExportJobStatus.RUNNING)
+                .runId(UUID.randomUUID().toString())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+
+        return exportJobRepository.insert(job)
+                .doOnNext(this::launch);
+    }
+
+    /**
+     * Resume a failed or interrupted export from its checkpoint
+     * <p>
+     * The job is claimed with a conditional update, so of several concurrent resumes only one runs.
+     * A job left {@code RUNNING} by an instance that died is claimed once its lease has expired.
+     *
+     * @param jobId The job ID
+     * @return The resumed job, or empty if there is no such job or it is neither failed, interrupted
+     *         nor running with an expired lease
+     */
+    public Mono<ExportJob> resumeExport(String jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(jobId).orOperator(
+                Criteria.where("status").in(ExportJobStatus.FAILED, ExportJobStatus.INTERRUPTED),
+                Criteria.where("status").is(ExportJobStatus.RUNNING)
+                        .and("updatedAt").lt(now.minus(exportProperties.getLeaseTimeout()))));
+        Update update = new Update()
+                .set("status", ExportJobStatus.RUNNING)
+                .set("runId", UUID.randomUUID().toString())
+                .unset("errorMessage")
+                .set("updatedAt", now);
+
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                        ExportJob.class)
+                .doOnNext(this::launch);
+    }
+
+    /**
+     * Get an export job with its progress
+     *
+     * @param jobId The job ID
+     * @return The job, with counts including the open part if it runs on this instance, or empty if unknown
+     */
+    public Mono<ExportJob> getJob(String jobId) {
+        RunningExport export = running.get(jobId);
+        if (export != null) {
+            return Mono.just(export.snapshot());
+        }
+        return exportJobRepository.findById(jobId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(export -> {
+            export.cancel();
+            ExportJob interrupted = export.getJob().toBuilder()
+                    .status(ExportJobStatus.INTERRUPTED)
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            try {
+                if (saveIfHeld(interrupted).block(SHUTDOWN_SAVE_TIMEOUT) != null) {
+                    log.info("Interrupted export {}; resume it to continue from its checkpoint", interrupted.getId());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to mark export {} as interrupted", interrupted.getId(), e);
+            }
+        });
+        running.clear();
+    }
+
+    private void launch(ExportJob job) {
+        Disposable subscription = run(job).subscribe(
+                finished -> log.info("Export {} finished: status={}, exported={}, failed={}, parts={}",
+                        finished.getId(), finished.getStatus(), finished.getMessagesExported(),
+                        finished.getMessagesFailed(), finished.getParts().size()),
+                e -> log.error("Export {} could not record its outcome", job.getId(), e));
+        RunningExport export = running.get(job.getId());
+        if (export != null) {
+            export.setSubscription(subscription);
+        }
+    }
+
+    /**
+     * Run an export from its checkpoint until every matching message is archived or an error stops it
+     *
+     * @param job The job to run, already marked running
+     * @return The job as finally saved, completed or failed, or empty if the run lost its lease
+     */
+    Mono<ExportJob> run(ExportJob job) {
+        return Mono.defer(() -> {
+            RunningExport export = new RunningExport(job, Path.of(exportProperties.getDirectory(), job.getId()));
+            running.put(job.getId(), export);
+            // The job was claimed or created just now, which is as good as a renewal
+            AtomicReference<Instant> lastRenewal = new AtomicReference<>(Instant.now());
+            Disposable heartbeat = Flux.interval(exportProperties.getLeaseTimeout().dividedBy(3))
+                    .concatMap(tick -> renewLease(job, lastRenewal))
+                    .filter(held -> !held)
+                    .take(1)
+                    .subscribe(lost -> {
+                        log.warn("Export {} lost its lease; stopping this run", job.getId());
+                        export.cancel();
+                    });
+            return execute(export)
+                    .doFinally(signal -> {
+                        heartbeat.dispose();
+                        export.cleanUp();
+                        running.remove(job.getId(), export);
+                    });
+        });
+    }
+
+    /**
+     * Extend a running job's lease, as long as this run still holds it
+     *
+     * @param lastRenewal When the lease was last renewed; moved forward on success
+     * @return Whether the lease is still held; after a failed renewal, only until it expires
+     */
+    private Mono<Boolean> renewLease(ExportJob job, AtomicReference<Instant> lastRenewal) {
+        return Mono.defer(() -> {
+                    Instant now = Instant.now();
+                    return reactiveMongoTemplate.updateFirst(heldBy(job),
+                                    Update.update("updatedAt", LocalDateTime.now()), ExportJob.class)
+                            .map(result -> result.getMatchedCount() > 0)
+                            .doOnNext(held -> lastRenewal.set(now));
+                })
+                .onErrorResume(e -> {
+                    Duration sinceRenewal = Duration.between(lastRenewal.get(), Instant.now());
+                    log.warn("Failed to renew the lease of export {}, last renewed {} ago",
+                            job.getId(), sinceRenewal, e);
+                    // Past the timeout another instance may already have claimed the job
+                    return Mono.just(sinceRenewal.compareTo(exportProperties.getLeaseTimeout()) <= 0);
+                });
+    }
+
+    /**
+     * Write the job, as long as this run still holds its lease
+     *
+     * @return The saved job, or empty if the job was claimed by another run or is no longer running
+     */
+    private Mono<ExportJob> saveIfHeld(ExportJob job) {
+        return Mono.defer(() -> reactiveMongoTemplate.findAndReplace(heldBy(job), job,
+                FindAndReplaceOptions.options().returnNew()));
+    }
+
+    private static Query heldBy(ExportJob job) {
+        return Query.query(Criteria.where("_id").is(job.getId())
+                .and("runId").is(job.getRunId())
+                .and("status").is(ExportJobStatus.RUNNING));
+    }
+
+    private static Mono<ExportJob> leaseLost(ExportJob job) {
+        return Mono.error(() -> new LeaseLostException("Export " + job.getId() + " is no longer held by this run"));
+    }
+
+    private Mono<ExportJob> execute(RunningExport export) {
+        ExportJob job = export.getJob();
+        VoiceMessageFilter filter = VoiceMessageFilter.builder()
+                .status(MessageStatus.COMPLETED)
+                .createdFrom(job.getCreatedFrom())
+                .createdTo(job.getCreatedTo())
+                .build();
+
+        return Mono.fromRunnable(export::prepare)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(reactiveVoiceMessageRepository.countMatching(filter))
+                .doOnNext(job::setTotalMessages)
+                .thenMany(messagesAfter(filter, job.getCheckpointCreatedAt(), job.getCheckpointMessageId()))
+                // Fetches overlap, but results arrive in cursor order so the checkpoint only moves forward
+                .flatMapSequential(message -> fetch(export, message), exportProperties.getConcurrency())
+                .concatMap(fetched -> Mono.fromCallable(() -> export.write(fetched))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .filter(partFull -> partFull)
+                        .flatMap(partFull -> closePart(export)), 1)
+                .then(Mono.defer(() -> closePart(export)))
+                .then(Mono.defer(() -> {
+                    job.setStatus(ExportJobStatus.COMPLETED);
+                    job.setCompletedAt(LocalDateTime.now());
+                    job.setUpdatedAt(job.getCompletedAt());
+                    return saveIfHeld(job).switchIfEmpty(leaseLost(job));
+                }))
+                .onErrorResume(e -> !(e instanceof LeaseLostException), e -> {
+                    log.error("Export {} failed; resume it to continue from its checkpoint", job.getId(), e);
+                    job.setStatus(ExportJobStatus.FAILED);
+                    job.setErrorMessage(e.getMessage());
+                    job.setUpdatedAt(LocalDateTime.now());
+                    return saveIfHeld(job).switchIfEmpty(leaseLost(job));
+                })
+                .onErrorResume(LeaseLostException.class, e -> {
+                    // Another run owns the job now; anything written here would overwrite its progress
+                    log.warn("{}; stopping without writing it", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Stream matching messages page by page, each page from its own short-lived cursor
+     * <p>
+     * Each page is read once the previous one is complete, seeking past its last message; expanding
+     * the pages keeps the pipeline flat however many there are.
+     */
+    private Flux<VoiceMessage> messagesAfter(VoiceMessageFilter filter, LocalDateTime afterCreatedAt, String afterId) {
+        int pageSize = exportProperties.getPageSize();
+        return Mono.defer(() -> reactiveVoiceMessageRepository.findPage(filter, afterCreatedAt, afterId, pageSize)
+                        .collectList())
+                .expand(page -> {
+                    if (page.size() < pageSize) {
+                        return Mono.empty();
+                    }
+                    VoiceMessage last = page.get(page.size() - 1);
+                    return reactiveVoiceMessageRepository.findPage(filter, last.getCreatedAt(), last.getId(), pageSize)
+                            .collectList();
+                })
+                .flatMapIterable(page -> page);
+    }
+
+    private Mono<FetchedAudio> fetch(RunningExport export, VoiceMessage message) {
+        if (message.getS3ObjectKey() == null) {
+            return Mono.just(new FetchedAudio(message, null, "No audio object recorded"));
+        }
+
+        Path target = export.objectFile(message);
+        return s3StorageService.downloadToFileAsync(message.getS3ObjectKey(), target)
+                .map(size -> new FetchedAudio(message, target, null))
+                // A missing object is listed in the manifest; any other failure stops the job for a resume
+                .onErrorResume(NoSuchKeyException.class,
+                        e -> Mono.just(new FetchedAudio(message, null, "Audio object not found")));
+    }
+
+    private Mono<ExportJob> closePart(RunningExport export) {
+        return Mono.fromCallable(export::closePart)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(closed -> publish(export.getJob(), closed)
+                        .flatMap(location -> {
+                            ExportJob job = export.checkpoint(closed, location);
+                            partsClosed.increment();
+                            log.info("Export {} closed part {}: entries={}, bytes={}",
+                                    job.getId(), location, closed.exported() + closed.failed(), closed.bytes());
+                            return saveIfHeld(job).switchIfEmpty(leaseLost(job));
+                        }));
+    }
+
+    private Mono<String> publish(ExportJob job, ClosedPart closed) {
+        if (job.getDestination() != ExportDestination.S3) {
+            return Mono.just(closed.file().toString());
+        }
+
+        String objectKey = exportProperties.getS3Prefix() + job.getId() + "/" + closed.file().getFileName();
+        return s3StorageService.uploadFileToS3Async(closed.file(), ARCHIVE_CONTENT_TYPE, objectKey)
+                .flatMap(key -> Mono.fromCallable(() -> {
+                            Files.deleteIfExists(closed.file());
+                            return key;
+                        })
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private static String entryName(VoiceMessage message) {
+        String objectKey = message.getS3ObjectKey();
+        int dot = objectKey.lastIndexOf('.');
+        String extension = dot > objectKey.lastIndexOf('/') ? objectKey.substring(dot) : "";
+        String day = message.getCreatedAt() != null ? message.getCreatedAt().toLocalDate().toString() : "undated";
+        return "audio/" + day + "/" + message.getId() + extension;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record FetchedAudio(VoiceMessage message, Path file, String errorMessage) {
+    }
+
+    private record ClosedPart(Path file, long exported, long failed, long bytes, VoiceMessage lastMessage) {
+    }
+
+    private static class LeaseLostException extends RuntimeException {
+
+        LeaseLostException(String message) {
+            super(message);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ArchiveOperation<T> {
+
+        T run() throws IOException;
+    }
+
+    /**
+     * The state of an export running on this instance
+     * <p>
+     * Archive writes and checkpoints happen one at a time, from whichever thread the pipeline is on;
+     * the counters of the open part are atomic so progress can be read from request threads. A clean-up
+     * arriving while the archive is in use, when the export is cancelled, is left to that operation to
+     * finish, so the archive is never closed under a write.
+     */
+    private class RunningExport {
+
+        private final ExportJob job;
+        private final Path directory;
+        private final Path objectDirectory;
+        private final AtomicLong partExported = new AtomicLong();
+        private final AtomicLong partFailed = new AtomicLong();
+        private final AtomicLong partBytes = new AtomicLong();
+        private final Object archiveLock = new Object();
+        private volatile Disposable subscription;
+        private boolean archiveInUse; // Guarded by archiveLock
+        private boolean stopped; // Guarded by archiveLock
+
+        private Path partFile;
+        private Path manifestFile;
+        private ZipOutputStream archive;
+        private BufferedWriter manifest;
+        private VoiceMessage lastMessage;
+
+        RunningExport(ExportJob job, Path directory) {
+            this.job = job;
+            this.directory = directory;
+            this.objectDirectory = directory.resolve("objects");
+        }
+
+        ExportJob getJob() {
+            return job;
+        }
+
+        void setSubscription(Disposable subscription) {
+            this.subscription = subscription;
+        }
+
+        void cancel() {
+            Disposable current = subscription;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+
+        synchronized ExportJob snapshot() {
+            return job.toBuilder()
+                    .messagesExported(job.getMessagesExported() + partExported.get())
+                    .messagesFailed(job.getMessagesFailed() + partFailed.get())
+                    .bytesExported(job.getBytesExported() + partBytes.get())
+                    .parts(List.copyOf(job.getParts()))
+                    .build();
+        }
+
+        void prepare() {
+            try {
+                Files.createDirectories(objectDirectory);
+                // Objects fetched before a failure or restart are fetched again
+                clearObjectDirectory();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Path objectFile(VoiceMessage message) {
+            return objectDirectory.resolve(message.getId());
+        }
+
+        /**
+         * Append a fetched object, or its failure, to the open part
+         *
+         * @return Whether the part reached its entry or size limit
+         */
+        boolean write(FetchedAudio fetched) throws IOException {
+            return useArchive(() -> append(fetched));
+        }
+
+        /**
+         * Finish the open part with its manifest
+         *
+         * @return The closed part, or null if no part is open
+         */
+        ClosedPart closePart() throws IOException {
+            return useArchive(this::finishPart);
+        }
+
+        private boolean append(FetchedAudio fetched) throws IOException {
+            if (archive == null) {
+                openPart();
+            }
+
+            VoiceMessage message = fetched.message();
+            ExportManifestEntry.ExportManifestEntryBuilder entry = ExportManifestEntry.builder()
+                    .messageId(message.getId())
+                    .createdAt(message.getCreatedAt())
+                    .requestedBy(message.getRequestedBy())
+                    .s3ObjectKey(message.getS3ObjectKey())
+                    .contentType(message.getContentType());
+
+            if (fetched.file() == null) {
+                entry.errorMessage(fetched.errorMessage());
+                partFailed.incrementAndGet();
+                messagesFailed.increment();
+            } else {
+                String entryName = entryName(message);
+                MessageDigest digest = sha256();
+                long size;
+                archive.putNextEntry(new ZipEntry(entryName));
+                try (InputStream in = new DigestInputStream(Files.newInputStream(fetched.file()), digest)) {
+                    size = in.transferTo(archive);
+                }
+                archive.closeEntry();
+                Files.delete(fetched.file());
+
+                entry.entryName(entryName)
+                        .sizeBytes(size)
+                        .checksumSha256(HexFormat.of().formatHex(digest.digest()));
+                partExported.incrementAndGet();
+                partBytes.addAndGet(size);
+                messagesExported.increment();
+                bytesExported.increment(size);
+            }
+
+            manifest.write(objectMapper.writeValueAsString(entry.build()));
+            manifest.newLine();
+            lastMessage = message;
+
+            return partExported.get() + partFailed.get() >= exportProperties.getMaxPartEntries()
+                    || partBytes.get() >= exportProperties.getMaxPartBytes();
+        }
+
+        private ClosedPart finishPart() throws IOException {
+            if (archive == null) {
+                return null;
+            }
+
+            manifest.close();
+            archive.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            Files.copy(manifestFile, archive);
+            archive.closeEntry();
+            archive.close();
+            Files.delete(manifestFile);
+
+            ClosedPart closed = new ClosedPart(partFile, partExported.get(), partFailed.get(), partBytes.get(),
+                    lastMessage);
+            archive = null;
+            manifest = null;
+            return closed;
+        }
+
+        /**
+         * Record a published part and move the checkpoint past its last message
+         *
+         * @return The job to save
+         */
+        synchronized ExportJob checkpoint(ClosedPart closed, String location) {
+            job.setMessagesExported(job.getMessagesExported() + closed.exported());
+            job.setMessagesFailed(job.getMessagesFailed() + closed.failed());
+            job.setBytesExported(job.getBytesExported() + closed.bytes());
+            job.getParts().add(location);
+            job.setCheckpointCreatedAt(closed.lastMessage().getCreatedAt());
+            job.setCheckpointMessageId(closed.lastMessage().getId());
+            job.setUpdatedAt(LocalDateTime.now());
+            partExported.set(0);
+            partFailed.set(0);
+            partBytes.set(0);
+            return job;
+        }
+
+        void cleanUp() {
+            synchronized (archiveLock) {
+                stopped = true;
+                if (!archiveInUse) {
+                    discardOpenPart();
+                }
+            }
+        }
+
+        private <T> T useArchive(ArchiveOperation<T> operation) throws IOException {
+            synchronized (archiveLock) {
+                if (stopped) {
+                    throw new CancellationException("Export " + job.getId() + " was stopped");
+                }
+                archiveInUse = true;
+            }
+            try {
+                return operation.run();
+            } finally {
+                synchronized (archiveLock) {
+                    archiveInUse = false;
+                    if (stopped) {
+                        discardOpenPart();
+                    }
+                }
+            }
+        }
+
+        private void discardOpenPart() {
+            try {
+                if (archive != null) {
+                    // The open part is rewritten from the checkpoint on resume
+                    manifest.close();
+                    archive.close();
+                    archive = null;
+                }
+                clearObjectDirectory();
+            } catch (IOException e) {
+                log.warn("Failed to clean up export {} in {}", job.getId(), directory, e);
+            }
+        }
+
+        private void openPart() throws IOException {
+            // Part numbers follow the closed parts, so a resume overwrites the part that was left open
+            String name = String.format("part-%05d", job.getParts().size() + 1);
+            partFile = directory.resolve(name + ".zip");
+            manifestFile = directory.resolve(name + ".manifest.ndjson");
+
+            archive = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile)));
+            // Audio is already compressed; deflating it again costs CPU for nothing
+            archive.setLevel(Deflater.NO_COMPRESSION);
+            manifest = Files.newBufferedWriter(manifestFile);
+        }
+
+        private void clearObjectDirectory() throws IOException {
+            if (!Files.isDirectory(objectDirectory)) {
+                return;
+            }
+            try (Stream<Path> files = Files.list(objectDirectory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.BatchItemRequest;
+import com.poalim.messagetransformerplatform.model.BatchItemResult;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests large batches of text messages as a stream.
+ * <p>
+ * Items are pulled from the input only as fast as the synthesis window frees up, so memory stays
+ * proportional to the concurrency cap and insert chunk size rather than to the batch size. Each valid
+ * item goes through admission control like a single submission; a shed item is answered right away
+ * with its retry delay, and an admitted one holds its permit until it has been handled.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchSubmissionService {
+
+    private final MessageTransformerService messageTransformerService;
+    private final PipelineProperties pipelineProperties;
+    private final VirtualThreadPipelineService virtualThreadPipelineService;
+    private final AudioFormatProperties audioFormatProperties;
+    private final LongTextSynthesisService longTextSynthesisService;
+    private final AdmissionControlService admissionControlService;
+    private final Validator validator;
+
+    /**
+     * Submit a batch of text messages for conversion to speech
+     *
+     * @param items Lazily parsed batch items; read on a blocking-capable scheduler
+     * @param defaultRequestedBy Requester used for items that do not specify one
+     * @return Per-item results, emitted as each item finishes
+     */
+    public Flux<BatchItemResult> submitBatch(Iterator<BatchItemRequest> items, String defaultRequestedBy) {
+        PipelineProperties.Batch batch = pipelineProperties.getBatch();
+
+        return Flux.fromIterable(() -> items)
+                .subscribeOn(Schedulers.boundedElastic())
+                .index()
+                .buffer(batch.getInsertChunkSize())
+                .concatMap(chunk -> acceptChunk(chunk, defaultRequestedBy), 1)
+                .flatMap(accepted -> accepted.rejection() != null
+                        ? Mono.just(accepted.rejection())
+                        : process(accepted), batch.getConcurrency())
+                // Items accepted but never processed, when the batch is cancelled or aborted
+                .doOnDiscard(AcceptedItem.class, AcceptedItem::release)
+                .onErrorResume(e -> {
+                    log.error("Batch submission aborted", e);
+                    return Mono.just(BatchItemResult.builder()
+                            .status(MessageStatus.FAILED)
+                            .errorMessage("Batch aborted: " + e.getMessage())
+                            .build());
+                });
+    }
+
+    private Flux<AcceptedItem> acceptChunk(List<Tuple2<Long, BatchItemRequest>> chunk, String defaultRequestedBy) {
+        // Invalid items are answered right away and left out of the insert, so they cannot abort the batch
+        List<AcceptedItem> items = chunk.stream()
+                .map(item -> toMessage(item.getT1(), item.getT2(), defaultRequestedBy))
+                .toList();
+        List<AcceptedItem> valid = items.stream().filter(item -> item.rejection() == null).toList();
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(items);
+        }
+
+        // Inserted documents come back in input order, so they can be zipped with their batch positions
+        return messageTransformerService.acceptTextMessages(valid.stream().map(AcceptedItem::message).toList())
+                .index()
+                .map(saved -> {
+                    AcceptedItem item = valid.get(saved.getT1().intValue());
+                    return new AcceptedItem(item.index(), item.clientReference(), saved.getT2(), null, item.permit());
+                })
+                .concatWith(Flux.fromIterable(items).filter(item -> item.rejection() != null))
+                .doOnComplete(() -> log.info("Bulk inserted {} batch messages", valid.size()))
+                .doOnError(e -> valid.forEach(AcceptedItem::release));
+    }
+
+    private AcceptedItem toMessage(long index, BatchItemRequest item, String defaultRequestedBy) {
+        Set<ConstraintViolation<BatchItemRequest>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            String error = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return rejected(index, item, "Invalid item: " + error, null);
+        }
+
+        String requestedBy = item.getRequestedBy() != null ? item.getRequestedBy() : defaultRequestedBy;
+        AudioFormat format;
+        try {
+            format = longTextSynthesisService.negotiateFormat(item.getText(), item.getFormat(), audioFormatProperties);
+        } catch (IllegalArgumentException e) {
+            return rejected(index, item, "Invalid item: " + e.getMessage(), null);
+        }
+
+        AdmissionControlService.Permit permit = admissionControlService.tryAdmit(requestedBy, item.getText());
+        if (!permit.isAdmitted()) {
+            return rejected(index, item, "Shed by admission control", permit.getRetryAfter().toSeconds());
+        }
+        return new AcceptedItem(index, item.getClientReference(),
+                messageTransformerService.newVoiceMessage(item.getText(), requestedBy, format), null, permit);
+    }
+
+    private static AcceptedItem rejected(long index, BatchItemRequest item, String errorMessage, Long retryAfterSeconds) {
+        return new AcceptedItem(index, item.getClientReference(), null, BatchItemResult.builder()
+                .index(index)
+                .clientReference(item.getClientReference())
+                .status(MessageStatus.FAILED)
+                .errorMessage(errorMessage)
+                .retryAfterSeconds(retryAfterSeconds)
+                .build(), null);
+    }
+
+    private Mono<BatchItemResult> process(AcceptedItem accepted) {
+        VoiceMessage message = accepted.message();
+        // Deferred, so a failure building one item's pipeline becomes that item's result
+        return Mono.defer(() -> {
+                    if (pipelineProperties.isAsyncEnabled()) {
+                        return messageTransformerService.enqueueAcceptedMessage(message);
+                    }
+                    if (pipelineProperties.getExecutionMode() == PipelineProperties.ExecutionMode.VIRTUAL_THREADS) {
+                        return virtualThreadPipelineService.processAcceptedMessage(message);
+                    }
+                    return messageTransformerService.processAcceptedMessage(message);
+                })
+                .map(processed -> toResult(accepted, processed))
+                .onErrorResume(e -> {
+                    log.error("Batch item {} failed: message {}", accepted.index(), message.getId(), e);
+                    return Mono.just(BatchItemResult.builder()
+                            .index(accepted.index())
+                            .clientReference(accepted.clientReference())
+                            .messageId(message.getId())
+                            .status(MessageStatus.FAILED)
+                            .errorMessage(e.getMessage())
+                            .build());
+                })
+                .doFinally(signal -> accepted.release());
+    }
+
+    private BatchItemResult toResult(AcceptedItem accepted, VoiceMessage message) {
+        return BatchItemResult.builder()
+                .index(accepted.index())
+                .clientReference(accepted.clientReference())
+                .messageId(message.getId())
+                .status(message.getStatus())
+                .s3ObjectKey(message.getS3ObjectKey())
+                .errorMessage(message.getErrorMessage())
+                .build();
+    }
+
+    private record AcceptedItem(long index, String clientReference, VoiceMessage message, BatchItemResult rejection,
+                                AdmissionControlService.Permit permit) {
+
+        void release() {
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.poalim.messagetransformerplatform.service;
 
+import com.poalim.messagetransformerplatform.model.SynthesisWorkItem;
 import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,10 +17,14 @@ import java.util.concurrent.CompletableFuture;
 public class KafkaProducerService {
 
     private final KafkaTemplate<String, VoiceProcessingStatus> kafkaTemplate;
+    private final KafkaTemplate<String, SynthesisWorkItem> workItemKafkaTemplate;
 
     @Value("${kafka.topics.voice-processing-status}")
     private String voiceProcessingStatusTopic;
 
+    @Value("${kafka.topics.voice-synthesis-requests}")
+    private String voiceSynthesisRequestsTopic;
+
     /**
      * Publish a voice processing status update to Kafka
      *
@@ -38,4 +43,23 @@ public class KafkaProducerService {
                     }
                 });
     }
-}
\ No newline at end of file
+
+    /**
+     * Enqueue a synthesis work item for the worker pool
+     *
+     * @param workItem The work item, keyed by message ID so retries land on the same partition
+     * @return A completable future for the send operation
+     */
+    public CompletableFuture<SendResult<String, SynthesisWorkItem>> publishWorkItem(SynthesisWorkItem workItem) {
+        log.info("Enqueuing synthesis work item to Kafka: {}", workItem);
+
+        return workItemKafkaTemplate.send(voiceSynthesisRequestsTopic, workItem.getMessageId(), workItem)
+                .whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        log.info("Successfully enqueued synthesis work item for message: {}", workItem.getMessageId());
+                    } else {
+                        log.error("Failed to enqueue synthesis work item for message: {}", workItem.getMessageId(), ex);
+                    }
+                });
+    }
+}
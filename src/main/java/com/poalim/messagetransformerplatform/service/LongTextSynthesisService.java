@@ -0,0 +1,112 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.LongTextProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthesizes long texts as concurrently converted sentence chunks stitched into one MP3 object.
+ * <p>
+ * Chunks are requested in parallel but emitted in text order straight into a multipart upload,
+ * so time to completion approaches that of the slowest chunk rather than the sum of all of them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LongTextSynthesisService {
+
+    private final TextToSpeechService textToSpeechService;
+    private final S3StorageService s3StorageService;
+    private final LongTextProperties longTextProperties;
+
+    /**
+     * Whether a text should be synthesized in chunks
+     *
+     * @param text The text to convert to speech
+     * @return True if long-text mode is enabled and the text exceeds the threshold
+     */
+    public boolean isLongText(String text) {
+        return longTextProperties.isEnabled() && text.length() > longTextProperties.getThresholdChars();
+    }
+
+    /**
+     * Negotiate the format a submitted text will be stored in
+     * <p>
+     * Chunks are joined by concatenation, which only works for formats without a per-file header, so
+     * long texts are negotiated against the stitchable formats only.
+     *
+     * @param text The text to convert to speech
+     * @param preferences Comma-separated formats in order of preference; may be null or blank
+     * @param audioFormatProperties The enabled and default formats
+     * @return The negotiated format
+     * @throws IllegalArgumentException If none of the preferred formats is available for the text
+     */
+    public AudioFormat negotiateFormat(String text, String preferences, AudioFormatProperties audioFormatProperties) {
+        return text != null && isLongText(text)
+                ? AudioFormat.negotiateStitchable(preferences,
+                        audioFormatProperties.getEnabled(), audioFormatProperties.getDefaultFormat())
+                : AudioFormat.negotiate(preferences,
+                        audioFormatProperties.getEnabled(), audioFormatProperties.getDefaultFormat());
+    }
+
+    /**
+     * The format a text will actually be stored in
+     * <p>
+     * Submissions are negotiated with {@link #negotiateFormat}, but a message accepted while the text was
+     * still below the threshold, or before a restart lowered it, may ask for a format that cannot be
+     * joined; such long texts fall back to MP3. The message's content type records the result.
+     *
+     * @param text The text to convert to speech
+     * @param requested The format the caller asked for
+     * @return The format to synthesize
+     */
+    public AudioFormat effectiveFormat(String text, AudioFormat requested) {
+        return isLongText(text) && !requested.isStitchable() ? AudioFormat.MP3 : requested;
+    }
+
+    /**
+     * Convert a long text to speech chunk by chunk and upload the stitched audio to S3
+     *
+     * @param text The text to convert to speech
+     * @param format The audio encoding, which must be stitchable
+     * @param objectKey The S3 object key to store the audio under
+     * @return The stored audio, including chunk count and per-chunk synthesis times
+     */
+    public Mono<StoredAudio> synthesizeAndStore(String text, AudioFormat format, String objectKey) {
+        List<String> chunks = TextChunker.split(text, longTextProperties.getMaxChunkChars());
+        List<Long> chunkDurationsMs = new ArrayList<>(chunks.size());
+        log.info("Synthesizing long text in {} chunks: key={}", chunks.size(), objectKey);
+
+        Flux<DataBuffer> stitchedAudio = Flux.range(0, chunks.size())
+                .flatMapSequential(index -> textToSpeechService.convertTextToSpeech(chunks.get(index), format)
+                                .elapsed()
+                                .map(timed -> new SynthesizedChunk(timed.getT1(), timed.getT2())),
+                        longTextProperties.getConcurrency())
+                .map(chunk -> {
+                    chunkDurationsMs.add(chunk.durationMs());
+                    // Per-chunk tags and Info frames describe that chunk alone, so none of them survive
+                    byte[] frames = format == AudioFormat.MP3 ? Mp3Stitcher.stripTags(chunk.audio()) : chunk.audio();
+                    return DefaultDataBufferFactory.sharedInstance.wrap(frames);
+                });
+
+        return s3StorageService.streamAudioToS3(stitchedAudio, format.getContentType(), objectKey)
+                .map(audio -> audio.toBuilder()
+                        .chunkCount(chunks.size())
+                        .chunkDurationsMs(List.copyOf(chunkDurationsMs))
+                        .build());
+    }
+
+    private record SynthesizedChunk(long durationMs, byte[] audio) {
+    }
+}
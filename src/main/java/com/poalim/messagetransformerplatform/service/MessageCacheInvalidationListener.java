@@ -0,0 +1,94 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.CacheConfig;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the voice message metadata cache coherent across instances.
+ * <p>
+ * Every instance consumes the status topic. Non-terminal transitions are applied to the cached entry
+ * in place; terminal ones evict it, since the event does not carry every field of the finished record.
+ */
+@Service
+@Slf4j
+public class MessageCacheInvalidationListener {
+
+    private final Cache cache;
+
+    private final Counter updates;
+    private final Counter evictions;
+    private final Timer staleness;
+
+    public MessageCacheInvalidationListener(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cache = cacheManager.getCache(CacheConfig.VOICE_MESSAGES_CACHE);
+
+        this.updates = meterRegistry.counter("message.cache.invalidations", "action", "update");
+        this.evictions = meterRegistry.counter("message.cache.invalidations", "action", "evict");
+        this.staleness = Timer.builder("message.cache.staleness")
+                .description("Time between a status change and its cached entry being refreshed")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Apply a status transition to the cached message, if any
+     *
+     * @param status The status event
+     */
+    @KafkaListener(
+            id = "message-cache-invalidation",
+            idIsGroup = false, // Keep the per-instance group from the consumer factory
+            topics = "${kafka.topics.voice-processing-status}",
+            containerFactory = "statusEventContainerFactory")
+    public void onStatusUpdate(VoiceProcessingStatus status) {
+        if (cache == null || status == null || status.getMessageId() == null) {
+            return;
+        }
+
+        VoiceMessage cached = cache.get(status.getMessageId(), VoiceMessage.class);
+        if (cached == null) {
+            return;
+        }
+
+        // Events for one message share a partition, but a read may already have cached a newer record
+        if (status.getTimestamp() != null && cached.getUpdatedAt() != null
+                && status.getTimestamp().isBefore(cached.getUpdatedAt())) {
+            return;
+        }
+
+        if (status.getTimestamp() != null) {
+            staleness.record(Duration.between(status.getTimestamp(), LocalDateTime.now()));
+        }
+
+        if (isTerminal(status.getStatus())) {
+            cache.evict(status.getMessageId());
+            evictions.increment();
+            return;
+        }
+
+        // Replace rather than mutate, since the cached instance may be serialized concurrently
+        cache.put(status.getMessageId(), cached.toBuilder()
+                .status(status.getStatus())
+                .errorMessage(status.getErrorMessage())
+                .updatedAt(status.getTimestamp() != null ? status.getTimestamp() : cached.getUpdatedAt())
+                .build());
+        updates.increment();
+    }
+
+    private static boolean isTerminal(MessageStatus status) {
+        return status == MessageStatus.COMPLETED || status == MessageStatus.FAILED;
+    }
+}
@@ -0,0 +1,87 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.model.MessageListingLine;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams voice message listings page by page.
+ * <p>
+ * Pages are keyset-paginated on (createdAt, id): the continuation token names the last message of a
+ * page and the next page seeks past it through an index, so deep pages cost the same as the first.
+ * The token carries only the position; callers pass the same filter with every page.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageListingService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final char TOKEN_SEPARATOR = '|';
+
+    private final ReactiveVoiceMessageRepository reactiveVoiceMessageRepository;
+
+    /**
+     * List one page of messages, newest first
+     *
+     * @param filter Constraints on the listed messages
+     * @param continuationToken Token from the end of the previous page, or null for the first page
+     * @param limit The page size, capped at {@value #MAX_PAGE_SIZE}
+     * @return The page's messages, followed by a continuation token line if more messages follow
+     * @throws IllegalArgumentException If the continuation token is malformed
+     */
+    public Flux<MessageListingLine> listMessages(VoiceMessageFilter filter, String continuationToken, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        LocalDateTime afterCreatedAt = null;
+        String afterId = null;
+        if (continuationToken != null) {
+            String position = decode(continuationToken);
+            int separator = position.indexOf(TOKEN_SEPARATOR);
+            try {
+                afterCreatedAt = LocalDateTime.parse(position.substring(0, separator));
+                afterId = position.substring(separator + 1);
+            } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed continuation token", e);
+            }
+        }
+
+        // One extra message is read to learn whether another page follows, without a count query
+        Flux<VoiceMessage> messages = reactiveVoiceMessageRepository.findPage(
+                filter, afterCreatedAt, afterId, pageSize + 1);
+
+        return Flux.defer(() -> {
+            AtomicReference<VoiceMessage> last = new AtomicReference<>();
+            return messages.index()
+                    .map(indexed -> {
+                        if (indexed.getT1() < pageSize) {
+                            last.set(indexed.getT2());
+                            return MessageListingLine.builder().message(indexed.getT2()).build();
+                        }
+                        return MessageListingLine.builder().continuationToken(encode(last.get())).build();
+                    });
+        });
+    }
+
+    private static String encode(VoiceMessage message) {
+        String position = message.getCreatedAt().toString() + TOKEN_SEPARATOR + message.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed continuation token", e);
+        }
+    }
+}
@@ -1,17 +1,31 @@
 package com.poalim.messagetransformerplatform.service;
 
+import com.poalim.messagetransformerplatform.config.CacheConfig;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
 import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.MessageTemplate;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.SynthesisWorkItem;
 import com.poalim.messagetransformerplatform.model.VoiceMessage;
 import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
 import com.poalim.messagetransformerplatform.repository.VoiceMessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
@@ -19,95 +33,394 @@ import java.util.UUID;
 public class MessageTransformerService {
 
     private final VoiceMessageRepository voiceMessageRepository;
+    private final ReactiveVoiceMessageRepository reactiveVoiceMessageRepository;
     private final TextToSpeechService textToSpeechService;
     private final S3StorageService s3StorageService;
     private final KafkaProducerService kafkaProducerService;
+    private final SynthesisCacheService synthesisCacheService;
+    private final LongTextSynthesisService longTextSynthesisService;
+    private final PipelineInstrumentation pipelineInstrumentation;
+    private final TemplateSynthesisService templateSynthesisService;
+    private final StatusWriteBehindService statusWriteBehindService;
 
     @Value("${aws.s3.bucket-name}")
     private String s3BucketName;
 
+    @Value("${llm.api.streaming-enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${pipeline.worker.claim-timeout:15m}")
+    private Duration claimTimeout = Duration.ofMinutes(15);
+
     /**
      * Process a text message by converting it to speech and storing the result
      *
      * @param text The text to convert to speech
      * @param requestedBy Who requested the conversion
+     * @param format The audio encoding to produce
      * @return The created voice message record
      */
-    public Mono<VoiceMessage> processTextMessage(String text, String requestedBy) {
+    public Mono<VoiceMessage> processTextMessage(String text, String requestedBy, AudioFormat format) {
         log.info("Processing text message: {}", text);
 
-        // Initialize a VoiceMessage with RECEIVED status
-        VoiceMessage voiceMessage = VoiceMessage.builder()
+        return processNewMessage(newVoiceMessage(text, requestedBy, format));
+    }
+
+    /**
+     * Persist a new message and convert it to speech in-process
+     *
+     * @param message A message built with {@link #newVoiceMessage} or {@link #newTemplateMessage}
+     * @return The updated voice message record
+     */
+    public Mono<VoiceMessage> processNewMessage(VoiceMessage message) {
+        return acceptMessage(message)
+                .flatMap(this::processAcceptedMessage);
+    }
+
+    /**
+     * Accept a text message and enqueue it for asynchronous synthesis by the worker pool
+     *
+     * @param text The text to convert to speech
+     * @param requestedBy Who requested the conversion
+     * @param format The audio encoding to produce
+     * @return The voice message record in RECEIVED status, once the work item is durably enqueued
+     */
+    public Mono<VoiceMessage> submitTextMessage(String text, String requestedBy, AudioFormat format) {
+        log.info("Submitting text message for asynchronous processing: {}", text);
+
+        return submitNewMessage(newVoiceMessage(text, requestedBy, format));
+    }
+
+    /**
+     * Persist a new message and enqueue it for asynchronous synthesis by the worker pool
+     *
+     * @param message A message built with {@link #newVoiceMessage} or {@link #newTemplateMessage}
+     * @return The voice message record in RECEIVED status, once the work item is durably enqueued
+     */
+    public Mono<VoiceMessage> submitNewMessage(VoiceMessage message) {
+        return acceptMessage(message)
+                .flatMap(this::enqueueAcceptedMessage);
+    }
+
+    /**
+     * Persist many new messages in RECEIVED status with a single bulk insert
+     *
+     * @param messages Messages built with {@link #newVoiceMessage}
+     * @return The saved voice message records, in input order
+     */
+    public Flux<VoiceMessage> acceptTextMessages(List<VoiceMessage> messages) {
+        return reactiveVoiceMessageRepository.insert(messages)
+                // Publish RECEIVED status
+                .concatMap(savedMessage -> publishStatusUpdate(savedMessage).thenReturn(savedMessage));
+    }
+
+    /**
+     * Convert an accepted message to speech in-process
+     *
+     * @param message A message in RECEIVED status
+     * @return The updated voice message record
+     */
+    public Mono<VoiceMessage> processAcceptedMessage(VoiceMessage message) {
+        return synthesizeMessage(message);
+    }
+
+    /**
+     * Enqueue an accepted message for synthesis by the worker pool
+     *
+     * @param message A message in RECEIVED status
+     * @return The message once the work item is durably enqueued, or marked FAILED if enqueueing failed
+     */
+    public Mono<VoiceMessage> enqueueAcceptedMessage(VoiceMessage message) {
+        SynthesisWorkItem workItem = SynthesisWorkItem.builder()
+                .messageId(message.getId())
+                .requestedBy(message.getRequestedBy())
+                .enqueuedAt(LocalDateTime.now())
+                .build();
+
+        return Mono.fromFuture(() -> kafkaProducerService.publishWorkItem(workItem))
+                .thenReturn(message)
+                .onErrorResume(e -> handleProcessingError(message, e));
+    }
+
+    /**
+     * Build a new, unsaved message in RECEIVED status
+     * <p>
+     * The requested format is recorded as the message's content type, which is where workers pick it up.
+     *
+     * @param text The text to convert to speech
+     * @param requestedBy Who requested the conversion
+     * @param format The audio encoding to produce
+     * @return The voice message
+     */
+    public VoiceMessage newVoiceMessage(String text, String requestedBy, AudioFormat format) {
+        return VoiceMessage.builder()
                 .id(UUID.randomUUID().toString())
                 .originalText(text)
+                .contentType(format.getContentType())
                 .status(MessageStatus.RECEIVED)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .requestedBy(requestedBy)
                 .build();
+    }
+
+    /**
+     * Build a new, unsaved message from a template in RECEIVED status
+     * <p>
+     * The rendered text is recorded as the message's text, so listings and the whole-text synthesis
+     * cache see it like any other message.
+     *
+     * @param template The registered template
+     * @param variables Values for the template's placeholders
+     * @param requestedBy Who requested the conversion
+     * @param format The audio encoding to produce
+     * @return The voice message
+     * @throws IllegalArgumentException If a placeholder has no value
+     */
+    public VoiceMessage newTemplateMessage(MessageTemplate template, Map<String, String> variables,
+                                           String requestedBy, AudioFormat format) {
+        VoiceMessage message = newVoiceMessage(TemplateText.render(template.getText(), variables), requestedBy, format);
+        message.setTemplateId(template.getId());
+        message.setTemplateVariables(Map.copyOf(variables));
+        return message;
+    }
+
+    /**
+     * Synthesize a previously accepted message, as delivered to a worker
+     *
+     * @param messageId The message ID
+     * @return The updated voice message record
+     */
+    public Mono<VoiceMessage> processReceivedMessage(String messageId) {
+        return claimReceivedMessage(messageId)
+                .flatMap(this::synthesizeMessage)
+                .switchIfEmpty(Mono.defer(() -> reactiveVoiceMessageRepository.findById(messageId)));
+    }
 
-        // Save the initial message
-        voiceMessage = voiceMessageRepository.save(voiceMessage);
+    /**
+     * Claim a message for synthesis by this worker
+     * <p>
+     * The claim is a conditional update, so a redelivered work item is not synthesized again while
+     * another worker holds the message, nor once it is completed.
+     *
+     * @param messageId The message ID
+     * @return The message in PROCESSING status, or empty if it is held elsewhere or completed
+     */
+    public Mono<VoiceMessage> claimReceivedMessage(String messageId) {
+        return reactiveVoiceMessageRepository.claimForProcessing(messageId, LocalDateTime.now().minus(claimTimeout))
+                .switchIfEmpty(Mono.defer(() -> reactiveVoiceMessageRepository.findById(messageId)
+                        .switchIfEmpty(Mono.error(new RuntimeException("Voice message not found: " + messageId)))
+                        .doOnNext(current -> log.info("Skipping redelivered message {} in status {}",
+                                messageId, current.getStatus()))
+                        .then(Mono.empty())));
+    }
 
-        // Publish RECEIVED status
-        publishStatusUpdate(voiceMessage);
+    /**
+     * Persist a new message in RECEIVED status
+     *
+     * @param voiceMessage The new message
+     * @return The saved voice message record
+     */
+    private Mono<VoiceMessage> acceptMessage(VoiceMessage voiceMessage) {
+        // Save the initial message, then publish RECEIVED status
+        return pipelineInstrumentation.timeStage("mongo-save", voiceMessage.getId(), null,
+                        reactiveVoiceMessageRepository.save(voiceMessage))
+                .flatMap(savedMessage -> publishStatusUpdate(savedMessage).thenReturn(savedMessage));
+    }
 
-        final String messageId = voiceMessage.getId();
+    /**
+     * Convert a persisted message to speech and record the result
+     *
+     * @param message The persisted message
+     * @return The updated voice message record
+     */
+    private Mono<VoiceMessage> synthesizeMessage(VoiceMessage message) {
+        String messageId = message.getId();
+        Map<String, Long> stageDurations = new ConcurrentHashMap<>();
+
+        // The PROCESSING event is published once its transition is flushed, while synthesis already
+        // runs; the final event waits for it, so events stay in order
+        Mono<Void> processingPublished = updateMessageStatus(message, MessageStatus.PROCESSING).cache();
 
         // Start text-to-speech conversion
-        return updateMessageStatus(messageId, MessageStatus.PROCESSING)
+        return pipelineInstrumentation.timeStage("status-update", messageId, stageDurations,
+                        Mono.fromRunnable(() -> processingPublished.subscribe(null, e -> {
+                            // Reported when the final status waits for this event
+                        })).thenReturn(message))
                 .flatMap(updatedMessage -> {
-                    // Convert text to speech
-                    return textToSpeechService.convertTextToSpeech(text)
-                            .flatMap(audioContent -> {
-                                try {
-                                    // Upload to S3
-                                    String objectKey = s3StorageService.uploadAudioToS3(
-                                            audioContent, "audio/mpeg");
-
-                                    // Update message with S3 location
-                                    updatedMessage.setS3BucketName(s3BucketName);
-                                    updatedMessage.setS3ObjectKey(objectKey);
-                                    updatedMessage.setContentType("audio/mpeg");
-                                    updatedMessage.setFileSizeBytes((long) audioContent.length);
-                                    updatedMessage.setProcessedAt(LocalDateTime.now());
-                                    updatedMessage.setStatus(MessageStatus.COMPLETED);
-                                    updatedMessage.setUpdatedAt(LocalDateTime.now());
-
-                                    // Save updated message
-                                    VoiceMessage savedMessage = voiceMessageRepository.save(updatedMessage);
-
-                                    // Publish COMPLETED status
-                                    publishStatusUpdate(savedMessage);
-
-                                    return Mono.just(savedMessage);
-                                } catch (Exception e) {
-                                    log.error("Error processing voice message", e);
-                                    return handleProcessingError(updatedMessage, e);
-                                }
+                    // Resolve audio from the synthesis cache, converting text to speech on a miss
+                    // Deferred, so a failure while assembling the stage is handled like any other
+                    return pipelineInstrumentation.timeStage("synthesis", messageId, stageDurations,
+                                    Mono.defer(() -> resolveAudio(updatedMessage, stageDurations)))
+                            .flatMap(audio -> {
+                                pipelineInstrumentation.recordAudioSize(AudioFormat.fromContentType(
+                                        audio.getContentType()), updatedMessage.getOriginalText(), audio);
+
+                                // Update message with S3 location
+                                updatedMessage.setS3BucketName(audio.getS3BucketName());
+                                updatedMessage.setS3ObjectKey(audio.getS3ObjectKey());
+                                updatedMessage.setContentType(audio.getContentType());
+                                updatedMessage.setFileSizeBytes(audio.getFileSizeBytes());
+                                updatedMessage.setChecksumSha256(audio.getChecksumSha256());
+                                updatedMessage.setCacheHit(audio.isCacheHit());
+                                updatedMessage.setChunkCount(audio.getChunkCount());
+                                updatedMessage.setChunkDurationsMs(audio.getChunkDurationsMs());
+                                updatedMessage.setStageDurationsMs(new HashMap<>(stageDurations));
+                                updatedMessage.setProcessedAt(LocalDateTime.now());
+                                updatedMessage.setStatus(MessageStatus.COMPLETED);
+                                updatedMessage.setErrorMessage(null);
+                                updatedMessage.setUpdatedAt(LocalDateTime.now());
+
+                                // PROCESSING goes out before COMPLETED is written, so a failure there still fails
+                                // the message; once COMPLETED is persisted, nothing may turn it into FAILED
+                                return processingPublished
+                                        .then(pipelineInstrumentation.timeStage("mongo-save", messageId, null,
+                                                Mono.defer(() -> statusWriteBehindService.write(messageId,
+                                                        MessageStatus.COMPLETED, completionFields(updatedMessage)))))
+                                        .then(Mono.defer(() -> publishStatusUpdate(updatedMessage))
+                                                .onErrorResume(e -> {
+                                                    log.error("Failed to publish COMPLETED status of message {}",
+                                                            messageId, e);
+                                                    return Mono.empty();
+                                                }))
+                                        .thenReturn(updatedMessage);
+                            })
+                            .onErrorResume(e -> {
+                                updatedMessage.setStageDurationsMs(new HashMap<>(stageDurations));
+                                return processingPublished.onErrorResume(ignored -> Mono.empty())
+                                        .then(Mono.defer(() -> handleProcessingError(updatedMessage, e)));
                             })
-                            .onErrorResume(e -> handleProcessingError(updatedMessage, e));
+                            // Provider calls are queued fairly per requester
+                            .contextWrite(context -> updatedMessage.getRequestedBy() != null
+                                    ? context.put(TextToSpeechService.TENANT_CONTEXT_KEY, updatedMessage.getRequestedBy())
+                                    : context);
                 });
     }
 
     /**
-     * Update the status of a message
+     * Resolve the audio for a message, reusing previously synthesized audio when caching is enabled
      *
-     * @param messageId The message ID
-     * @param newStatus The new status
-     * @return The updated message
+     * @param message The message the audio is for, with its requested encoding as content type
+     * @param stageDurations Receives the duration of each synthesis stage
+     * @return The stored audio
+     */
+    private Mono<StoredAudio> resolveAudio(VoiceMessage message, Map<String, Long> stageDurations) {
+        String text = message.getOriginalText();
+        AudioFormat requested = AudioFormat.fromContentType(message.getContentType());
+        AudioFormat format = message.getTemplateId() != null
+                ? templateSynthesisService.effectiveFormat(requested)
+                : longTextSynthesisService.effectiveFormat(text, requested);
+        if (!synthesisCacheService.isEnabled()) {
+            return synthesizeAndStore(message, format, s3StorageService.generateObjectKey(format), stageDurations);
+        }
+
+        String cacheKey = synthesisCacheService.cacheKey(
+                text, textToSpeechService.getModel(), textToSpeechService.getVoice(), format.getResponseFormat());
+
+        return synthesisCacheService.getOrSynthesize(cacheKey, key -> synthesizeAndStore(message, format,
+                synthesisCacheService.objectKeyFor(key, format.getExtension()), stageDurations));
+    }
+
+    /**
+     * Convert a message's text to speech and upload the result to S3
+     *
+     * @param message The message the audio is for
+     * @param format The audio encoding to produce
+     * @param objectKey The S3 object key to store the audio under
+     * @param stageDurations Receives the duration of each synthesis stage
+     * @return The stored audio
      */
-    private Mono<VoiceMessage> updateMessageStatus(String messageId, MessageStatus newStatus) {
-        VoiceMessage message = voiceMessageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
+    private Mono<StoredAudio> synthesizeAndStore(VoiceMessage message, AudioFormat format, String objectKey,
+                                                 Map<String, Long> stageDurations) {
+        String messageId = message.getId();
+        String text = message.getOriginalText();
+
+        if (message.getTemplateId() != null) {
+            return pipelineInstrumentation.timeStage("tts-template", messageId, stageDurations,
+                    templateSynthesisService.synthesizeAndStore(message, format, objectKey));
+        }
 
+        if (longTextSynthesisService.isLongText(text)) {
+            return pipelineInstrumentation.timeStage("tts-long-text", messageId, stageDurations,
+                    longTextSynthesisService.synthesizeAndStore(text, format, objectKey));
+        }
+
+        if (streamingEnabled) {
+            // Pipe the provider response straight into a multipart upload; the two overlap, so they are timed as one
+            return pipelineInstrumentation.timeStage("tts-streaming-upload", messageId, stageDurations,
+                    s3StorageService.streamAudioToS3(
+                            textToSpeechService.streamTextToSpeech(text, format), format.getContentType(), objectKey));
+        }
+
+        return pipelineInstrumentation.timeStage("tts", messageId, stageDurations,
+                        textToSpeechService.convertTextToSpeech(text, format))
+                .flatMap(audioContent -> pipelineInstrumentation.timeStage("s3-upload", messageId, stageDurations,
+                                s3StorageService.uploadAudioToS3Async(audioContent, format.getContentType(), objectKey))
+                        .map(storedKey -> StoredAudio.builder()
+                                .s3BucketName(s3BucketName)
+                                .s3ObjectKey(storedKey)
+                                .contentType(format.getContentType())
+                                .fileSizeBytes((long) audioContent.length)
+                                .build()));
+    }
+
+    /**
+     * Update the status of a message and publish the status event once the update is persisted
+     *
+     * @param message The message, updated in place
+     * @param newStatus The new status
+     * @return A Mono that completes once the status event has been handed to the producer
+     */
+    private Mono<Void> updateMessageStatus(VoiceMessage message, MessageStatus newStatus) {
         message.setStatus(newStatus);
         message.setUpdatedAt(LocalDateTime.now());
 
-        VoiceMessage updatedMessage = voiceMessageRepository.save(message);
-        publishStatusUpdate(updatedMessage);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", newStatus);
+        fields.put("updatedAt", message.getUpdatedAt());
+
+        return Mono.defer(() -> statusWriteBehindService.write(message.getId(), newStatus, fields))
+                .then(publishStatusUpdate(message));
+    }
+
+    /**
+     * The fields a completed message changes
+     *
+     * @param message The completed message
+     * @return Values by property name
+     */
+    static Map<String, Object> completionFields(VoiceMessage message) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("s3BucketName", message.getS3BucketName());
+        fields.put("s3ObjectKey", message.getS3ObjectKey());
+        fields.put("contentType", message.getContentType());
+        fields.put("fileSizeBytes", message.getFileSizeBytes());
+        fields.put("checksumSha256", message.getChecksumSha256());
+        fields.put("cacheHit", message.getCacheHit());
+        fields.put("chunkCount", message.getChunkCount());
+        fields.put("chunkDurationsMs", message.getChunkDurationsMs());
+        fields.put("stageDurationsMs", message.getStageDurationsMs());
+        fields.put("processedAt", message.getProcessedAt());
+        fields.put("status", message.getStatus());
+        // A redelivered message may have failed before
+        fields.put("errorMessage", null);
+        fields.put("updatedAt", message.getUpdatedAt());
+        return fields;
+    }
 
-        return Mono.just(updatedMessage);
+    /**
+     * The fields a failed message changes
+     *
+     * @param message The failed message
+     * @return Values by property name
+     */
+    static Map<String, Object> failureFields(VoiceMessage message) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", message.getStatus());
+        fields.put("errorMessage", message.getErrorMessage());
+        fields.put("stageDurationsMs", message.getStageDurationsMs());
+        fields.put("updatedAt", message.getUpdatedAt());
+        return fields;
     }
 
     /**
@@ -118,40 +431,64 @@ public class MessageTransformerService {
      * @return The updated message with FAILED status
      */
     private Mono<VoiceMessage> handleProcessingError(VoiceMessage message, Throwable e) {
+        log.error("Error processing voice message: {}", message.getId(), e);
+
         message.setStatus(MessageStatus.FAILED);
         message.setErrorMessage(e.getMessage());
         message.setUpdatedAt(LocalDateTime.now());
 
-        VoiceMessage savedMessage = voiceMessageRepository.save(message);
-        publishStatusUpdate(savedMessage);
-
-        return Mono.just(savedMessage);
+        return Mono.defer(() -> statusWriteBehindService.write(message.getId(), MessageStatus.FAILED,
+                        failureFields(message)))
+                .then(publishStatusUpdate(message))
+                .thenReturn(message);
     }
 
     /**
      * Publish a status update to Kafka
+     * <p>
+     * The send is handed to the bounded elastic scheduler because the producer may block on metadata
+     * or a full buffer. The returned Mono completes once the record is handed to the producer, not
+     * when it is acknowledged, which keeps per-message status events in order.
+     *
+     * @param message The voice message
+     * @return A Mono that completes once the status update has been handed to the producer
+     */
+    private Mono<Void> publishStatusUpdate(VoiceMessage message) {
+        VoiceProcessingStatus status = statusOf(message);
+
+        return pipelineInstrumentation.timeStage("kafka-publish", message.getId(), null,
+                Mono.fromRunnable(() -> kafkaProducerService.publishStatusUpdate(status))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then());
+    }
+
+    /**
+     * Build the status event for the current state of a message
      *
      * @param message The voice message
+     * @return The status event
      */
-    private void publishStatusUpdate(VoiceMessage message) {
-        VoiceProcessingStatus status = VoiceProcessingStatus.builder()
+    static VoiceProcessingStatus statusOf(VoiceMessage message) {
+        return VoiceProcessingStatus.builder()
                 .messageId(message.getId())
                 .status(message.getStatus())
                 .timestamp(LocalDateTime.now())
                 .errorMessage(message.getErrorMessage())
                 .s3BucketName(message.getS3BucketName())
                 .s3ObjectKey(message.getS3ObjectKey())
+                .requestedBy(message.getRequestedBy())
                 .build();
-
-        kafkaProducerService.publishStatusUpdate(status);
     }
 
     /**
      * Retrieve a voice message by ID
+     * <p>
+     * Served from the metadata cache, which is kept current by {@link MessageCacheInvalidationListener}.
      *
      * @param messageId The message ID
      * @return The voice message
      */
+    @Cacheable(cacheNames = CacheConfig.VOICE_MESSAGES_CACHE)
     public VoiceMessage getVoiceMessage(String messageId) {
         return voiceMessageRepository.findById(messageId)
                 .orElseThrow(() -> new RuntimeException("Voice message not found: " + messageId));
@@ -0,0 +1,94 @@
+package com.poalim.messagetransformerplatform.service;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for concatenating independently encoded MP3 streams.
+ * <p>
+ * MP3 frames are self-contained, so streams can be joined by concatenating their frames once
+ * per-file metadata is removed from every segment, the first one included: a Xing/Info frame left
+ * at the start of the stitched file would make players report the first segment's duration and
+ * seek within it only.
+ */
+public final class Mp3Stitcher {
+
+    private static final int ID3V1_TAG_SIZE = 128;
+
+    // Layer III bitrates in kbit/s by bitrate index, for MPEG-1 and for MPEG-2/2.5
+    private static final int[] MPEG1_BITRATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MPEG2_BITRATES = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private Mp3Stitcher() {
+    }
+
+    /**
+     * Strip a leading ID3v2 tag, a leading Xing/Info or VBRI frame and a trailing ID3v1 tag,
+     * leaving only audio frames
+     *
+     * @param audio The encoded MP3 segment
+     * @return The frame data, or the input itself when there was nothing to strip
+     */
+    public static byte[] stripTags(byte[] audio) {
+        int start = 0;
+        if (audio.length >= 10 && audio[0] == 'I' && audio[1] == 'D' && audio[2] == '3') {
+            // Synchsafe size: 4 bytes of 7 bits each, excluding the 10-byte header and optional footer
+            int tagSize = ((audio[6] & 0x7F) << 21) | ((audio[7] & 0x7F) << 14)
+                    | ((audio[8] & 0x7F) << 7) | (audio[9] & 0x7F);
+            boolean hasFooter = (audio[5] & 0x10) != 0;
+            start = Math.min(audio.length, 10 + tagSize + (hasFooter ? 10 : 0));
+        }
+        start += infoFrameLength(audio, start);
+
+        int end = audio.length;
+        if (end - start >= ID3V1_TAG_SIZE && audio[end - ID3V1_TAG_SIZE] == 'T'
+                && audio[end - ID3V1_TAG_SIZE + 1] == 'A' && audio[end - ID3V1_TAG_SIZE + 2] == 'G') {
+            end -= ID3V1_TAG_SIZE;
+        }
+
+        return start == 0 && end == audio.length ? audio : Arrays.copyOfRange(audio, start, end);
+    }
+
+    /**
+     * The length of the Layer III frame at the given offset when it carries a Xing, Info or VBRI
+     * header instead of audio, otherwise zero
+     */
+    private static int infoFrameLength(byte[] audio, int offset) {
+        if (audio.length - offset < 4 || (audio[offset] & 0xFF) != 0xFF || (audio[offset + 1] & 0xE0) != 0xE0) {
+            return 0;
+        }
+        int version = (audio[offset + 1] >> 3) & 0x03; // 0 = MPEG-2.5, 2 = MPEG-2, 3 = MPEG-1
+        int layer = (audio[offset + 1] >> 1) & 0x03; // 1 = Layer III
+        int bitrateIndex = (audio[offset + 2] >> 4) & 0x0F;
+        int sampleRateIndex = (audio[offset + 2] >> 2) & 0x03;
+        if (version == 1 || layer != 1 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return 0;
+        }
+        boolean mpeg1 = version == 3;
+        boolean mono = ((audio[offset + 3] >> 6) & 0x03) == 3;
+        int padding = (audio[offset + 2] >> 1) & 0x01;
+
+        int sampleRate = MPEG1_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : version == 2 ? 1 : 2);
+        int bitrate = (mpeg1 ? MPEG1_BITRATES : MPEG2_BITRATES)[bitrateIndex] * 1000;
+        int frameLength = (mpeg1 ? 144 : 72) * bitrate / sampleRate + padding;
+
+        // Xing and Info follow the side information; VBRI always sits 32 bytes after the header
+        int sideInfoSize = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        boolean infoFrame = hasMarker(audio, offset + 4 + sideInfoSize, "Xing")
+                || hasMarker(audio, offset + 4 + sideInfoSize, "Info")
+                || hasMarker(audio, offset + 4 + 32, "VBRI");
+        return infoFrame ? Math.min(frameLength, audio.length - offset) : 0;
+    }
+
+    private static boolean hasMarker(byte[] audio, int offset, String marker) {
+        if (audio.length - offset < marker.length()) {
+            return false;
+        }
+        for (int i = 0; i < marker.length(); i++) {
+            if (audio[offset + i] != marker.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the stages of the message pipeline.
+ * <p>
+ * Each stage is an {@link Observation} named {@value #OBSERVATION_NAME}, which the actuator turns into
+ * a timer and an active-task gauge tagged by stage, outcome, model and voice, and which a tracing
+ * bridge turns into a span carrying the message ID. A stage is the current observation of the work it
+ * wraps, so stages started within it become child spans. Model and voice are those of the backend that
+ * served the stage's provider call, as reported through {@link #recordBackend}, or {@value #NO_BACKEND}
+ * for stages that made none; the active-task gauge is tagged when the stage starts, so it always shows
+ * {@value #NO_BACKEND}. Freshly synthesized audio is also measured per format, so the storage and
+ * egress cost of each encoding can be compared.
+ */
+@Service
+@RequiredArgsConstructor
+public class PipelineInstrumentation {
+
+    public static final String OBSERVATION_NAME = "pipeline.stage";
+
+    static final String NO_BACKEND = "none";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Time a pipeline stage
+     *
+     * @param stage The stage name
+     * @param messageId The message the stage runs for
+     * @param stageDurations Receives the stage's duration in milliseconds on success, or null to skip
+     * @param work The stage, started on subscription
+     * @return The stage's result
+     */
+    public <T> Mono<T> timeStage(String stage, String messageId, Map<String, Long> stageDurations, Mono<T> work) {
+        return Mono.deferContextual(context -> {
+            Observation observation = startObservation(stage, messageId,
+                    context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            long startNanos = System.nanoTime();
+
+            return work
+                    .doOnSuccess(result -> {
+                        if (stageDurations != null) {
+                            stageDurations.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                        }
+                        observation.lowCardinalityKeyValue("outcome", "success").stop();
+                    })
+                    .doOnError(e -> observation.lowCardinalityKeyValue("outcome", "error").error(e).stop())
+                    .doOnCancel(() -> observation.lowCardinalityKeyValue("outcome", "cancelled").stop())
+                    .contextWrite(workContext -> workContext.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Time a blocking pipeline stage
+     *
+     * @param stage The stage name
+     * @param messageId The message the stage runs for
+     * @param stageDurations Receives the stage's duration in milliseconds on success, or null to skip
+     * @param work The stage, run on the calling thread
+     * @return The stage's result
+     */
+    public <T> T timeStage(String stage, String messageId, Map<String, Long> stageDurations, Supplier<T> work) {
+        Observation observation = startObservation(stage, messageId, observationRegistry.getCurrentObservation());
+        long startNanos = System.nanoTime();
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = work.get();
+            if (stageDurations != null) {
+                stageDurations.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+            observation.lowCardinalityKeyValue("outcome", "success").stop();
+            return result;
+        } catch (RuntimeException e) {
+            observation.lowCardinalityKeyValue("outcome", "error").error(e).stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Run a reactive call under the stage open on the calling thread, as within a blocking
+     * {@link #timeStage(String, String, Map, Supplier)}, so it can report its backend to the stage
+     *
+     * @param call The call
+     * @return The call, carrying the current stage in its context
+     */
+    public <T> Mono<T> inCurrentStage(Mono<T> call) {
+        Observation current = observationRegistry.getCurrentObservation();
+        return current != null
+                ? call.contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, current))
+                : call;
+    }
+
+    /**
+     * Tag the stages a provider call runs in with the backend that served it
+     *
+     * @param context The provider call's subscriber context
+     * @param model The model the backend synthesized with
+     * @param voice The voice the backend synthesized with
+     */
+    public static void recordBackend(ContextView context, String model, String voice) {
+        // The innermost stage and every stage enclosing it
+        Observation observation = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        while (observation != null && OBSERVATION_NAME.equals(observation.getContext().getName())) {
+            observation.lowCardinalityKeyValue("model", model).lowCardinalityKeyValue("voice", voice);
+            observation = observation.getContext().getParentObservation() instanceof Observation parent ? parent : null;
+        }
+    }
+
+    /**
+     * Record the size of freshly synthesized audio
+     * <p>
+     * Size per input character stands in for bitrate: speech rate is roughly constant for a voice, and
+     * the audio duration is not known without decoding it.
+     *
+     * @param format The audio encoding
+     * @param text The text the audio was synthesized from
+     * @param audio The stored audio; cache hits are skipped, since they add no bytes
+     */
+    public void recordAudioSize(AudioFormat format, String text, StoredAudio audio) {
+        if (audio.isCacheHit() || audio.getFileSizeBytes() == null || text.isEmpty()) {
+            return;
+        }
+        String tag = format.getResponseFormat();
+        DistributionSummary.builder("audio.size")
+                .baseUnit("bytes")
+                .tag("format", tag)
+                .register(meterRegistry)
+                .record(audio.getFileSizeBytes());
+        DistributionSummary.builder("audio.size.per.char")
+                .baseUnit("bytes")
+                .tag("format", tag)
+                .register(meterRegistry)
+                .record((double) audio.getFileSizeBytes() / text.length());
+    }
+
+    private Observation startObservation(String stage, String messageId, Observation parent) {
+        return Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .parentObservation(parent)
+                .contextualName(stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .lowCardinalityKeyValue("model", NO_BACKEND)
+                .lowCardinalityKeyValue("voice", NO_BACKEND)
+                .highCardinalityKeyValue("message.id", messageId)
+                .start();
+    }
+}
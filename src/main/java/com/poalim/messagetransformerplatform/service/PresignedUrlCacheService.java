@@ -0,0 +1,116 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.PresignedUrlCacheProperties;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reuses presigned audio URLs while enough of their validity remains.
+ * <p>
+ * Message IDs are mapped to their S3 object keys as well, which never change once a message has
+ * audio, so a hit needs neither a database read nor a new signature.
+ */
+@Service
+@Slf4j
+public class PresignedUrlCacheService {
+
+    private final S3StorageService s3StorageService;
+    private final MessageTransformerService messageTransformerService;
+    private final PresignedUrlCacheProperties cacheProperties;
+
+    private final Map<String, String> objectKeysByMessageId;
+    private final Map<String, CachedUrl> urlsByKey;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PresignedUrlCacheService(S3StorageService s3StorageService,
+                                    MessageTransformerService messageTransformerService,
+                                    PresignedUrlCacheProperties cacheProperties,
+                                    MeterRegistry meterRegistry) {
+        this.s3StorageService = s3StorageService;
+        this.messageTransformerService = messageTransformerService;
+        this.cacheProperties = cacheProperties;
+        this.objectKeysByMessageId = boundedLruMap(cacheProperties.getMaxEntries());
+        this.urlsByKey = boundedLruMap(cacheProperties.getMaxEntries());
+
+        this.hits = meterRegistry.counter("presigned.url.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("presigned.url.cache.requests", "result", "miss");
+    }
+
+    /**
+     * Get a presigned URL for a voice message audio file
+     *
+     * @param messageId The message ID
+     * @return The presigned URL, or null if the message has no audio yet
+     */
+    public URL getAudioUrl(String messageId) {
+        String objectKey;
+        synchronized (objectKeysByMessageId) {
+            objectKey = objectKeysByMessageId.get(messageId);
+        }
+
+        if (objectKey == null) {
+            VoiceMessage message = messageTransformerService.getVoiceMessage(messageId);
+            if (message.getS3ObjectKey() == null) {
+                return null;
+            }
+            objectKey = message.getS3ObjectKey();
+            synchronized (objectKeysByMessageId) {
+                objectKeysByMessageId.put(messageId, objectKey);
+            }
+        }
+
+        return getPresignedUrl(objectKey, cacheProperties.getExpiration());
+    }
+
+    /**
+     * Get a presigned URL for an object, reusing a cached one while it is fresh enough
+     *
+     * @param objectKey The S3 object key
+     * @param expiration How long a newly signed URL should be valid
+     * @return The presigned URL
+     */
+    public URL getPresignedUrl(String objectKey, Duration expiration) {
+        String cacheKey = objectKey + "|" + expiration.toSeconds();
+        Instant now = Instant.now();
+
+        synchronized (urlsByKey) {
+            CachedUrl cached = urlsByKey.get(cacheKey);
+            if (cached != null && now.isBefore(cached.reuseUntil())) {
+                hits.increment();
+                return cached.url();
+            }
+        }
+
+        misses.increment();
+        URL url = s3StorageService.generatePresignedUrl(objectKey, expiration);
+        Instant reuseUntil = now.plusMillis((long) (expiration.toMillis() * cacheProperties.getReuseFraction()));
+
+        synchronized (urlsByKey) {
+            urlsByKey.put(cacheKey, new CachedUrl(url, reuseUntil));
+        }
+        return url;
+    }
+
+    private static <V> Map<String, V> boundedLruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private record CachedUrl(URL url, Instant reuseUntil) {
+    }
+}
@@ -0,0 +1,277 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.ProviderLimiterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adaptive concurrency limit for calls to the TTS provider.
+ * <p>
+ * The limit follows AIMD: it grows by one per limit's worth of fast successes and is cut
+ * multiplicatively on 429, 5xx or responses slower than the latency threshold. Callers over the limit
+ * wait in a bounded queue that is served weighted-fair across tenants by stride scheduling, so a
+ * burst from one {@code requestedBy} cannot starve the others.
+ * <p>
+ * A call's latency is measured up to its first item, which for a streamed response is the first
+ * buffer from the provider, so a slow downstream consumer does not read as provider congestion.
+ */
+@Service
+@Slf4j
+public class ProviderConcurrencyLimiter {
+
+    private final ProviderLimiterProperties limiterProperties;
+
+    private final Object lock = new Object();
+    private final Map<String, TenantQueue> tenantQueues = new HashMap<>();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double virtualTime;
+    private long lastBackoffNanos;
+
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+    private final Counter backoffs;
+
+    public ProviderConcurrencyLimiter(ProviderLimiterProperties limiterProperties, MeterRegistry meterRegistry) {
+        this.limiterProperties = limiterProperties;
+        this.limit = limiterProperties.getInitialLimit();
+
+        this.queueFullRejections = meterRegistry.counter("tts.limiter.rejections", "reason", "queue_full");
+        this.timeoutRejections = meterRegistry.counter("tts.limiter.rejections", "reason", "timeout");
+        this.backoffs = meterRegistry.counter("tts.limiter.backoffs");
+        Gauge.builder("tts.limiter.limit", this, ProviderConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("tts.limiter.in.flight", this, ProviderConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("tts.limiter.queue.depth", this, ProviderConcurrencyLimiter::getQueueDepth).register(meterRegistry);
+    }
+
+    /**
+     * Run a provider call once the tenant is granted a permit
+     *
+     * @param tenant Who the call is made for
+     * @param call The provider call, subscribed to only after a permit is granted
+     * @return The call's output, or an error if the queue is full or the wait times out
+     */
+    public <T> Flux<T> limit(String tenant, Flux<T> call) {
+        if (!limiterProperties.isEnabled()) {
+            return call;
+        }
+
+        return Flux.usingWhen(
+                acquire(tenant),
+                permit -> call.doOnNext(item -> permit.markFirstItem()),
+                permit -> Mono.fromRunnable(() -> release(permit, null)),
+                (permit, error) -> Mono.fromRunnable(() -> release(permit, error)),
+                permit -> Mono.fromRunnable(() -> release(permit, null)));
+    }
+
+    public double getLimit() {
+        synchronized (lock) {
+            return limit;
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    private Mono<Permit> acquire(String tenant) {
+        return Mono.<Permit>create(sink -> {
+                    Waiter waiter;
+                    synchronized (lock) {
+                        if (queued == 0 && inFlight < (int) limit) {
+                            inFlight++;
+                            waiter = null;
+                        } else if (queued >= limiterProperties.getMaxQueueSize()) {
+                            queueFullRejections.increment();
+                            sink.error(new RuntimeException("TTS provider queue is full"));
+                            return;
+                        } else {
+                            waiter = enqueue(tenant, sink);
+                        }
+                    }
+
+                    if (waiter == null) {
+                        sink.success(new Permit());
+                        return;
+                    }
+                    sink.onCancel(() -> cancel(waiter));
+                })
+                .timeout(limiterProperties.getMaxWait())
+                .onErrorMap(TimeoutException.class, e -> {
+                    timeoutRejections.increment();
+                    return new RuntimeException("Timed out waiting for a TTS provider slot", e);
+                });
+    }
+
+    private Waiter enqueue(String tenant, MonoSink<Permit> sink) {
+        TenantQueue tenantQueue = tenantQueues.computeIfAbsent(tenant, key -> new TenantQueue(
+                limiterProperties.getTenantWeights().getOrDefault(key, limiterProperties.getDefaultWeight())));
+        if (tenantQueue.waiters.isEmpty()) {
+            // A tenant that was idle rejoins at the current virtual time instead of cashing in past idleness
+            tenantQueue.pass = Math.max(tenantQueue.pass, virtualTime);
+        }
+        Waiter waiter = new Waiter(sink);
+        tenantQueue.waiters.add(waiter);
+        queued++;
+        return waiter;
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (lock) {
+            if (waiter.permit != null) {
+                // Granted concurrently with the cancellation; the permit may or may not have been
+                // delivered, so whichever of this and the release comes second does nothing
+                if (waiter.permit.markReleased()) {
+                    inFlight--;
+                }
+            } else {
+                for (TenantQueue tenantQueue : tenantQueues.values()) {
+                    if (tenantQueue.waiters.remove(waiter)) {
+                        queued--;
+                        break;
+                    }
+                }
+            }
+        }
+        grantAvailable();
+    }
+
+    private void release(Permit permit, Throwable error) {
+        if (!permit.markReleased()) {
+            return;
+        }
+        long latencyNanos = permit.latencyNanos();
+        synchronized (lock) {
+            inFlight--;
+            if (isCongestionSignal(error) || latencyNanos > limiterProperties.getLatencyThreshold().toNanos()) {
+                backOff();
+            } else if (error == null) {
+                limit = Math.min(limiterProperties.getMaxLimit(), limit + 1.0 / limit);
+            }
+        }
+        grantAvailable();
+    }
+
+    private void backOff() {
+        long now = System.nanoTime();
+        if (now - lastBackoffNanos < limiterProperties.getBackoffCooldown().toNanos()) {
+            return;
+        }
+        lastBackoffNanos = now;
+        limit = Math.max(limiterProperties.getMinLimit(), limit * limiterProperties.getBackoffRatio());
+        backoffs.increment();
+        log.warn("TTS provider congestion, concurrency limit lowered to {}", (int) limit);
+    }
+
+    private void grantAvailable() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (lock) {
+            while (queued > 0 && inFlight < (int) limit) {
+                Waiter waiter = nextWaiter();
+                waiter.permit = new Permit();
+                inFlight++;
+                queued--;
+                granted.add(waiter);
+            }
+        }
+        // Completed outside the lock, since subscribers may start the provider call synchronously
+        for (Waiter waiter : granted) {
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private Waiter nextWaiter() {
+        TenantQueue next = null;
+        Iterator<TenantQueue> iterator = tenantQueues.values().iterator();
+        while (iterator.hasNext()) {
+            TenantQueue tenantQueue = iterator.next();
+            if (tenantQueue.waiters.isEmpty()) {
+                if (tenantQueue.pass <= virtualTime) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            if (next == null || tenantQueue.pass < next.pass) {
+                next = tenantQueue;
+            }
+        }
+
+        virtualTime = next.pass;
+        next.pass += 1.0 / next.weight;
+        return next.waiters.poll();
+    }
+
+    private static boolean isCongestionSignal(Throwable error) {
+        return error instanceof WebClientResponseException responseException
+                && (responseException.getStatusCode().value() == 429 || responseException.getStatusCode().is5xxServerError());
+    }
+
+    private static final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long firstItemNanos;
+
+        private void markFirstItem() {
+            // Items arrive one at a time, so only the first one can see zero
+            if (firstItemNanos == 0) {
+                firstItemNanos = System.nanoTime();
+            }
+        }
+
+        private long latencyNanos() {
+            long end = firstItemNanos;
+            return (end != 0 ? end : System.nanoTime()) - startNanos;
+        }
+
+        private boolean markReleased() {
+            return released.compareAndSet(false, true);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private Permit permit; // Set under the lock once granted
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    private static final class TenantQueue {
+
+        private final int weight;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private double pass;
+
+        private TenantQueue(int weight) {
+            this.weight = Math.max(1, weight);
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.poalim.messagetransformerplatform.service;
 
 import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
 import java.net.URL;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -22,6 +47,7 @@ import java.util.UUID;
 public class S3StorageService {
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
     private final S3Presigner s3Presigner;
     private final AwsS3Properties s3Properties;
 
@@ -33,8 +59,18 @@ public class S3StorageService {
      * @return The S3 object key where the file was stored
      */
     public String uploadAudioToS3(byte[] audioContent, String contentType) {
-        String objectKey = generateObjectKey();
+        return uploadAudioToS3(audioContent, contentType, generateObjectKey(AudioFormat.fromContentType(contentType)));
+    }
 
+    /**
+     * Upload audio content to S3 bucket under a given object key
+     *
+     * @param audioContent The audio file content
+     * @param contentType The MIME type of the audio file
+     * @param objectKey The S3 object key to store the file under
+     * @return The S3 object key where the file was stored
+     */
+    public String uploadAudioToS3(byte[] audioContent, String contentType, String objectKey) {
         try {
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(s3Properties.getBucketName())
@@ -53,6 +89,153 @@ public class S3StorageService {
         }
     }
 
+    /**
+     * Upload audio content to S3 bucket under a given object key without blocking the caller
+     *
+     * @param audioContent The audio file content
+     * @param contentType The MIME type of the audio file
+     * @param objectKey The S3 object key to store the file under
+     * @return The S3 object key where the file was stored
+     */
+    public Mono<String> uploadAudioToS3Async(byte[] audioContent, String contentType, String objectKey) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(objectKey)
+                .contentType(contentType)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromBytesUnsafe(audioContent)))
+                .map(response -> {
+                    log.info("Successfully uploaded audio file to S3: bucket={}, key={}, size={} bytes",
+                            s3Properties.getBucketName(), objectKey, audioContent.length);
+                    return objectKey;
+                })
+                .onErrorMap(e -> {
+                    log.error("Failed to upload audio file to S3", e);
+                    return new RuntimeException("Failed to upload audio file to S3: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Stream audio content into S3 using a multipart upload as it arrives
+     * <p>
+     * At most one part is accumulated in memory at a time, and size and SHA-256 checksum are
+     * computed on the fly. Audio that ends before the first part fills, which is most messages, is
+     * stored with a single PutObject instead. A multipart upload is aborted if the audio stream
+     * fails or the upload is cancelled.
+     *
+     * @param audioContent The audio stream; buffers are released once copied into a part
+     * @param contentType The MIME type of the audio file
+     * @param objectKey The S3 object key to store the file under
+     * @return The stored audio with its size and checksum
+     */
+    public Mono<StoredAudio> streamAudioToS3(Flux<DataBuffer> audioContent, String contentType, String objectKey) {
+        String bucketName = s3Properties.getBucketName();
+
+        return Mono.defer(() -> {
+                    PartAccumulator accumulator = new PartAccumulator(s3Properties.getMultipartPartSizeBytes());
+                    Flux<byte[]> parts = audioContent
+                            .concatMapIterable(accumulator::append)
+                            .concatWith(Mono.fromSupplier(accumulator::drain).filter(part -> part.length > 0
+                                    || accumulator.getPartCount() == 0));
+
+                    return parts
+                            .switchOnFirst((first, all) -> {
+                                // The first part is also the last when the stream ended before it filled
+                                if (first.hasValue() && accumulator.isDrained()) {
+                                    return putSinglePart(bucketName, objectKey, contentType, first.get()).flux();
+                                }
+                                return uploadMultipart(bucketName, objectKey, contentType, all).flux();
+                            })
+                            .then(Mono.fromSupplier(() -> {
+                                log.info("Successfully streamed audio file to S3: bucket={}, key={}, size={} bytes, parts={}",
+                                        bucketName, objectKey, accumulator.getSize(), accumulator.getPartCount());
+
+                                return StoredAudio.builder()
+                                        .s3BucketName(bucketName)
+                                        .s3ObjectKey(objectKey)
+                                        .contentType(contentType)
+                                        .fileSizeBytes(accumulator.getSize())
+                                        .checksumSha256(accumulator.checksum())
+                                        .build();
+                            }));
+                })
+                .onErrorMap(e -> {
+                    log.error("Failed to stream audio file to S3: {}", objectKey, e);
+                    return new RuntimeException("Failed to stream audio file to S3: " + e.getMessage(), e);
+                });
+    }
+
+    private Mono<Void> putSinglePart(String bucketName, String objectKey, String contentType, byte[] content) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .contentType(contentType)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromBytesUnsafe(content)))
+                .then();
+    }
+
+    private Mono<Void> uploadMultipart(String bucketName, String objectKey, String contentType, Flux<byte[]> parts) {
+        CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .contentType(contentType)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.createMultipartUpload(createRequest))
+                .flatMap(created -> {
+                    String uploadId = created.uploadId();
+
+                    return parts
+                            .index()
+                            .concatMap(part -> uploadPart(bucketName, objectKey, uploadId,
+                                    part.getT1().intValue() + 1, part.getT2()), 1)
+                            .collectList()
+                            .flatMap(completedParts -> Mono.fromFuture(() -> s3AsyncClient.completeMultipartUpload(
+                                    CompleteMultipartUploadRequest.builder()
+                                            .bucket(bucketName)
+                                            .key(objectKey)
+                                            .uploadId(uploadId)
+                                            .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                                            .build())))
+                            .onErrorResume(e -> abortMultipartUpload(bucketName, objectKey, uploadId)
+                                    .then(Mono.error(e)))
+                            // Hedge losers, timeouts and client disconnects cancel; uploaded parts are billed until aborted
+                            .doOnCancel(() -> abortMultipartUpload(bucketName, objectKey, uploadId).subscribe())
+                            .then();
+                });
+    }
+
+    private Mono<CompletedPart> uploadPart(String bucketName, String objectKey, String uploadId,
+                                           int partNumber, byte[] content) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) content.length)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.uploadPart(uploadPartRequest, AsyncRequestBody.fromBytesUnsafe(content)))
+                .map(response -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.eTag())
+                        .build());
+    }
+
+    private Mono<Void> abortMultipartUpload(String bucketName, String objectKey, String uploadId) {
+        return Mono.fromFuture(() -> s3AsyncClient.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectKey)
+                        .uploadId(uploadId)
+                        .build()))
+                .doOnError(e -> log.warn("Failed to abort multipart upload: key={}, uploadId={}", objectKey, uploadId, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
     /**
      * Generate a pre-signed URL for accessing the audio file
      *
@@ -109,12 +292,169 @@ public class S3StorageService {
         }
     }
 
+    /**
+     * Download audio content from S3 straight to a file
+     *
+     * @param objectKey The S3 object key
+     * @param target The file to write; must not exist yet
+     * @return The number of bytes written
+     */
+    public long downloadAudioToFile(String objectKey, Path target) {
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(s3Properties.getBucketName())
+                    .key(objectKey)
+                    .build();
+
+            GetObjectResponse response = s3Client.getObject(getObjectRequest, ResponseTransformer.toFile(target));
+            log.info("Successfully downloaded audio file from S3 to disk: bucket={}, key={}, size={} bytes",
+                    s3Properties.getBucketName(), objectKey, response.contentLength());
+
+            return response.contentLength();
+        } catch (Exception e) {
+            log.error("Failed to download audio file from S3: {}", objectKey, e);
+            throw new RuntimeException("Failed to download audio file from S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Download an object from S3 straight to a file without blocking the caller
+     *
+     * @param objectKey The S3 object key
+     * @param target The file to write; must not exist yet
+     * @return The number of bytes written
+     */
+    public Mono<Long> downloadToFileAsync(String objectKey, Path target) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(objectKey)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toFile(target)))
+                .map(GetObjectResponse::contentLength);
+    }
+
+    /**
+     * Upload a file to S3 without blocking the caller or reading it into memory
+     *
+     * @param source The file to upload; at most 5 GiB
+     * @param contentType The MIME type of the file
+     * @param objectKey The S3 object key to store the file under
+     * @return The S3 object key where the file was stored
+     */
+    public Mono<String> uploadFileToS3Async(Path source, String contentType, String objectKey) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(s3Properties.getBucketName())
+                .key(objectKey)
+                .contentType(contentType)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromFile(source)))
+                .map(response -> {
+                    log.info("Successfully uploaded file to S3: bucket={}, key={}", s3Properties.getBucketName(), objectKey);
+                    return objectKey;
+                })
+                .onErrorMap(e -> {
+                    log.error("Failed to upload file to S3: {}", objectKey, e);
+                    return new RuntimeException("Failed to upload file to S3: " + e.getMessage(), e);
+                });
+    }
+
     /**
      * Generate a unique object key for an audio file
      *
+     * @param format The audio encoding, which sets the key's extension
      * @return A unique object key
      */
-    private String generateObjectKey() {
-        return "audio/" + UUID.randomUUID() + ".mp3";
+    public String generateObjectKey(AudioFormat format) {
+        return "audio/" + UUID.randomUUID() + "." + format.getExtension();
+    }
+
+    /**
+     * Collects streamed buffers into fixed-size multipart upload parts while tracking size and checksum
+     */
+    private static class PartAccumulator {
+
+        private static final int INITIAL_CAPACITY = 64 * 1024;
+
+        private final int partSize;
+        private final MessageDigest digest;
+        private byte[] current = new byte[0];
+        private int position;
+        @Getter
+        private boolean drained;
+        @Getter
+        private long size;
+        @Getter
+        private int partCount;
+
+        PartAccumulator(int partSize) {
+            this.partSize = partSize;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        /**
+         * Copy a buffer into the current part and release it
+         *
+         * @param buffer The buffer to append
+         * @return The parts completed by this buffer, usually none
+         */
+        List<byte[]> append(DataBuffer buffer) {
+            List<byte[]> completed = new ArrayList<>(1);
+            try {
+                while (buffer.readableByteCount() > 0) {
+                    int length = Math.min(partSize - position, buffer.readableByteCount());
+                    ensureCapacity(position + length);
+                    buffer.read(current, position, length);
+                    digest.update(current, position, length);
+                    position += length;
+                    size += length;
+
+                    if (position == partSize) {
+                        completed.add(current);
+                        partCount++;
+                        current = new byte[0];
+                        position = 0;
+                    }
+                }
+                return completed;
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        /**
+         * Take the remaining bytes as the final, possibly short, part
+         *
+         * @return The final part
+         */
+        byte[] drain() {
+            byte[] last = current.length == position ? current : Arrays.copyOf(current, position);
+            current = new byte[0];
+            position = 0;
+            drained = true;
+            if (last.length > 0) {
+                partCount++;
+            }
+            return last;
+        }
+
+        /**
+         * Grow the current part by doubling, so short audio never allocates a full part
+         */
+        private void ensureCapacity(int required) {
+            if (current.length < required) {
+                current = Arrays.copyOf(current, Math.min(partSize,
+                        Math.max(required, Math.max(INITIAL_CAPACITY, current.length * 2))));
+            }
+        }
+
+        String checksum() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.SloStreamsConfig;
+import com.poalim.messagetransformerplatform.config.SloStreamsProperties;
+import com.poalim.messagetransformerplatform.model.SloWindow;
+import com.poalim.messagetransformerplatform.model.SloWindowReport;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Interactive queries over the per-requester SLO windows built by {@link SloStreamsConfig}.
+ * <p>
+ * Each instance holds the windows of the requesters whose partitions it owns; {@link #ownerOf} tells
+ * which instance to ask for a requester hosted elsewhere.
+ */
+@Service
+@RequiredArgsConstructor
+public class SloQueryService {
+
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final SloStreamsProperties sloStreamsProperties;
+
+    /**
+     * Whether the topology is running and its stores can be queried
+     *
+     * @return True if queries can be served
+     */
+    public boolean isQueryable() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        return kafkaStreams != null && kafkaStreams.state() == KafkaStreams.State.RUNNING;
+    }
+
+    /**
+     * Find the instance owning a requester's windows, when it is not this one
+     *
+     * @param requestedBy The requester
+     * @return The owning instance's host, or empty if the windows are held locally or ownership is unknown
+     */
+    public Optional<HostInfo> ownerOf(String requestedBy) {
+        // Without an advertised endpoint the instance runs alone and owns every requester
+        String endpoint = streamsBuilderFactoryBean.getStreamsConfiguration()
+                .getProperty(StreamsConfig.APPLICATION_SERVER_CONFIG, "");
+        if (endpoint.isBlank()) {
+            return Optional.empty();
+        }
+
+        KeyQueryMetadata metadata = kafkaStreams().queryMetadataForKey(
+                SloStreamsConfig.SLO_WINDOWS_STORE, requestedBy, Serdes.String().serializer());
+        if (metadata == null || metadata.equals(KeyQueryMetadata.NOT_AVAILABLE)
+                || metadata.activeHost().equals(HostInfo.buildFromEndpoint(endpoint))) {
+            return Optional.empty();
+        }
+        return Optional.of(metadata.activeHost());
+    }
+
+    /**
+     * Get a requester's windows, oldest first
+     *
+     * @param requestedBy The requester
+     * @param since Only include windows starting at or after this time
+     * @return The window reports held by this instance
+     */
+    public List<SloWindowReport> getWindows(String requestedBy, Instant since) {
+        List<SloWindowReport> reports = new ArrayList<>();
+        try (WindowStoreIterator<SloWindow> windows = store().fetch(requestedBy, since, Instant.now())) {
+            while (windows.hasNext()) {
+                KeyValue<Long, SloWindow> window = windows.next();
+                Instant start = Instant.ofEpochMilli(window.key);
+                reports.add(toReport(requestedBy, start, window.value));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Get the windows of every requester held by this instance
+     *
+     * @param since Only include windows starting at or after this time
+     * @return The window reports, grouped by requester
+     */
+    public List<SloWindowReport> getLocalWindows(Instant since) {
+        List<SloWindowReport> reports = new ArrayList<>();
+        try (KeyValueIterator<Windowed<String>, SloWindow> windows = store().fetchAll(since, Instant.now())) {
+            while (windows.hasNext()) {
+                KeyValue<Windowed<String>, SloWindow> window = windows.next();
+                reports.add(toReport(window.key.key(), window.key.window().startTime(), window.value));
+            }
+        }
+        return reports;
+    }
+
+    private SloWindowReport toReport(String requestedBy, Instant start, SloWindow window) {
+        Duration size = sloStreamsProperties.getWindow();
+        double minutes = size.toMillis() / 60_000.0;
+
+        return SloWindowReport.builder()
+                .requestedBy(requestedBy)
+                .windowStart(start)
+                .windowEnd(start.plus(size))
+                .finished(window.getCount())
+                .throughputPerMinute(window.getCount() / minutes)
+                .failures(window.getFailures())
+                .failureRate(window.getFailureRate())
+                .latencyP50Ms(window.latencyPercentileMs(0.5))
+                .latencyP95Ms(window.latencyPercentileMs(0.95))
+                .latencyP99Ms(window.latencyPercentileMs(0.99))
+                .latencyMeanMs(window.getMeanLatencyMs())
+                .latencyMaxMs(window.getMaxLatencyMs())
+                .build();
+    }
+
+    private ReadOnlyWindowStore<String, SloWindow> store() {
+        return kafkaStreams().store(StoreQueryParameters.fromNameAndType(
+                SloStreamsConfig.SLO_WINDOWS_STORE, QueryableStoreTypes.windowStore()));
+    }
+
+    private KafkaStreams kafkaStreams() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null) {
+            throw new IllegalStateException("SLO streams are not running");
+        }
+        return kafkaStreams;
+    }
+}
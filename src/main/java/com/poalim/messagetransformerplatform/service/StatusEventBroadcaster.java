@@ -0,0 +1,164 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.StatusStreamProperties;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory registry fanning status events out to the clients watching them.
+ * <p>
+ * Each subscription gets a bounded buffer and is registered under every message it watches; events
+ * from {@link StatusStreamListener} are offered to those buffers and never block the consumer. A
+ * subscriber whose buffer fills up is ended, and reconnecting gives it a fresh snapshot. Entries are
+ * removed as soon as nobody watches a message, so memory follows the number of open subscriptions.
+ */
+@Service
+@Slf4j
+public class StatusEventBroadcaster {
+
+    private final ReactiveVoiceMessageRepository reactiveVoiceMessageRepository;
+    private final StatusStreamProperties streamProperties;
+
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter overflows;
+
+    public StatusEventBroadcaster(ReactiveVoiceMessageRepository reactiveVoiceMessageRepository,
+                                  StatusStreamProperties streamProperties,
+                                  MeterRegistry meterRegistry) {
+        this.reactiveVoiceMessageRepository = reactiveVoiceMessageRepository;
+        this.streamProperties = streamProperties;
+
+        this.overflows = meterRegistry.counter("status.stream.overflows");
+        Gauge.builder("status.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("status.stream.watched.messages", subscriptions, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Watch the status of some messages until each reaches COMPLETED or FAILED
+     * <p>
+     * The current status of each message is emitted first, followed by its later transitions. Messages
+     * that do not exist are reported once with a null status; failing to read the snapshot ends the stream.
+     *
+     * @param messageIds The messages to watch
+     * @return The status events, completing once every watched message is finished
+     */
+    public Flux<VoiceProcessingStatus> watch(Collection<String> messageIds) {
+        Set<String> ids = new LinkedHashSet<>(messageIds);
+
+        return Flux.defer(() -> {
+            // Register before reading the snapshot, so no transition can slip in between the two
+            Subscription subscription = new Subscription(ids, streamProperties.getSubscriberBufferSize());
+            ids.forEach(id -> subscriptions.compute(id, (key, subscribers) -> {
+                Set<Subscription> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                updated.add(subscription);
+                return updated;
+            }));
+            subscriberCount.incrementAndGet();
+
+            Map<String, MessageStatus> lastSeen = new HashMap<>();
+            Set<String> pending = new LinkedHashSet<>(ids);
+
+            return Flux.concat(snapshot(ids), subscription.sink.asFlux())
+                    // Drop anything the snapshot or an earlier event already covered
+                    .filter(event -> {
+                        MessageStatus previous = lastSeen.get(event.getMessageId());
+                        if (!pending.contains(event.getMessageId())
+                                || previous != null && event.getStatus() != null
+                                && event.getStatus().ordinal() <= previous.ordinal()) {
+                            return false;
+                        }
+                        lastSeen.put(event.getMessageId(), event.getStatus());
+                        if (event.getStatus() == null || isFinished(event.getStatus())) {
+                            pending.remove(event.getMessageId());
+                        }
+                        return true;
+                    })
+                    .takeUntil(event -> pending.isEmpty())
+                    .doFinally(signal -> unregister(subscription));
+        });
+    }
+
+    /**
+     * Offer a status event to every subscription watching its message
+     *
+     * @param status The status event
+     */
+    public void publish(VoiceProcessingStatus status) {
+        Set<Subscription> subscribers = subscriptions.get(status.getMessageId());
+        if (subscribers == null) {
+            return;
+        }
+
+        for (Subscription subscriber : subscribers) {
+            Sinks.EmitResult result = subscriber.sink.tryEmitNext(status);
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                overflows.increment();
+                subscriber.sink.tryEmitError(new IllegalStateException("Status subscriber fell behind"));
+            } else if (result.isFailure() && result != Sinks.EmitResult.FAIL_TERMINATED
+                    && result != Sinks.EmitResult.FAIL_CANCELLED) {
+                log.debug("Dropped status event for message {}: {}", status.getMessageId(), result);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private Flux<VoiceProcessingStatus> snapshot(Set<String> ids) {
+        // Read from the database rather than the metadata cache, which lags status transitions
+        return Flux.fromIterable(ids)
+                .concatMap(id -> reactiveVoiceMessageRepository.findById(id)
+                        .map(MessageTransformerService::statusOf)
+                        .switchIfEmpty(Mono.fromSupplier(() -> VoiceProcessingStatus.builder()
+                                .messageId(id)
+                                .timestamp(LocalDateTime.now())
+                                .errorMessage("Voice message not found")
+                                .build())));
+    }
+
+    private void unregister(Subscription subscription) {
+        subscription.messageIds.forEach(id -> subscriptions.computeIfPresent(id, (key, subscribers) -> {
+            subscribers.remove(subscription);
+            return subscribers.isEmpty() ? null : subscribers;
+        }));
+        subscriberCount.decrementAndGet();
+    }
+
+    private static boolean isFinished(MessageStatus status) {
+        return status == MessageStatus.COMPLETED || status == MessageStatus.FAILED;
+    }
+
+    private static final class Subscription {
+
+        private final Set<String> messageIds;
+        private final Sinks.Many<VoiceProcessingStatus> sink;
+
+        private Subscription(Set<String> messageIds, int bufferSize) {
+            this.messageIds = messageIds;
+            this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<VoiceProcessingStatus>get(bufferSize).get());
+        }
+    }
+}
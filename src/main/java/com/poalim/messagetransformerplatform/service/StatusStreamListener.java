@@ -0,0 +1,36 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Feeds status events to the clients of this instance streaming them over SSE.
+ * <p>
+ * Runs in its own per-instance consumer group, so every instance sees every event whichever instance
+ * its clients happen to be connected to.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatusStreamListener {
+
+    private final StatusEventBroadcaster statusEventBroadcaster;
+
+    /**
+     * Hand a status event to the broadcaster
+     *
+     * @param status The status event
+     */
+    @KafkaListener(
+            id = "status-stream",
+            groupId = "${status-stream.group-prefix}#{T(java.util.UUID).randomUUID()}",
+            topics = "${kafka.topics.voice-processing-status}",
+            containerFactory = "statusEventContainerFactory",
+            autoStartup = "${status-stream.enabled}")
+    public void onStatusUpdate(VoiceProcessingStatus status) {
+        if (status != null && status.getMessageId() != null) {
+            statusEventBroadcaster.publish(status);
+        }
+    }
+}
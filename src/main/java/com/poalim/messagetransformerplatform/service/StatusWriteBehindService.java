@@ -0,0 +1,245 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists message status transitions as partial updates through a write-behind buffer.
+ * <p>
+ * Updates are queued per message and flushed as unordered bulk writes when the buffer reaches the
+ * batch size or the flush interval elapses. Transitions of one message that meet in the buffer are
+ * coalesced into a single {@code $set}, later fields winning. Flushes run one at a time, so a
+ * message's updates are never applied out of order.
+ * <p>
+ * Every write completes once its flush is acknowledged, so callers can publish a transition only
+ * after it is persisted. Transitions listed as synchronous are flushed right away; the rest wait for
+ * the next flush and may be lost if the instance dies before it. On shutdown the flush in flight is
+ * allowed to finish and whatever is still buffered is written before the flusher stops; later
+ * writes go straight to the database.
+ */
+@Service
+@Slf4j
+public class StatusWriteBehindService {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final PipelineProperties.WriteBehind properties;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSize;
+    private final Counter coalesced;
+    private final Counter failures;
+
+    private final Object lock = new Object();
+    private Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+    private boolean stopped; // Set once nothing flushes the buffer any more; guarded by lock
+    private final Sinks.Many<Boolean> flushRequests = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.One<Boolean> stopRequest = Sinks.one();
+    private final Sinks.Empty<Void> flusherStopped = Sinks.empty();
+    private Scheduler flushScheduler;
+    private Disposable flusher;
+
+    public StatusWriteBehindService(ReactiveMongoTemplate reactiveMongoTemplate,
+                                    PipelineProperties pipelineProperties,
+                                    MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.properties = pipelineProperties.getWriteBehind();
+
+        this.flushTimer = Timer.builder("status.write.flush")
+                .description("Time to execute one bulk status write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("status.write.batch.size")
+                .description("Status updates per bulk write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("status.write.coalesced")
+                .description("Status updates merged into one already buffered for the same message")
+                .register(meterRegistry);
+        this.failures = Counter.builder("status.write.failures")
+                .description("Status updates lost to failed bulk writes")
+                .register(meterRegistry);
+        meterRegistry.gauge("status.write.pending", this, service -> service.getPendingCount());
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        flushScheduler = Schedulers.newSingle("status-write-behind");
+        // A trigger arriving during a flush is kept, so updates buffered meanwhile go out right after it
+        flusher = Flux.merge(Flux.interval(properties.getFlushInterval(), flushScheduler), flushRequests.asFlux())
+                .takeUntilOther(stopRequest.asMono())
+                .onBackpressureLatest()
+                .concatMap(trigger -> flush(), 1)
+                .subscribe(
+                        written -> {
+                        },
+                        e -> {
+                            // Batch failures are handled per batch, so this is a bug; later writes go straight through
+                            log.error("Status write-behind flusher stopped", e);
+                            stop();
+                            flush().subscribe();
+                            flusherStopped.tryEmitEmpty();
+                        },
+                        flusherStopped::tryEmitEmpty);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher != null) {
+            // Stop triggering flushes, let the one in flight finish, then write what is still buffered
+            stop();
+            stopRequest.tryEmitValue(Boolean.TRUE);
+            try {
+                flusherStopped.asMono()
+                        .then(Mono.defer(this::flush))
+                        .block(Duration.ofSeconds(10));
+            } finally {
+                flusher.dispose();
+                flushScheduler.dispose();
+            }
+        }
+    }
+
+    /**
+     * Set fields on a message document
+     *
+     * @param messageId The message ID
+     * @param status The status the message is moving to, which decides whether it is flushed right away
+     * @param fields Values by property name; null values are written as null
+     * @return A Mono that completes once the update is persisted
+     */
+    public Mono<Void> write(String messageId, MessageStatus status, Map<String, Object> fields) {
+        if (!properties.isEnabled()) {
+            return writeDirectly(messageId, fields);
+        }
+
+        boolean synchronous = properties.getSynchronousStatuses().contains(status);
+        Sinks.Empty<Void> persisted = Sinks.empty();
+        synchronized (lock) {
+            if (stopped) {
+                // Nothing would ever flush a buffered update, so the caller would wait forever
+                return writeDirectly(messageId, fields);
+            }
+            PendingUpdate update = pending.get(messageId);
+            if (update == null) {
+                update = new PendingUpdate();
+                pending.put(messageId, update);
+            } else {
+                coalesced.increment();
+            }
+            update.fields.putAll(fields);
+            update.waiters.add(persisted);
+            // Emitted under the lock, since the sink accepts one producer at a time
+            if (synchronous || pending.size() >= properties.getMaxBatchSize()) {
+                flushRequests.tryEmitNext(Boolean.TRUE);
+            }
+        }
+        return persisted.asMono();
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Write everything buffered so far
+     *
+     * @return A Mono that completes once every bulk write has finished, successfully or not
+     */
+    Mono<Void> flush() {
+        List<Map.Entry<String, PendingUpdate>> updates;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return Mono.empty();
+            }
+            updates = new ArrayList<>(pending.entrySet());
+            pending = new LinkedHashMap<>();
+        }
+
+        return Flux.fromIterable(updates)
+                .buffer(properties.getMaxBatchSize())
+                .concatMap(this::writeBatch)
+                .then();
+    }
+
+    private Mono<Void> writeBatch(List<Map.Entry<String, PendingUpdate>> batch) {
+        long start = System.nanoTime();
+        // Deferred so a failure building the batch is handled like a failed write instead of ending the flusher
+        return Mono.defer(() -> {
+                    ReactiveBulkOperations operations =
+                            reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VoiceMessage.class);
+                    batch.forEach(entry -> operations.updateOne(byId(entry.getKey()), toUpdate(entry.getValue().fields)));
+                    return operations.execute();
+                })
+                .doOnSuccess(result -> {
+                    flushTimer.record(Duration.ofNanos(System.nanoTime() - start));
+                    batchSize.record(batch.size());
+                    batch.forEach(entry -> entry.getValue().waiters.forEach(Sinks.Empty::tryEmitEmpty));
+                })
+                .then()
+                .onErrorResume(e -> {
+                    // An unordered bulk write applies what it can, but the failed updates cannot be told apart
+                    log.error("Failed to write {} buffered status updates", batch.size(), e);
+                    failures.increment(batch.size());
+                    batch.forEach(entry -> entry.getValue().waiters.forEach(waiter -> waiter.tryEmitError(e)));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> writeDirectly(String messageId, Map<String, Object> fields) {
+        return reactiveMongoTemplate.updateFirst(byId(messageId), toUpdate(fields), VoiceMessage.class).then();
+    }
+
+    private void stop() {
+        synchronized (lock) {
+            stopped = true;
+        }
+    }
+
+    private static Query byId(String messageId) {
+        return Query.query(Criteria.where("_id").is(messageId));
+    }
+
+    private static Update toUpdate(Map<String, Object> fields) {
+        Update update = new Update();
+        fields.forEach(update::set);
+        return update;
+    }
+
+    private static final class PendingUpdate {
+
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+        private final List<Sinks.Empty<Void>> waiters = new ArrayList<>(1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.SynthesisCacheEntry;
+import com.poalim.messagetransformerplatform.repository.SynthesisCacheEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Content-addressed cache of synthesized audio.
+ * <p>
+ * Lookups go through an in-process LRU tier first, then the persistent index in Mongo.
+ * Concurrent requests for the same key share a single in-flight synthesis; only the request that
+ * started it counts as a miss, the ones that joined it are hits.
+ */
+@Service
+@Slf4j
+public class SynthesisCacheService {
+
+    private final SynthesisCacheEntryRepository cacheEntryRepository;
+    private final SynthesisCacheProperties cacheProperties;
+
+    private final Map<String, StoredAudio> localCache;
+    private final Map<String, Mono<StoredAudio>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter coalesced;
+
+    public SynthesisCacheService(SynthesisCacheEntryRepository cacheEntryRepository,
+                                 SynthesisCacheProperties cacheProperties,
+                                 MeterRegistry meterRegistry) {
+        this.cacheEntryRepository = cacheEntryRepository;
+        this.cacheProperties = cacheProperties;
+        this.localCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredAudio> eldest) {
+                boolean evict = size() > cacheProperties.getMaxEntries();
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+
+        this.memoryHits = meterRegistry.counter("synthesis.cache.requests", "result", "hit", "tier", "memory");
+        this.persistentHits = meterRegistry.counter("synthesis.cache.requests", "result", "hit", "tier", "persistent");
+        this.misses = meterRegistry.counter("synthesis.cache.requests", "result", "miss", "tier", "none");
+        this.evictions = meterRegistry.counter("synthesis.cache.evictions");
+        this.coalesced = meterRegistry.counter("synthesis.cache.requests", "result", "hit", "tier", "in-flight");
+        meterRegistry.gauge("synthesis.cache.size", localCache, this::localCacheSize);
+    }
+
+    /**
+     * Compute the cache key for a synthesis request
+     *
+     * @param text The text to convert to speech
+     * @param model The TTS model
+     * @param voice The TTS voice
+     * @param format The audio format
+     * @return A hex-encoded SHA-256 hash of the normalized request
+     */
+    public String cacheKey(String text, String model, String voice, String format) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{normalized, model, voice, format}) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Resolve audio for a cache key, synthesizing it on a miss
+     *
+     * @param cacheKey The key from {@link #cacheKey}
+     * @param synthesizer Synthesizes and stores the audio under the given S3 object key
+     * @return The stored audio, flagged as a cache hit when no synthesis was needed
+     */
+    public Mono<StoredAudio> getOrSynthesize(String cacheKey, Function<String, Mono<StoredAudio>> synthesizer) {
+        StoredAudio cached = getLocal(cacheKey);
+        if (cached != null) {
+            memoryHits.increment();
+            return Mono.just(cached.toBuilder().cacheHit(true).build());
+        }
+
+        Mono<StoredAudio> pending = inFlight.get(cacheKey);
+        if (pending == null) {
+            Mono<StoredAudio> load = loadOrSynthesize(cacheKey, synthesizer)
+                    .doFinally(signal -> inFlight.remove(cacheKey))
+                    .cache();
+            pending = inFlight.putIfAbsent(cacheKey, load);
+            if (pending == null) {
+                return load;
+            }
+        }
+
+        // Joined another request's lookup or synthesis, so this request caused no TTS call
+        coalesced.increment();
+        return pending.map(audio -> audio.isCacheHit() ? audio : audio.toBuilder().cacheHit(true).build());
+    }
+
+    /**
+     * Build the content-addressed S3 object key for a cache key
+     *
+     * @param cacheKey The cache key
+     * @param extension The file extension of the audio format
+     * @return The S3 object key
+     */
+    public String objectKeyFor(String cacheKey, String extension) {
+        return cacheProperties.getKeyPrefix() + cacheKey + "." + extension;
+    }
+
+    public boolean isEnabled() {
+        return cacheProperties.isEnabled();
+    }
+
+    private Mono<StoredAudio> loadOrSynthesize(String cacheKey, Function<String, Mono<StoredAudio>> synthesizer) {
+        return cacheEntryRepository.findById(cacheKey)
+                .map(entry -> {
+                    persistentHits.increment();
+                    StoredAudio audio = toStoredAudio(entry);
+                    putLocal(cacheKey, audio);
+                    return audio.toBuilder().cacheHit(true).build();
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    misses.increment();
+                    return synthesizer.apply(cacheKey)
+                            .flatMap(audio -> cacheEntryRepository.save(SynthesisCacheEntry.builder()
+                                            .id(cacheKey)
+                                            .s3BucketName(audio.getS3BucketName())
+                                            .s3ObjectKey(audio.getS3ObjectKey())
+                                            .contentType(audio.getContentType())
+                                            .fileSizeBytes(audio.getFileSizeBytes())
+                                            .checksumSha256(audio.getChecksumSha256())
+                                            .createdAt(LocalDateTime.now())
+                                            .build())
+                                    .doOnNext(entry -> {
+                                        putLocal(cacheKey, audio);
+                                        log.info("Cached synthesized audio: key={}, object={}", cacheKey, audio.getS3ObjectKey());
+                                    })
+                                    // The audio is already stored; the next request for this text just synthesizes again
+                                    .onErrorResume(e -> {
+                                        log.warn("Failed to record cache entry: key={}, object={}",
+                                                cacheKey, audio.getS3ObjectKey(), e);
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(audio));
+                }));
+    }
+
+    private StoredAudio toStoredAudio(SynthesisCacheEntry entry) {
+        return StoredAudio.builder()
+                .s3BucketName(entry.getS3BucketName())
+                .s3ObjectKey(entry.getS3ObjectKey())
+                .contentType(entry.getContentType())
+                .fileSizeBytes(entry.getFileSizeBytes())
+                .checksumSha256(entry.getChecksumSha256())
+                .build();
+    }
+
+    private StoredAudio getLocal(String cacheKey) {
+        synchronized (localCache) {
+            return localCache.get(cacheKey);
+        }
+    }
+
+    private void putLocal(String cacheKey, StoredAudio audio) {
+        synchronized (localCache) {
+            localCache.put(cacheKey, audio.toBuilder().cacheHit(false).build());
+        }
+    }
+
+    private double localCacheSize(Map<String, StoredAudio> cache) {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.SynthesisWorkItem;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Kafka consumer that performs synthesis for messages accepted in asynchronous mode.
+ * <p>
+ * Each consumer thread synthesizes its polled batch with bounded parallelism and only polls again
+ * once the batch is done, so excess load stays in the topic as consumer lag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SynthesisWorkerService {
+
+    private final MessageTransformerService messageTransformerService;
+    private final PipelineProperties pipelineProperties;
+    private final VirtualThreadPipelineService virtualThreadPipelineService;
+
+    /**
+     * Process a batch of synthesis work items
+     *
+     * @param workItems The polled work items
+     */
+    @KafkaListener(
+            id = "synthesis-worker",
+            idIsGroup = false, // Group comes from pipeline.worker.group-id
+            topics = "${kafka.topics.voice-synthesis-requests}",
+            containerFactory = "synthesisWorkerContainerFactory")
+    public void processWorkItems(List<SynthesisWorkItem> workItems) {
+        log.info("Processing batch of {} synthesis work items", workItems.size());
+
+        Flux.fromIterable(workItems)
+                .flatMap(workItem -> processReceivedMessage(workItem.getMessageId())
+                                .doOnError(e -> log.error("Failed to process work item for message: {}",
+                                        workItem.getMessageId(), e))
+                                .onErrorResume(e -> Mono.empty()),
+                        pipelineProperties.getWorker().getParallelismPerConsumer())
+                .then()
+                .block();
+    }
+
+    private Mono<VoiceMessage> processReceivedMessage(String messageId) {
+        return pipelineProperties.getExecutionMode() == PipelineProperties.ExecutionMode.VIRTUAL_THREADS
+                ? virtualThreadPipelineService.processReceivedMessage(messageId)
+                : messageTransformerService.processReceivedMessage(messageId);
+    }
+}
@@ -0,0 +1,238 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.TemplateProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageTemplate;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.repository.MessageTemplateRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthesizes messages built from registered templates segment by segment.
+ * <p>
+ * The static text between placeholders is synthesized once per template, backend and format and kept
+ * in a size-bounded in-memory cache; only the variable values go to the provider per message. The
+ * segments are then joined frame-wise into one audio object, which is why templates are only
+ * produced in stitchable formats. All segments of a message are pinned to one backend, and static
+ * segments are cached per backend, so a message never mixes voices.
+ * <p>
+ * Each variable value is its own provider call rather than one call for all of them: the provider
+ * does not report where one value ends in a combined clip, so it could not be cut back into place.
+ * The calls run concurrently up to the configured concurrency, so a message waits roughly for its
+ * slowest value rather than for all of them in turn, at the cost of one request overhead per value;
+ * {@code template.provider.calls} records how many calls each message needed.
+ */
+@Service
+@Slf4j
+public class TemplateSynthesisService {
+
+    private final MessageTemplateRepository messageTemplateRepository;
+    private final TextToSpeechService textToSpeechService;
+    private final S3StorageService s3StorageService;
+    private final SynthesisCacheService synthesisCacheService;
+    private final TemplateProperties templateProperties;
+    private final AudioFormatProperties audioFormatProperties;
+    private final MeterRegistry meterRegistry;
+
+    // Templates are immutable once registered, so they can be kept for the life of the instance
+    private final Map<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+    private final AsyncCache<String, byte[]> segmentCache;
+
+    public TemplateSynthesisService(MessageTemplateRepository messageTemplateRepository,
+                                    TextToSpeechService textToSpeechService,
+                                    S3StorageService s3StorageService,
+                                    SynthesisCacheService synthesisCacheService,
+                                    TemplateProperties templateProperties,
+                                    AudioFormatProperties audioFormatProperties,
+                                    MeterRegistry meterRegistry) {
+        this.messageTemplateRepository = messageTemplateRepository;
+        this.textToSpeechService = textToSpeechService;
+        this.s3StorageService = s3StorageService;
+        this.synthesisCacheService = synthesisCacheService;
+        this.templateProperties = templateProperties;
+        this.audioFormatProperties = audioFormatProperties;
+        this.meterRegistry = meterRegistry;
+
+        this.segmentCache = Caffeine.newBuilder()
+                .maximumWeight(templateProperties.getSegmentCacheMaxBytes())
+                .<String, byte[]>weigher((key, audio) -> audio.length)
+                .buildAsync();
+    }
+
+    /**
+     * Register a new template and, if enabled, synthesize its static segments in the background
+     *
+     * @param templateId The template ID
+     * @param text The template text with {@code {name}} placeholders
+     * @return The saved template; fails with a duplicate key error if the ID is taken
+     */
+    public Mono<MessageTemplate> registerTemplate(String templateId, String text) {
+        MessageTemplate template = MessageTemplate.builder()
+                .id(templateId)
+                .text(text)
+                .variables(TemplateText.parse(text).stream()
+                        .filter(segment -> !segment.isStatic())
+                        .map(TemplateText.Segment::variable)
+                        .distinct()
+                        .toList())
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        return messageTemplateRepository.insert(template)
+                .doOnNext(saved -> {
+                    templates.put(saved.getId(), saved);
+                    if (templateProperties.isPrewarm()) {
+                        prewarm(saved, negotiateFormat(null));
+                    }
+                });
+    }
+
+    /**
+     * Look up a registered template
+     *
+     * @param templateId The template ID
+     * @return The template, or empty if none is registered under the ID
+     */
+    public Mono<MessageTemplate> getTemplate(String templateId) {
+        MessageTemplate cached = templates.get(templateId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return messageTemplateRepository.findById(templateId)
+                .doOnNext(template -> templates.put(template.getId(), template));
+    }
+
+    /**
+     * Negotiate the format a template message will be stored in
+     * <p>
+     * Segments are joined by concatenation, so only stitchable formats are considered.
+     *
+     * @param preferences Comma-separated formats in order of preference; may be null or blank
+     * @return The negotiated format
+     * @throws IllegalArgumentException If none of the preferred formats is stitchable and enabled
+     */
+    public AudioFormat negotiateFormat(String preferences) {
+        return AudioFormat.negotiateStitchable(preferences,
+                audioFormatProperties.getEnabled(), audioFormatProperties.getDefaultFormat());
+    }
+
+    /**
+     * The format a template message will actually be stored in
+     * <p>
+     * Submissions are negotiated with {@link #negotiateFormat}; this only guards messages recorded with a
+     * format that cannot be joined.
+     *
+     * @param requested The format recorded on the message
+     * @return The requested format if segments can be joined in it, otherwise MP3
+     */
+    public AudioFormat effectiveFormat(AudioFormat requested) {
+        return requested.isStitchable() ? requested : AudioFormat.MP3;
+    }
+
+    /**
+     * Synthesize a template message from cached static segments and fresh variable segments, and
+     * upload the joined audio to S3
+     *
+     * @param message A message with a template ID and variables
+     * @param format The audio encoding, which must be stitchable
+     * @param objectKey The S3 object key to store the audio under
+     * @return The stored audio
+     */
+    public Mono<StoredAudio> synthesizeAndStore(VoiceMessage message, AudioFormat format, String objectKey) {
+        return getTemplate(message.getTemplateId())
+                .switchIfEmpty(Mono.error(new RuntimeException("Template not found: " + message.getTemplateId())))
+                .flatMap(template -> {
+                    String templateId = template.getId();
+                    Map<String, String> variables = message.getTemplateVariables() != null
+                            ? message.getTemplateVariables() : Map.of();
+                    List<TemplateText.Segment> segments = TemplateText.parse(template.getText());
+                    TtsBackendRouter.TtsBackend backend = textToSpeechService.selectBackend();
+                    AtomicLong synthesizedChars = new AtomicLong();
+                    AtomicLong providerCalls = new AtomicLong();
+
+                    Flux<DataBuffer> joinedAudio = Flux.fromIterable(segments)
+                            .filter(segment -> segment.isStatic() || !variables.getOrDefault(segment.variable(), "").isBlank())
+                            .flatMapSequential(segment -> {
+                                if (segment.isStatic()) {
+                                    return staticSegment(templateId, segment.text(), format, backend);
+                                }
+                                String value = variables.get(segment.variable());
+                                synthesizedChars.addAndGet(value.length());
+                                providerCalls.incrementAndGet();
+                                meterRegistry.counter("template.segments", "template", templateId, "result", "variable")
+                                        .increment();
+                                return textToSpeechService.convertTextToSpeech(value, format);
+                            }, templateProperties.getConcurrency())
+                            .<DataBuffer>map(audio -> DefaultDataBufferFactory.sharedInstance.wrap(
+                                    // Every segment's tags and Info frame would give players the wrong duration
+                                    format == AudioFormat.MP3 ? Mp3Stitcher.stripTags(audio) : audio))
+                            .contextWrite(context -> context.put(TtsBackendRouter.BACKEND_CONTEXT_KEY, backend.name()));
+
+                    return s3StorageService.streamAudioToS3(joinedAudio, format.getContentType(), objectKey)
+                            .doOnSuccess(audio -> {
+                                meterRegistry.counter("template.messages", "template", templateId).increment();
+                                DistributionSummary.builder("template.synthesized.chars")
+                                        .description("Characters sent to the provider per template message")
+                                        .tag("template", templateId)
+                                        .register(meterRegistry)
+                                        .record(synthesizedChars.get());
+                                DistributionSummary.builder("template.provider.calls")
+                                        .description("Variable segments synthesized per template message")
+                                        .tag("template", templateId)
+                                        .register(meterRegistry)
+                                        .record(providerCalls.get());
+                            });
+                });
+    }
+
+    private Mono<byte[]> staticSegment(String templateId, String text, AudioFormat format,
+                                       TtsBackendRouter.TtsBackend backend) {
+        String key = backend.name() + ":"
+                + synthesisCacheService.cacheKey(text, backend.model(), backend.voice(), format.getResponseFormat());
+
+        return Mono.deferContextual(context -> {
+            AtomicBoolean loaded = new AtomicBoolean();
+            CompletableFuture<byte[]> audio = segmentCache.get(key, (k, executor) -> {
+                loaded.set(true);
+                return textToSpeechService.convertTextToSpeech(text, format).contextWrite(context).toFuture();
+            });
+            meterRegistry.counter("template.segments", "template", templateId, "result", loaded.get() ? "miss" : "hit")
+                    .increment();
+            // Other messages may be waiting on the same load, so a cancelled subscriber must not cancel it
+            return Mono.fromFuture(audio, true);
+        });
+    }
+
+    private void prewarm(MessageTemplate template, AudioFormat format) {
+        TtsBackendRouter.TtsBackend backend = textToSpeechService.selectBackend();
+        Flux.fromIterable(TemplateText.parse(template.getText()))
+                .filter(TemplateText.Segment::isStatic)
+                .flatMap(segment -> staticSegment(template.getId(), segment.text(), format, backend),
+                        templateProperties.getConcurrency())
+                .contextWrite(context -> context.put(TtsBackendRouter.BACKEND_CONTEXT_KEY, backend.name()))
+                .subscribe(
+                        audio -> {
+                        },
+                        e -> log.warn("Failed to prewarm template segments: {}", template.getId(), e),
+                        () -> log.info("Prewarmed template segments: {}", template.getId()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.poalim.messagetransformerplatform.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits notification templates into static text and {@code {name}} placeholders.
+ */
+public final class TemplateText {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z][A-Za-z0-9_]*)}");
+
+    private TemplateText() {
+    }
+
+    /**
+     * Split a template into its segments, in order
+     * <p>
+     * Static segments are stripped of surrounding whitespace, since each one is synthesized on its
+     * own, and dropped when nothing is left.
+     *
+     * @param template The template text
+     * @return The segments
+     */
+    public static List<Segment> parse(String template) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        int position = 0;
+        while (matcher.find()) {
+            addStatic(segments, template.substring(position, matcher.start()));
+            segments.add(new Segment(null, matcher.group(1)));
+            position = matcher.end();
+        }
+        addStatic(segments, template.substring(position));
+        return segments;
+    }
+
+    /**
+     * Substitute variables into a template
+     *
+     * @param template The template text
+     * @param variables Values by placeholder name
+     * @return The full text
+     * @throws IllegalArgumentException If a placeholder has no value
+     */
+    public static String render(String template, Map<String, String> variables) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder text = new StringBuilder();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                throw new IllegalArgumentException("Missing template variable: " + matcher.group(1));
+            }
+            matcher.appendReplacement(text, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(text);
+        return text.toString();
+    }
+
+    private static void addStatic(List<Segment> segments, String text) {
+        String stripped = text.strip();
+        if (!stripped.isEmpty()) {
+            segments.add(new Segment(stripped, null));
+        }
+    }
+
+    /**
+     * A piece of a template: either static text or a placeholder
+     *
+     * @param text The static text, or null for a placeholder
+     * @param variable The placeholder name, or null for static text
+     */
+    public record Segment(String text, String variable) {
+
+        public boolean isStatic() {
+            return variable == null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.poalim.messagetransformerplatform.service;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into size-bounded chunks at sentence boundaries.
+ */
+public final class TextChunker {
+
+    private TextChunker() {
+    }
+
+    /**
+     * Split text into chunks of whole sentences
+     * <p>
+     * Sentences are packed greedily up to the limit. A single sentence longer than the limit is
+     * split at the last whitespace before it, or hard-split if there is none.
+     *
+     * @param text The text to split
+     * @param maxChars The maximum chunk length
+     * @return The non-blank chunks, in order
+     */
+    public static List<String> split(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        int start = sentences.first();
+        for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            String sentence = text.substring(start, end);
+
+            if (current.length() + sentence.length() > maxChars) {
+                flush(current, chunks);
+            }
+            while (sentence.length() > maxChars) {
+                int cut = sentence.lastIndexOf(' ', maxChars);
+                if (cut <= 0) {
+                    cut = maxChars;
+                }
+                chunks.add(sentence.substring(0, cut).strip());
+                sentence = sentence.substring(cut);
+            }
+            current.append(sentence);
+        }
+        flush(current, chunks);
+
+        chunks.removeIf(String::isBlank);
+        return chunks;
+    }
+
+    private static void flush(StringBuilder current, List<String> chunks) {
+        if (!current.isEmpty()) {
+            chunks.add(current.toString().strip());
+            current.setLength(0);
+        }
+    }
+}
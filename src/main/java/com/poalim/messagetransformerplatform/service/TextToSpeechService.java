@@ -1,15 +1,15 @@
 package com.poalim.messagetransformerplatform.service;
 
+import com.poalim.messagetransformerplatform.model.AudioFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.reactivestreams.Publisher;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
@@ -20,52 +20,101 @@ import java.util.Map;
 @Slf4j
 public class TextToSpeechService {
 
+    /**
+     * Reactor context key carrying the tenant ({@code requestedBy}) that provider calls are queued under
+     */
+    public static final String TENANT_CONTEXT_KEY = "tts.tenant";
+
+    static final String DEFAULT_TENANT = "anonymous";
+
     private final WebClient webClient;
+    private final ProviderConcurrencyLimiter providerConcurrencyLimiter;
+    private final TtsBackendRouter ttsBackendRouter;
 
-    @Value("${llm.api.endpoint}")
-    private String llmApiEndpoint;
+    /**
+     * The model audio is synthesized with, whichever backend serves the call
+     *
+     * @return The model name
+     */
+    public String getModel() {
+        return ttsBackendRouter.getModel();
+    }
 
-    @Value("${llm.api.key}")
-    private String llmApiKey;
+    /**
+     * The voice audio is synthesized with, whichever backend serves the call
+     *
+     * @return The voice name
+     */
+    public String getVoice() {
+        return ttsBackendRouter.getVoice();
+    }
+
+    /**
+     * The backend a call made now would be routed to, for callers that pin related calls to it
+     *
+     * @return The backend
+     * @see TtsBackendRouter#BACKEND_CONTEXT_KEY
+     */
+    public TtsBackendRouter.TtsBackend selectBackend() {
+        return ttsBackendRouter.selectBackend();
+    }
 
     /**
      * Convert text to speech using the LLM API
      *
      * @param text The text to convert to speech
+     * @param format The audio encoding to request
      * @return The audio content as a byte array
      */
-    public Mono<byte[]> convertTextToSpeech(String text) {
-        log.info("Converting text to speech: {}", text);
-
-        // Build request payload for OpenAI API
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "tts-1");
-        requestBody.put("input", text);
-        requestBody.put("voice", "alloy");
-
-        return webClient.post()
-                .uri(llmApiEndpoint + "/audio/speech")
-                .header("Authorization", "Bearer " + llmApiKey)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(requestBody))
-                .retrieve()
-                .bodyToFlux(org.springframework.core.io.buffer.DataBuffer.class)
-                .collectList()
-                .map(dataBuffers -> {
+    public Mono<byte[]> convertTextToSpeech(String text, AudioFormat format) {
+        return DataBufferUtils.join(streamTextToSpeech(text, format))
+                .map(joinedBuffers -> {
                     try {
-                        org.springframework.core.io.buffer.DataBuffer joinedBuffers =
-                                DataBufferUtils.join((Publisher<? extends DataBuffer>) dataBuffers).block();
-                        if (joinedBuffers != null) {
-                            byte[] bytes = new byte[joinedBuffers.readableByteCount()];
-                            joinedBuffers.read(bytes);
-                            DataBufferUtils.release(joinedBuffers);
-                            return bytes;
-                        }
-                        return new byte[0];
+                        byte[] bytes = new byte[joinedBuffers.readableByteCount()];
+                        joinedBuffers.read(bytes);
+                        return bytes;
                     } catch (Exception e) {
                         log.error("Error processing audio response", e);
                         throw new RuntimeException("Failed to process audio response", e);
+                    } finally {
+                        DataBufferUtils.release(joinedBuffers);
                     }
-                });
+                })
+                .defaultIfEmpty(new byte[0]);
+    }
+
+    /**
+     * Convert text to speech using the LLM API, emitting the audio as it arrives
+     * <p>
+     * The call waits for a slot from the {@link ProviderConcurrencyLimiter}, queued under the tenant
+     * found in the subscriber context under {@link #TENANT_CONTEXT_KEY}, and is then routed to a
+     * backend by the {@link TtsBackendRouter}.
+     *
+     * @param text The text to convert to speech
+     * @param format The audio encoding to request
+     * @return The audio content as a stream of buffers that the subscriber must release
+     */
+    public Flux<DataBuffer> streamTextToSpeech(String text, AudioFormat format) {
+        log.info("Converting text to speech: {}", text);
+
+        Flux<DataBuffer> call = ttsBackendRouter.route(backend -> {
+            // Build request payload for OpenAI API
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("model", backend.model());
+            requestBody.put("input", text);
+            requestBody.put("voice", backend.voice());
+            requestBody.put("response_format", format.getResponseFormat());
+
+            return webClient.post()
+                    .uri(backend.endpoint() + "/audio/speech")
+                    .header("Authorization", "Bearer " + backend.key())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromValue(requestBody))
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class);
+        });
+
+        return Flux.deferContextual(context -> providerConcurrencyLimiter.limit(
+                context.getOrDefault(TENANT_CONTEXT_KEY, DEFAULT_TENANT), call));
     }
-}
\ No newline at end of file
+}
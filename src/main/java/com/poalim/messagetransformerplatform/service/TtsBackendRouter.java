@@ -0,0 +1,267 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.TtsRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Routes TTS calls across the configured provider backends.
+ * <p>
+ * Each backend is scored by an EWMA of its time to first byte, inflated by its recent error rate and
+ * divided by its weight; the lowest score wins. With hedging enabled, a call whose first byte is
+ * later than the chosen backend's latency percentile is duplicated to the runner-up, and whichever
+ * responds first is kept while the other is cancelled. The duplicate waits for a slot from the
+ * {@link ProviderConcurrencyLimiter} like any other provider call.
+ * <p>
+ * Callers that join audio from several calls pin them to one backend through
+ * {@link #BACKEND_CONTEXT_KEY}, so every part is spoken in the same voice.
+ */
+@Service
+@Slf4j
+public class TtsBackendRouter {
+
+    /**
+     * Reactor context key carrying the name of a backend that calls must be routed to, without hedging
+     */
+    public static final String BACKEND_CONTEXT_KEY = "tts.backend";
+
+    private final TtsRoutingProperties routingProperties;
+    private final ProviderConcurrencyLimiter providerConcurrencyLimiter;
+    private final List<BackendState> backends;
+    private final String model;
+    private final String voice;
+
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public TtsBackendRouter(TtsRoutingProperties routingProperties,
+                            ProviderConcurrencyLimiter providerConcurrencyLimiter,
+                            MeterRegistry meterRegistry,
+                            @Value("${llm.api.endpoint}") String defaultEndpoint,
+                            @Value("${llm.api.key}") String defaultKey,
+                            @Value("${llm.api.model:tts-1}") String defaultModel,
+                            @Value("${llm.api.voice:alloy}") String defaultVoice) {
+        this.routingProperties = routingProperties;
+        this.providerConcurrencyLimiter = providerConcurrencyLimiter;
+
+        List<TtsRoutingProperties.Backend> configured = routingProperties.getBackends();
+        if (configured.isEmpty()) {
+            TtsRoutingProperties.Backend backend = new TtsRoutingProperties.Backend();
+            backend.setName("default");
+            backend.setEndpoint(defaultEndpoint);
+            backend.setKey(defaultKey);
+            configured = List.of(backend);
+        }
+        this.backends = configured.stream()
+                .map(backend -> new BackendState(new TtsBackend(
+                        backend.getName() != null ? backend.getName() : backend.getEndpoint(),
+                        backend.getEndpoint(),
+                        backend.getKey() != null ? backend.getKey() : defaultKey,
+                        backend.getModel() != null ? backend.getModel() : defaultModel,
+                        backend.getVoice() != null ? backend.getVoice() : defaultVoice,
+                        Math.max(1, backend.getWeight())), routingProperties.getLatencyWindow()))
+                .toList();
+        this.model = distinct(backends.stream().map(state -> state.backend.model()));
+        this.voice = distinct(backends.stream().map(state -> state.backend.voice()));
+
+        this.hedgesSent = meterRegistry.counter("tts.backend.hedges", "result", "sent");
+        this.hedgesWon = meterRegistry.counter("tts.backend.hedges", "result", "won");
+        for (BackendState state : backends) {
+            Gauge.builder("tts.backend.latency.ewma", state, BackendState::ewmaLatencyMs)
+                    .tag("backend", state.backend.name())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("tts.backend.error.rate", state, BackendState::errorRate)
+                    .tag("backend", state.backend.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Run a call against the best backend, hedging to the runner-up when it is slow to respond
+     *
+     * @param call Issues the provider request to the given backend
+     * @return The output of whichever attempt emitted first
+     */
+    public <T> Flux<T> route(Function<TtsBackend, Flux<T>> call) {
+        // Ranked at subscription, which may come long after assembly when the call had to queue
+        return Flux.deferContextual(context -> {
+            String pinned = context.getOrDefault(BACKEND_CONTEXT_KEY, null);
+            if (pinned != null) {
+                for (BackendState state : backends) {
+                    if (state.backend.name().equals(pinned)) {
+                        return attempt(state, call);
+                    }
+                }
+                log.warn("Pinned TTS backend {} is not configured, routing freely", pinned);
+            }
+
+            List<BackendState> ranked = rank();
+            BackendState primary = ranked.get(0);
+
+            if (!routingProperties.isHedgingEnabled() || ranked.size() < 2) {
+                return attempt(primary, call);
+            }
+
+            BackendState secondary = ranked.get(1);
+            Duration hedgeDelay = primary.hedgeDelay();
+            AtomicBoolean won = new AtomicBoolean();
+            String tenant = context.getOrDefault(TextToSpeechService.TENANT_CONTEXT_KEY,
+                    TextToSpeechService.DEFAULT_TENANT);
+            Flux<T> hedgeAttempt = providerConcurrencyLimiter.limit(tenant, Flux.defer(() -> {
+                        hedgesSent.increment();
+                        log.info("Hedging TTS request from {} to {} after {} ms",
+                                primary.backend.name(), secondary.backend.name(), hedgeDelay.toMillis());
+                        return attempt(secondary, call);
+                    }))
+                    .delaySubscription(hedgeDelay)
+                    .doOnNext(element -> {
+                        if (won.compareAndSet(false, true)) {
+                            hedgesWon.increment();
+                        }
+                    });
+
+            return Flux.firstWithValue(attempt(primary, call), hedgeAttempt);
+        });
+    }
+
+    /**
+     * The backend a call routed now would go to first
+     *
+     * @return The best-scoring backend
+     */
+    public TtsBackend selectBackend() {
+        return rank().get(0).backend;
+    }
+
+    /**
+     * The model the configured backends synthesize with, as used to key cached audio
+     * <p>
+     * Backends are expected to produce interchangeable audio, so this is normally a single name;
+     * when they are configured differently, every distinct name is listed.
+     *
+     * @return The model name, or the distinct names joined by '+'
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * The voice the configured backends synthesize with, as used to key cached audio
+     *
+     * @return The voice name, or the distinct names joined by '+'
+     */
+    public String getVoice() {
+        return voice;
+    }
+
+    /**
+     * A provider backend as resolved from configuration
+     */
+    public record TtsBackend(String name, String endpoint, String key, String model, String voice, int weight) {
+    }
+
+    private <T> Flux<T> attempt(BackendState state, Function<TtsBackend, Flux<T>> call) {
+        return Flux.deferContextual(context -> {
+            long startNanos = System.nanoTime();
+            AtomicBoolean firstSeen = new AtomicBoolean();
+            return call.apply(state.backend)
+                    .doOnNext(element -> {
+                        if (firstSeen.compareAndSet(false, true)) {
+                            state.recordSuccess(System.nanoTime() - startNanos);
+                            PipelineInstrumentation.recordBackend(context, state.backend.model(), state.backend.voice());
+                        }
+                    })
+                    .doOnError(e -> state.recordError())
+                    .doOnCancel(() -> {
+                        // A losing hedge would otherwise never report how slow it was; the time so far
+                        // is a lower bound of its latency
+                        if (firstSeen.compareAndSet(false, true)) {
+                            state.recordLatency(System.nanoTime() - startNanos);
+                        }
+                    });
+        });
+    }
+
+    private List<BackendState> rank() {
+        return backends.stream()
+                .sorted(Comparator.comparingDouble(BackendState::score))
+                .toList();
+    }
+
+    private static String distinct(Stream<String> names) {
+        return names.distinct().sorted().collect(Collectors.joining("+"));
+    }
+
+    private final class BackendState {
+
+        private final TtsBackend backend;
+        private final long[] latencyWindow;
+        private int samples;
+        private int next;
+        private double ewmaLatencyNanos;
+        private double errorRate;
+
+        private BackendState(TtsBackend backend, int windowSize) {
+            this.backend = backend;
+            this.latencyWindow = new long[Math.max(1, windowSize)];
+        }
+
+        private synchronized void recordSuccess(long latencyNanos) {
+            errorRate = (1 - routingProperties.getEwmaAlpha()) * errorRate;
+            recordLatency(latencyNanos);
+        }
+
+        private synchronized void recordLatency(long latencyNanos) {
+            double alpha = routingProperties.getEwmaAlpha();
+            ewmaLatencyNanos = samples == 0 ? latencyNanos : alpha * latencyNanos + (1 - alpha) * ewmaLatencyNanos;
+            latencyWindow[next] = latencyNanos;
+            next = (next + 1) % latencyWindow.length;
+            samples = Math.min(samples + 1, latencyWindow.length);
+        }
+
+        private synchronized void recordError() {
+            double alpha = routingProperties.getEwmaAlpha();
+            errorRate = alpha + (1 - alpha) * errorRate;
+        }
+
+        private synchronized double score() {
+            // Backends without a successful sample are assumed as fast as the hedge floor, so they get tried
+            double latency = samples == 0 ? routingProperties.getMinHedgeDelay().toNanos() : ewmaLatencyNanos;
+            return latency * (1 + routingProperties.getErrorPenalty() * errorRate) / backend.weight();
+        }
+
+        private synchronized Duration hedgeDelay() {
+            long floor = routingProperties.getMinHedgeDelay().toNanos();
+            if (samples == 0) {
+                return Duration.ofNanos(floor);
+            }
+            long[] sorted = Arrays.copyOf(latencyWindow, samples);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(routingProperties.getHedgePercentile() * samples) - 1;
+            return Duration.ofNanos(Math.max(floor, sorted[Math.max(0, index)]));
+        }
+
+        private synchronized double ewmaLatencyMs() {
+            return ewmaLatencyNanos / 1_000_000.0;
+        }
+
+        private synchronized double errorRate() {
+            return errorRate;
+        }
+    }
+}
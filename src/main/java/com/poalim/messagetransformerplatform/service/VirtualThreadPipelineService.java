@@ -0,0 +1,326 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.repository.VoiceMessageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs the message pipeline as plain blocking code on virtual threads.
+ * <p>
+ * Each message runs on its own virtual thread against the blocking Mongo, S3 and Kafka clients.
+ * Independent steps are forked into a per-message scope that is joined before the next step and
+ * cancelled as a whole if any fork fails: publishing a status runs alongside the following step, and
+ * the S3 upload runs alongside checksum computation.
+ * <p>
+ * Status events for one message are still handed to the producer in order, since each publish is
+ * joined before the next one is forked. As in the reactive pipeline, a publish only hands the record
+ * to the producer: its fork fails if the producer cannot take the record, but a send the broker
+ * rejects later is logged by {@link KafkaProducerService} and does not fail the message.
+ */
+@Service
+@Slf4j
+public class VirtualThreadPipelineService {
+
+    private final VoiceMessageRepository voiceMessageRepository;
+    private final MessageTransformerService messageTransformerService;
+    private final TextToSpeechService textToSpeechService;
+    private final S3StorageService s3StorageService;
+    private final KafkaProducerService kafkaProducerService;
+    private final SynthesisCacheService synthesisCacheService;
+    private final LongTextSynthesisService longTextSynthesisService;
+    private final PipelineInstrumentation pipelineInstrumentation;
+    private final TemplateSynthesisService templateSynthesisService;
+    private final StatusWriteBehindService statusWriteBehindService;
+    private final String s3BucketName;
+
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Scheduler virtualThreadScheduler = Schedulers.fromExecutorService(virtualThreads, "pipeline-vt");
+
+    public VirtualThreadPipelineService(VoiceMessageRepository voiceMessageRepository,
+                                        MessageTransformerService messageTransformerService,
+                                        TextToSpeechService textToSpeechService,
+                                        S3StorageService s3StorageService,
+                                        KafkaProducerService kafkaProducerService,
+                                        SynthesisCacheService synthesisCacheService,
+                                        LongTextSynthesisService longTextSynthesisService,
+                                        PipelineInstrumentation pipelineInstrumentation,
+                                        TemplateSynthesisService templateSynthesisService,
+                                        StatusWriteBehindService statusWriteBehindService,
+                                        @Value("${aws.s3.bucket-name}") String s3BucketName) {
+        this.voiceMessageRepository = voiceMessageRepository;
+        this.messageTransformerService = messageTransformerService;
+        this.textToSpeechService = textToSpeechService;
+        this.s3StorageService = s3StorageService;
+        this.kafkaProducerService = kafkaProducerService;
+        this.synthesisCacheService = synthesisCacheService;
+        this.longTextSynthesisService = longTextSynthesisService;
+        this.pipelineInstrumentation = pipelineInstrumentation;
+        this.templateSynthesisService = templateSynthesisService;
+        this.statusWriteBehindService = statusWriteBehindService;
+        this.s3BucketName = s3BucketName;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        virtualThreadScheduler.dispose();
+    }
+
+    /**
+     * Process a text message by converting it to speech and storing the result
+     *
+     * @param text The text to convert to speech
+     * @param requestedBy Who requested the conversion
+     * @param format The audio encoding to produce
+     * @return The updated voice message record, completed on a virtual thread
+     */
+    public Mono<VoiceMessage> processTextMessage(String text, String requestedBy, AudioFormat format) {
+        return processNewMessage(messageTransformerService.newVoiceMessage(text, requestedBy, format));
+    }
+
+    /**
+     * Persist a new message and convert it to speech
+     *
+     * @param message A message built by {@link MessageTransformerService}
+     * @return The updated voice message record, completed on a virtual thread
+     */
+    public Mono<VoiceMessage> processNewMessage(VoiceMessage message) {
+        return Mono.fromCallable(() -> synthesize(accept(message), true))
+                .subscribeOn(virtualThreadScheduler);
+    }
+
+    /**
+     * Convert an accepted message to speech
+     *
+     * @param message A message in RECEIVED status whose RECEIVED event was already published
+     * @return The updated voice message record
+     */
+    public Mono<VoiceMessage> processAcceptedMessage(VoiceMessage message) {
+        return Mono.fromCallable(() -> synthesize(message, false))
+                .subscribeOn(virtualThreadScheduler);
+    }
+
+    /**
+     * Synthesize a previously accepted message, as delivered to a worker
+     *
+     * @param messageId The message ID
+     * @return The updated voice message record
+     */
+    public Mono<VoiceMessage> processReceivedMessage(String messageId) {
+        return Mono.fromCallable(() -> {
+                    // Redelivered work items held by another worker, or finished, are acknowledged without re-synthesis
+                    VoiceMessage claimed = messageTransformerService.claimReceivedMessage(messageId).block();
+                    if (claimed == null) {
+                        return voiceMessageRepository.findById(messageId).orElse(null);
+                    }
+                    return synthesize(claimed, false);
+                })
+                .subscribeOn(virtualThreadScheduler);
+    }
+
+    private VoiceMessage accept(VoiceMessage message) {
+        return pipelineInstrumentation.timeStage("mongo-save", message.getId(), null,
+                () -> voiceMessageRepository.save(message));
+    }
+
+    private VoiceMessage synthesize(VoiceMessage received, boolean publishReceived) {
+        String messageId = received.getId();
+        Map<String, Long> stageDurations = new ConcurrentHashMap<>();
+        VoiceMessage message = received;
+
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Publish RECEIVED, unless that happened at submission, while moving the message to PROCESSING
+            // Events are snapshotted before forking, since the fork alongside mutates the message
+            VoiceProcessingStatus receivedStatus = MessageTransformerService.statusOf(received);
+            Future<?> previousPublish = publishReceived
+                    ? scope.submit(() -> publish(receivedStatus))
+                    : CompletableFuture.completedFuture(null);
+            // The transition is only buffered here; its flush is awaited alongside synthesis
+            Future<Mono<Void>> processing = scope.submit(() -> pipelineInstrumentation.timeStage(
+                    "status-update", messageId, stageDurations, () -> {
+                        received.setStatus(MessageStatus.PROCESSING);
+                        received.setUpdatedAt(LocalDateTime.now());
+                        Map<String, Object> fields = new HashMap<>();
+                        fields.put("status", MessageStatus.PROCESSING);
+                        fields.put("updatedAt", received.getUpdatedAt());
+                        return statusWriteBehindService.write(messageId, MessageStatus.PROCESSING, fields);
+                    }));
+            join(scope, previousPublish, processing);
+            Mono<Void> processingPersisted = processing.get();
+
+            // Publish PROCESSING once it is persisted, while the audio is produced
+            VoiceMessage processingMessage = message;
+            VoiceProcessingStatus processingStatus = MessageTransformerService.statusOf(processingMessage);
+            Future<?> processingPublish = scope.submit(() -> {
+                processingPersisted.block();
+                publish(processingStatus);
+            });
+            Future<StoredAudio> audio = scope.submit(() -> pipelineInstrumentation.timeStage(
+                    "synthesis", messageId, stageDurations,
+                    () -> resolveAudio(processingMessage, stageDurations)));
+            join(scope, processingPublish, audio);
+
+            StoredAudio storedAudio = audio.get();
+            pipelineInstrumentation.recordAudioSize(
+                    AudioFormat.fromContentType(storedAudio.getContentType()), message.getOriginalText(), storedAudio);
+            message.setS3BucketName(storedAudio.getS3BucketName());
+            message.setS3ObjectKey(storedAudio.getS3ObjectKey());
+            message.setContentType(storedAudio.getContentType());
+            message.setFileSizeBytes(storedAudio.getFileSizeBytes());
+            message.setChecksumSha256(storedAudio.getChecksumSha256());
+            message.setCacheHit(storedAudio.isCacheHit());
+            message.setChunkCount(storedAudio.getChunkCount());
+            message.setChunkDurationsMs(storedAudio.getChunkDurationsMs());
+            message.setStageDurationsMs(new HashMap<>(stageDurations));
+            message.setProcessedAt(LocalDateTime.now());
+            message.setStatus(MessageStatus.COMPLETED);
+            message.setErrorMessage(null);
+            message.setUpdatedAt(LocalDateTime.now());
+
+            VoiceMessage completed = message;
+            pipelineInstrumentation.timeStage("mongo-save", messageId, null,
+                    () -> statusWriteBehindService.write(messageId, MessageStatus.COMPLETED,
+                            MessageTransformerService.completionFields(completed)).block());
+            try {
+                publish(MessageTransformerService.statusOf(completed));
+            } catch (RuntimeException e) {
+                // COMPLETED is persisted; a failed publish must not turn it into FAILED
+                log.error("Failed to publish COMPLETED status of message {}", messageId, e);
+            }
+            return completed;
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Error processing voice message: {}", messageId, cause);
+
+            message.setStatus(MessageStatus.FAILED);
+            message.setErrorMessage(cause.getMessage());
+            message.setStageDurationsMs(new HashMap<>(stageDurations));
+            message.setUpdatedAt(LocalDateTime.now());
+
+            statusWriteBehindService.write(messageId, MessageStatus.FAILED,
+                    MessageTransformerService.failureFields(message)).block();
+            publish(MessageTransformerService.statusOf(message));
+            return message;
+        }
+    }
+
+    private StoredAudio resolveAudio(VoiceMessage message, Map<String, Long> stageDurations) {
+        String text = message.getOriginalText();
+        AudioFormat requested = AudioFormat.fromContentType(message.getContentType());
+        AudioFormat format = message.getTemplateId() != null
+                ? templateSynthesisService.effectiveFormat(requested)
+                : longTextSynthesisService.effectiveFormat(text, requested);
+        if (!synthesisCacheService.isEnabled()) {
+            return synthesizeAndStore(message, format, s3StorageService.generateObjectKey(format), stageDurations);
+        }
+
+        String cacheKey = synthesisCacheService.cacheKey(text, textToSpeechService.getModel(),
+                textToSpeechService.getVoice(), format.getResponseFormat());
+        Function<String, Mono<StoredAudio>> synthesizer = key -> Mono.fromCallable(() -> synthesizeAndStore(message,
+                        format, synthesisCacheService.objectKeyFor(key, format.getExtension()), stageDurations))
+                .subscribeOn(virtualThreadScheduler);
+
+        return synthesisCacheService.getOrSynthesize(cacheKey, synthesizer).block();
+    }
+
+    private StoredAudio synthesizeAndStore(VoiceMessage message, AudioFormat format, String objectKey,
+                                           Map<String, Long> stageDurations) {
+        String messageId = message.getId();
+        String text = message.getOriginalText();
+
+        if (message.getTemplateId() != null) {
+            return pipelineInstrumentation.timeStage("tts-template", messageId, stageDurations,
+                    () -> withTenant(templateSynthesisService.synthesizeAndStore(
+                            message, format, objectKey), message).block());
+        }
+
+        if (longTextSynthesisService.isLongText(text)) {
+            return pipelineInstrumentation.timeStage("tts-long-text", messageId, stageDurations,
+                    () -> withTenant(longTextSynthesisService.synthesizeAndStore(
+                            text, format, objectKey), message).block());
+        }
+
+        byte[] audioContent = pipelineInstrumentation.timeStage("tts", messageId, stageDurations,
+                () -> withTenant(textToSpeechService.convertTextToSpeech(text, format), message).block());
+
+        // Upload while the checksum is computed
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> upload = scope.submit(() -> pipelineInstrumentation.timeStage(
+                    "s3-upload", messageId, stageDurations, () -> s3StorageService.uploadAudioToS3(
+                            audioContent, format.getContentType(), objectKey)));
+            Future<String> checksum = scope.submit(() -> sha256(audioContent));
+            join(scope, upload, checksum);
+
+            return StoredAudio.builder()
+                    .s3BucketName(s3BucketName)
+                    .s3ObjectKey(upload.get())
+                    .contentType(format.getContentType())
+                    .fileSizeBytes((long) audioContent.length)
+                    .checksumSha256(checksum.get())
+                    .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while storing audio", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private <T> Mono<T> withTenant(Mono<T> call, VoiceMessage message) {
+        // Provider calls are queued fairly per requester, and report their backend to the stage they block in
+        return pipelineInstrumentation.inCurrentStage(message.getRequestedBy() != null
+                ? call.contextWrite(context -> context.put(TextToSpeechService.TENANT_CONTEXT_KEY, message.getRequestedBy()))
+                : call);
+    }
+
+    private void publish(VoiceProcessingStatus status) {
+        // The acknowledgement is not awaited, so a lost status event never fails the message
+        pipelineInstrumentation.timeStage("kafka-publish", status.getMessageId(), null,
+                () -> kafkaProducerService.publishStatusUpdate(status));
+    }
+
+    /**
+     * Wait for every fork, cancelling the rest of the scope as soon as one fails
+     */
+    private static void join(ExecutorService scope, Future<?>... forks) throws InterruptedException, ExecutionException {
+        try {
+            for (Future<?> fork : forks) {
+                fork.get();
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            scope.shutdownNow();
+            throw e;
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
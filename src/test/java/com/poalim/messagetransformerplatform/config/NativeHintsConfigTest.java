@@ -0,0 +1,31 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.SloWindow;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsConfigTest {
+
+    @Test
+    void registersJsonPayloadsAndKafkaSerializers() throws NoSuchMethodException {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeHintsConfig.MessageTransformerRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(VoiceProcessingStatus.class.getMethod("getStatus")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(VoiceMessage.class.getMethod("setTemplateVariables",
+                Map.class))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(SloWindow.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(VoiceProcessingStatusSerializer.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+    }
+}
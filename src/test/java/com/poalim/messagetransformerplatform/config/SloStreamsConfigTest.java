@@ -0,0 +1,103 @@
+package com.poalim.messagetransformerplatform.config;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.SloWindow;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.serialization.VoiceProcessingStatusSerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SloStreamsConfigTest {
+
+    private static final String TOPIC = "voice-processing-status";
+    private static final Instant START = Instant.parse("2025-03-01T12:00:00Z");
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, VoiceProcessingStatus> statusTopic;
+
+    @BeforeEach
+    void setUp() {
+        SloStreamsConfig config = new SloStreamsConfig(new SloStreamsProperties());
+        ReflectionTestUtils.setField(config, "voiceProcessingStatusTopic", TOPIC);
+        StreamsBuilder builder = new StreamsBuilder();
+        config.sloSamples(builder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "slo-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), props);
+        statusTopic = driver.createInputTopic(TOPIC, new StringSerializer(), new VoiceProcessingStatusSerializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void aggregatesLatencyAndFailuresPerRequesterAndWindow() {
+        send("m1", MessageStatus.RECEIVED, "app", 0);
+        send("m1", MessageStatus.PROCESSING, "app", 100);
+        send("m1", MessageStatus.COMPLETED, "app", 2_000);
+        send("m2", MessageStatus.RECEIVED, "app", 1_000);
+        send("m2", MessageStatus.FAILED, "app", 9_000);
+        send("m3", MessageStatus.RECEIVED, "other", 1_000);
+        send("m3", MessageStatus.COMPLETED, "other", 1_500);
+
+        List<SloWindow> appWindows = windows("app");
+
+        assertThat(appWindows).hasSize(1);
+        SloWindow window = appWindows.get(0);
+        assertThat(window.getCount()).isEqualTo(2);
+        assertThat(window.getFailures()).isEqualTo(1);
+        assertThat(window.getMaxLatencyMs()).isEqualTo(8_000);
+        assertThat(window.latencyPercentileMs(0.5)).isBetween(2_000L, 2_400L);
+        assertThat(windows("other")).extracting(SloWindow::getCount).containsExactly(1L);
+    }
+
+    @Test
+    void ignoresMessagesThatNeverFinish() {
+        send("m1", MessageStatus.RECEIVED, "app", 0);
+        send("m1", MessageStatus.PROCESSING, "app", 500);
+
+        assertThat(windows("app")).isEmpty();
+    }
+
+    private void send(String messageId, MessageStatus status, String requestedBy, long offsetMs) {
+        Instant time = START.plusMillis(offsetMs);
+        statusTopic.pipeInput(messageId, VoiceProcessingStatus.builder()
+                .messageId(messageId)
+                .status(status)
+                .requestedBy(requestedBy)
+                .timestamp(LocalDateTime.ofInstant(time, ZoneOffset.UTC))
+                .build(), time);
+    }
+
+    private List<SloWindow> windows(String requestedBy) {
+        WindowStore<String, SloWindow> store = driver.getWindowStore(SloStreamsConfig.SLO_WINDOWS_STORE);
+        List<SloWindow> windows = new ArrayList<>();
+        try (WindowStoreIterator<SloWindow> iterator =
+                     store.fetch(requestedBy, START.minusSeconds(60), START.plusSeconds(60))) {
+            iterator.forEachRemaining(entry -> windows.add(entry.value));
+        }
+        return windows;
+    }
+}
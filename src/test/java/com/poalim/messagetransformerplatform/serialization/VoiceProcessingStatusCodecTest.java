@@ -0,0 +1,84 @@
+package com.poalim.messagetransformerplatform.serialization;
+
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VoiceProcessingStatusCodecTest {
+
+    private final VoiceProcessingStatusSerializer serializer = new VoiceProcessingStatusSerializer();
+    private final VoiceProcessingStatusDeserializer deserializer = new VoiceProcessingStatusDeserializer();
+
+    @Test
+    void roundTripsCompletedEvent() {
+        VoiceProcessingStatus status = VoiceProcessingStatus.builder()
+                .messageId(UUID.randomUUID().toString())
+                .status(MessageStatus.COMPLETED)
+                .timestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .s3BucketName("voice-messages-bucket")
+                .s3ObjectKey("audio/" + UUID.randomUUID() + ".mp3")
+                .requestedBy("mobile-app")
+                .build();
+
+        assertThat(deserializer.deserialize("topic", serializer.serialize("topic", status))).isEqualTo(status);
+    }
+
+    @Test
+    void roundTripsNonUuidIdAndMultiByteStrings() {
+        VoiceProcessingStatus status = VoiceProcessingStatus.builder()
+                .messageId("legacy-42")
+                .status(MessageStatus.FAILED)
+                .errorMessage("שגיאה ".repeat(40))
+                .build();
+
+        assertThat(deserializer.deserialize("topic", serializer.serialize("topic", status))).isEqualTo(status);
+    }
+
+    @Test
+    void readsJsonRecordsWrittenBeforeTheSwitch() {
+        VoiceProcessingStatus status = VoiceProcessingStatus.builder()
+                .messageId(UUID.randomUUID().toString())
+                .status(MessageStatus.RECEIVED)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        byte[] json = new JsonSerializer<VoiceProcessingStatus>().serialize("topic", status);
+
+        assertThat(deserializer.deserialize("topic", json)).isEqualTo(status);
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        assertThatThrownBy(() -> deserializer.deserialize("topic", new byte[]{99, 0}))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void rejectsNegativeStringLength() {
+        // Message ID flag set, followed by a five-byte varint that decodes to a negative length
+        byte[] data = {VoiceProcessingStatusCodec.VERSION_1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+
+        assertThatThrownBy(() -> deserializer.deserialize("topic", data))
+                .isInstanceOf(SerializationException.class)
+                .hasRootCauseMessage("Malformed string length: -1");
+    }
+
+    @Test
+    void rejectsUnknownStatusOrdinal() {
+        // Status flag set, followed by an ordinal past the last status
+        byte[] data = {VoiceProcessingStatusCodec.VERSION_1, 1 << 2, (byte) 0xFE};
+
+        assertThatThrownBy(() -> deserializer.deserialize("topic", data))
+                .isInstanceOf(SerializationException.class)
+                .hasRootCauseMessage("Unknown message status ordinal: 254");
+    }
+}
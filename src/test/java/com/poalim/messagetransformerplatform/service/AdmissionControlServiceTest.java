@@ -0,0 +1,64 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlProperties properties = new AdmissionControlProperties();
+    private AdmissionControlService admissionControlService;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxInFlight(2);
+        properties.setPriorityRequesters(Set.of("fraud-alerts"));
+        properties.setLatencySampleInterval(Duration.ZERO);
+        admissionControlService = new AdmissionControlService(properties, meterRegistry);
+    }
+
+    @Test
+    void shedsPastTheInFlightLimitExceptForPriorityRequesters() {
+        AdmissionControlService.Permit first = admissionControlService.tryAdmit("app", "one");
+        AdmissionControlService.Permit second = admissionControlService.tryAdmit("app", "two");
+        AdmissionControlService.Permit shed = admissionControlService.tryAdmit("app", "three");
+        AdmissionControlService.Permit priority = admissionControlService.tryAdmit("fraud-alerts", "four");
+
+        assertThat(first.isAdmitted()).isTrue();
+        assertThat(second.isAdmitted()).isTrue();
+        assertThat(shed.isAdmitted()).isFalse();
+        assertThat(shed.getRetryAfter()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(priority.isAdmitted()).isTrue();
+        assertThat(meterRegistry.get("admission.decisions").tag("result", "shed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("admission.decisions").tag("result", "bypassed").counter().count()).isEqualTo(1);
+
+        first.release();
+        first.release();
+        priority.release();
+        assertThat(admissionControlService.getInFlight()).isEqualTo(1);
+        assertThat(admissionControlService.tryAdmit("app", "five").isAdmitted()).isTrue();
+    }
+
+    @Test
+    void shedsWhileTheStageIsSlowAndScalesRetryAfterWithItsLatency() {
+        properties.setMaxStageLatency(Duration.ofSeconds(10));
+        Timer synthesis = Timer.builder(PipelineInstrumentation.OBSERVATION_NAME)
+                .tag("stage", "synthesis")
+                .register(meterRegistry);
+        synthesis.record(Duration.ofSeconds(20));
+
+        AdmissionControlService.Permit shed = admissionControlService.tryAdmit("app", "text");
+
+        assertThat(shed.isAdmitted()).isFalse();
+        assertThat(shed.getRetryAfter()).isEqualTo(Duration.ofSeconds(40));
+        assertThat(meterRegistry.get("admission.decisions").tag("reason", "latency").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AudioDiskCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AudioDiskCacheServiceTest {
+
+    private final S3StorageService s3StorageService = mock(S3StorageService.class);
+
+    @TempDir
+    Path directory;
+
+    private AudioDiskCacheService audioDiskCacheService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The "audio" of an object is its key
+        when(s3StorageService.downloadAudioToFile(anyString(), any(Path.class))).thenAnswer(invocation -> {
+            String objectKey = invocation.getArgument(0);
+            Files.writeString(invocation.getArgument(1), objectKey);
+            return (long) objectKey.length();
+        });
+
+        AudioDiskCacheProperties properties = new AudioDiskCacheProperties();
+        properties.setDirectory(directory.toString());
+        properties.setMaxSizeBytes(10);
+        audioDiskCacheService = new AudioDiskCacheService(s3StorageService, properties, new SimpleMeterRegistry());
+        audioDiskCacheService.loadExistingEntries();
+    }
+
+    @Test
+    void servesAnObjectLargerThanTheCache() throws IOException {
+        Path small = fetchAndRelease("audio/a");
+        Path large = fetchAndRelease("audio/much-too-large");
+
+        assertThat(large).exists();
+        assertThat(Files.readString(large)).isEqualTo("audio/much-too-large");
+        assertThat(small).doesNotExist();
+
+        Path next = fetchAndRelease("audio/b");
+
+        assertThat(next).exists();
+        assertThat(large).doesNotExist();
+        assertThat(audioDiskCacheService.getTotalBytes()).isEqualTo(7);
+    }
+
+    @Test
+    void keepsFilesOnDiskUntilTheirCallersReleaseThem() {
+        AudioDiskCacheService.CachedAudio first = audioDiskCacheService.getOrFetch("audio/a");
+        AudioDiskCacheService.CachedAudio hit = audioDiskCacheService.getOrFetch("audio/a");
+
+        fetchAndRelease("audio/much-too-large");
+        assertThat(first.getFile()).exists();
+
+        first.release();
+        fetchAndRelease("audio/b");
+        assertThat(hit.getFile()).exists();
+
+        hit.release();
+        fetchAndRelease("audio/much-too-large");
+        assertThat(hit.getFile()).doesNotExist();
+    }
+
+    private Path fetchAndRelease(String objectKey) {
+        AudioDiskCacheService.CachedAudio cached = audioDiskCacheService.getOrFetch(objectKey);
+        cached.release();
+        return cached.getFile();
+    }
+}
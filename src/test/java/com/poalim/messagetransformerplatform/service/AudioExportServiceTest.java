@@ -0,0 +1,202 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.poalim.messagetransformerplatform.config.ExportProperties;
+import com.poalim.messagetransformerplatform.model.ExportDestination;
+import com.poalim.messagetransformerplatform.model.ExportJob;
+import com.poalim.messagetransformerplatform.model.ExportJobStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.repository.ExportJobRepository;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.bson.Document;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AudioExportServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    private final ExportJobRepository exportJobRepository = mock(ExportJobRepository.class);
+    private final ReactiveVoiceMessageRepository messageRepository = mock(ReactiveVoiceMessageRepository.class);
+    private final S3StorageService s3StorageService = mock(S3StorageService.class);
+    private final ReactiveMongoTemplate reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final List<VoiceMessage> messages = List.of(message(0), message(1), message(2));
+
+    @TempDir
+    Path directory;
+
+    private AudioExportService audioExportService;
+
+    @BeforeEach
+    void setUp() {
+        when(reactiveMongoTemplate.findAndReplace(any(Query.class), any(ExportJob.class), any(FindAndReplaceOptions.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        when(messageRepository.countMatching(any())).thenReturn(Mono.just(3L));
+        // The "audio" of a message is its object key; m1's object is gone
+        when(s3StorageService.downloadToFileAsync(anyString(), any(Path.class))).thenAnswer(invocation -> {
+            String objectKey = invocation.getArgument(0);
+            if (objectKey.contains("m1")) {
+                return Mono.error(NoSuchKeyException.builder().message("Not found").build());
+            }
+            Files.writeString(invocation.getArgument(1), objectKey);
+            return Mono.just((long) objectKey.length());
+        });
+
+        ExportProperties exportProperties = new ExportProperties();
+        exportProperties.setDirectory(directory.toString());
+        exportProperties.setPageSize(2);
+        exportProperties.setMaxPartEntries(2);
+        audioExportService = new AudioExportService(exportJobRepository, messageRepository,
+                reactiveMongoTemplate, s3StorageService, exportProperties,
+                JsonMapper.builder().findAndAddModules().build(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void archivesPagesIntoCheckpointedPartsWithManifests() throws IOException {
+        when(messageRepository.findPage(any(), isNull(), isNull(), eq(2))).thenReturn(Flux.fromIterable(messages.subList(0, 2)));
+        when(messageRepository.findPage(any(), eq(NOW.minusSeconds(1)), eq("m1"), eq(2)))
+                .thenReturn(Flux.fromIterable(messages.subList(2, 3)));
+
+        ExportJob job = audioExportService.run(newJob()).block();
+
+        assertThat(job.getStatus()).isEqualTo(ExportJobStatus.COMPLETED);
+        assertThat(job.getTotalMessages()).isEqualTo(3);
+        assertThat(job.getMessagesExported()).isEqualTo(2);
+        assertThat(job.getMessagesFailed()).isEqualTo(1);
+        assertThat(job.getCheckpointMessageId()).isEqualTo("m2");
+        assertThat(job.getParts()).hasSize(2);
+
+        Map<String, String> firstPart = readArchive(Path.of(job.getParts().get(0)));
+        assertThat(firstPart).containsOnlyKeys("audio/2025-03-01/m0.mp3", AudioExportService.MANIFEST_ENTRY);
+        assertThat(firstPart.get("audio/2025-03-01/m0.mp3")).isEqualTo("audio/m0.mp3");
+        String[] manifest = firstPart.get(AudioExportService.MANIFEST_ENTRY).split("\n");
+        assertThat(manifest).hasSize(2);
+        assertThat(manifest[0]).contains("\"messageId\":\"m0\"", "\"checksumSha256\":");
+        assertThat(manifest[1]).contains("\"messageId\":\"m1\"", "\"errorMessage\":\"Audio object not found\"");
+
+        assertThat(readArchive(Path.of(job.getParts().get(1)))).containsKey("audio/2025-03-01/m2.mp3");
+        assertThat(directory.resolve(job.getId()).resolve("objects")).isEmptyDirectory();
+    }
+
+    @Test
+    void resumesPastTheCheckpointIntoTheNextPart() throws IOException {
+        when(messageRepository.findPage(any(), eq(NOW.minusSeconds(1)), eq("m1"), eq(2)))
+                .thenReturn(Flux.fromIterable(messages.subList(2, 3)));
+        ExportJob interrupted = newJob().toBuilder()
+                .messagesExported(1)
+                .messagesFailed(1)
+                .checkpointCreatedAt(NOW.minusSeconds(1))
+                .checkpointMessageId("m1")
+                .parts(new ArrayList<>(List.of("part-00001.zip")))
+                .build();
+
+        ExportJob job = audioExportService.run(interrupted).block();
+
+        assertThat(job.getStatus()).isEqualTo(ExportJobStatus.COMPLETED);
+        assertThat(job.getMessagesExported()).isEqualTo(2);
+        assertThat(job.getParts()).hasSize(2);
+        assertThat(job.getParts().get(1)).endsWith("part-00002.zip");
+        assertThat(readArchive(Path.of(job.getParts().get(1))))
+                .containsOnlyKeys("audio/2025-03-01/m2.mp3", AudioExportService.MANIFEST_ENTRY);
+    }
+
+    @Test
+    void stopsWithoutWritingTheJobOnceAnotherRunHoldsIt() {
+        when(messageRepository.findPage(any(), isNull(), isNull(), eq(2))).thenReturn(Flux.fromIterable(messages.subList(0, 2)));
+        when(messageRepository.findPage(any(), eq(NOW.minusSeconds(1)), eq("m1"), eq(2)))
+                .thenReturn(Flux.fromIterable(messages.subList(2, 3)));
+        // The job is claimed by another run before the first checkpoint
+        when(reactiveMongoTemplate.findAndReplace(any(Query.class), any(ExportJob.class), any(FindAndReplaceOptions.class)))
+                .thenReturn(Mono.empty());
+
+        assertThat(audioExportService.run(newJob()).block()).isNull();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate, times(1)).findAndReplace(query.capture(), any(ExportJob.class),
+                any(FindAndReplaceOptions.class));
+        assertThat(query.getValue().getQueryObject()).containsEntry("runId", "run-1");
+        assertThat(directory.resolve("job-1").resolve("part-00002.zip")).doesNotExist();
+    }
+
+    @Test
+    void claimsFailedJobsAndRunningJobsWhoseLeaseExpired() {
+        when(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(ExportJob.class))).thenReturn(Mono.empty());
+
+        audioExportService.resumeExport("job-1").block();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(reactiveMongoTemplate).findAndModify(query.capture(), update.capture(),
+                any(FindAndModifyOptions.class), eq(ExportJob.class));
+        List<?> claimable = (List<?>) query.getValue().getQueryObject().get("$or");
+        assertThat(claimable).hasSize(2);
+        assertThat(((Document) claimable.get(1)).get("updatedAt", Document.class)).containsKey("$lt");
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class)).containsKey("runId");
+    }
+
+    private static ExportJob newJob() {
+        return ExportJob.builder()
+                .id("job-1")
+                .createdFrom(NOW.minusDays(1))
+                .createdTo(NOW.plusDays(1))
+                .destination(ExportDestination.FILE)
+                .status(ExportJobStatus.RUNNING)
+                .runId("run-1")
+                .build();
+    }
+
+    private static VoiceMessage message(int index) {
+        // Newest first, one second apart
+        return VoiceMessage.builder()
+                .id("m" + index)
+                .createdAt(NOW.minusSeconds(index))
+                .s3ObjectKey("audio/m" + index + ".mp3")
+                .contentType("audio/mpeg")
+                .build();
+    }
+
+    private static Map<String, String> readArchive(Path archive) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (InputStream in = Files.newInputStream(archive); ZipInputStream zip = new ZipInputStream(in)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
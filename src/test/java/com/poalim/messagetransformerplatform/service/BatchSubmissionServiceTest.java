@@ -0,0 +1,109 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AdmissionControlProperties;
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.LongTextProperties;
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.BatchItemRequest;
+import com.poalim.messagetransformerplatform.model.BatchItemResult;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchSubmissionServiceTest {
+
+    private final MessageTransformerService messageTransformerService = mock(MessageTransformerService.class);
+    private final AdmissionControlProperties admissionControlProperties = new AdmissionControlProperties();
+    private final AdmissionControlService admissionControlService =
+            new AdmissionControlService(admissionControlProperties, new SimpleMeterRegistry());
+    private final BatchSubmissionService batchSubmissionService = new BatchSubmissionService(messageTransformerService,
+            new PipelineProperties(), mock(VirtualThreadPipelineService.class), new AudioFormatProperties(),
+            new LongTextSynthesisService(mock(TextToSpeechService.class),
+                    mock(S3StorageService.class), new LongTextProperties()),
+            admissionControlService, Validation.buildDefaultValidatorFactory().getValidator());
+
+    @BeforeEach
+    void setUp() {
+        when(messageTransformerService.newVoiceMessage(anyString(), anyString(), any(AudioFormat.class)))
+                .thenAnswer(invocation -> VoiceMessage.builder()
+                        .id("id-" + invocation.getArgument(0))
+                        .originalText(invocation.getArgument(0))
+                        .status(MessageStatus.RECEIVED)
+                        .build());
+        when(messageTransformerService.acceptTextMessages(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VoiceMessage>>getArgument(0)));
+    }
+
+    @Test
+    void reportsInvalidAndFailingItemsWithoutAbortingTheBatch() {
+        when(messageTransformerService.processAcceptedMessage(any())).thenAnswer(invocation -> {
+            VoiceMessage message = invocation.getArgument(0);
+            if (message.getOriginalText().equals("boom")) {
+                throw new IllegalStateException("Pipeline assembly failed");
+            }
+            message.setStatus(MessageStatus.COMPLETED);
+            return Mono.just(message);
+        });
+
+        List<BatchItemRequest> items = List.of(
+                BatchItemRequest.builder().text("one").build(),
+                BatchItemRequest.builder().clientReference("missing-text").build(),
+                BatchItemRequest.builder().text("boom").build(),
+                BatchItemRequest.builder().text("two").format("not-a-format").build(),
+                BatchItemRequest.builder().text("three").build());
+
+        List<BatchItemResult> results = batchSubmissionService.submitBatch(items.iterator(), "tester")
+                .collectSortedList(Comparator.comparing(BatchItemResult::getIndex))
+                .block();
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(MessageStatus.COMPLETED,
+                MessageStatus.FAILED, MessageStatus.FAILED, MessageStatus.FAILED, MessageStatus.COMPLETED);
+        assertThat(results.get(1).getClientReference()).isEqualTo("missing-text");
+        assertThat(results.get(1).getErrorMessage()).contains("text");
+        assertThat(results.get(2).getErrorMessage()).isEqualTo("Pipeline assembly failed");
+        assertThat(results.get(3).getMessageId()).isNull();
+        assertThat(admissionControlService.getInFlight()).isZero();
+    }
+
+    @Test
+    void shedsItemsPastTheAdmissionLimitWithARetryDelay() {
+        admissionControlProperties.setMaxInFlight(2);
+        when(messageTransformerService.processAcceptedMessage(any())).thenAnswer(invocation -> {
+            VoiceMessage message = invocation.getArgument(0);
+            message.setStatus(MessageStatus.COMPLETED);
+            return Mono.just(message);
+        });
+
+        // All three items are accepted in one chunk, before any of them is processed
+        List<BatchItemRequest> items = List.of(
+                BatchItemRequest.builder().text("one").build(),
+                BatchItemRequest.builder().text("two").build(),
+                BatchItemRequest.builder().text("three").build());
+
+        List<BatchItemResult> results = batchSubmissionService.submitBatch(items.iterator(), "tester")
+                .collectSortedList(Comparator.comparing(BatchItemResult::getIndex))
+                .block();
+
+        assertThat(results).extracting(BatchItemResult::getStatus)
+                .containsExactly(MessageStatus.COMPLETED, MessageStatus.COMPLETED, MessageStatus.FAILED);
+        assertThat(results.get(2).getMessageId()).isNull();
+        assertThat(results.get(2).getRetryAfterSeconds()).isPositive();
+        assertThat(admissionControlService.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,64 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.model.MessageListingLine;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceMessageFilter;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageListingServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    private final ReactiveVoiceMessageRepository repository = mock(ReactiveVoiceMessageRepository.class);
+    private final MessageListingService listingService = new MessageListingService(repository);
+
+    @Test
+    void endsAFullPageWithATokenThatSeeksPastItsLastMessage() {
+        VoiceMessageFilter filter = new VoiceMessageFilter();
+        when(repository.findPage(eq(filter), isNull(), isNull(), eq(3))).thenReturn(Flux.fromIterable(messages(3)));
+        when(repository.findPage(eq(filter), eq(NOW.minusSeconds(1)), eq("m1"), eq(3)))
+                .thenReturn(Flux.fromIterable(messages(3).subList(2, 3)));
+
+        List<MessageListingLine> firstPage = listingService.listMessages(filter, null, 2).collectList().block();
+
+        assertThat(firstPage).hasSize(3);
+        assertThat(firstPage.get(1).getMessage().getId()).isEqualTo("m1");
+        String token = firstPage.get(2).getContinuationToken();
+        assertThat(token).isNotNull();
+
+        List<MessageListingLine> secondPage = listingService.listMessages(filter, token, 2).collectList().block();
+
+        assertThat(secondPage).extracting(line -> line.getMessage().getId()).containsExactly("m2");
+    }
+
+    @Test
+    void rejectsMalformedContinuationTokens() {
+        when(repository.findPage(any(), any(), any(), eq(101))).thenReturn(Flux.empty());
+
+        assertThatThrownBy(() -> listingService.listMessages(new VoiceMessageFilter(), "not a token", 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> listingService.listMessages(new VoiceMessageFilter(), "bm8tc2VwYXJhdG9y", 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<VoiceMessage> messages(int count) {
+        // Newest first, one second apart
+        return IntStream.range(0, count)
+                .mapToObj(i -> VoiceMessage.builder().id("m" + i).createdAt(NOW.minusSeconds(i)).build())
+                .toList();
+    }
+}
@@ -0,0 +1,231 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.config.LongTextProperties;
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import com.poalim.messagetransformerplatform.repository.SynthesisCacheEntryRepository;
+import com.poalim.messagetransformerplatform.repository.VoiceMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the processing pipeline on non-blocking threads with BlockHound installed, so any blocking
+ * call that sneaks back into the chain fails the test.
+ * <p>
+ * BlockHound cannot be uninstalled, so the build runs {@code *BlockingTest} classes in a JVM fork of
+ * their own, away from tests that block on purpose.
+ */
+class MessageTransformerServiceBlockingTest {
+
+    private final Map<String, VoiceMessage> store = new ConcurrentHashMap<>();
+
+    private MessageTransformerService messageTransformerService;
+    private TextToSpeechService textToSpeechService;
+    private KafkaProducerService kafkaProducerService;
+    private StatusWriteBehindService statusWriteBehindService;
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install(builder -> builder
+                // SecureRandom occasionally refills from /dev/urandom, which never blocks in practice
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID")
+                // Lazy class loading reads jars on first use
+                .allowBlockingCallsInside("java.lang.ClassLoader", "loadClass")
+                .allowBlockingCallsInside("reactor.core.publisher.ContextPropagationSupport", "<clinit>"));
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReactiveVoiceMessageRepository reactiveRepository = mock(ReactiveVoiceMessageRepository.class);
+        when(reactiveRepository.save(any(VoiceMessage.class))).thenAnswer(invocation -> {
+            VoiceMessage message = invocation.getArgument(0);
+            store.put(message.getId(), message);
+            return Mono.just(message);
+        });
+        when(reactiveRepository.findById(anyString()))
+                .thenAnswer(invocation -> Mono.justOrEmpty(store.get(invocation.<String>getArgument(0))));
+
+        SynthesisCacheEntryRepository cacheRepository = mock(SynthesisCacheEntryRepository.class);
+        when(cacheRepository.findById(anyString())).thenReturn(Mono.empty());
+        when(cacheRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+        when(s3AsyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("upload-1").build()));
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenReturn(
+                CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+        when(s3AsyncClient.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(
+                CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        AwsS3Properties s3Properties = new AwsS3Properties();
+        s3Properties.setBucketName("voice-messages-bucket");
+
+        S3StorageService s3StorageService = new S3StorageService(
+                mock(S3Client.class), s3AsyncClient, mock(S3Presigner.class), s3Properties);
+
+        textToSpeechService = mock(TextToSpeechService.class);
+        when(textToSpeechService.getModel()).thenReturn("tts-1");
+        when(textToSpeechService.getVoice()).thenReturn("alloy");
+
+        SynthesisCacheService synthesisCacheService = new SynthesisCacheService(
+                cacheRepository, new SynthesisCacheProperties(), new SimpleMeterRegistry());
+
+        statusWriteBehindService = mock(StatusWriteBehindService.class);
+        when(statusWriteBehindService.write(anyString(), any(), any())).thenReturn(Mono.empty());
+        kafkaProducerService = mock(KafkaProducerService.class);
+
+        messageTransformerService = new MessageTransformerService(
+                mock(VoiceMessageRepository.class),
+                reactiveRepository,
+                textToSpeechService,
+                s3StorageService,
+                kafkaProducerService,
+                synthesisCacheService,
+                new LongTextSynthesisService(textToSpeechService, s3StorageService, new LongTextProperties()),
+                new PipelineInstrumentation(ObservationRegistry.create(), new SimpleMeterRegistry()),
+                mock(TemplateSynthesisService.class),
+                statusWriteBehindService);
+        ReflectionTestUtils.setField(messageTransformerService, "s3BucketName", "voice-messages-bucket");
+    }
+
+    @Test
+    void streamingPipelineDoesNotBlock() {
+        ReflectionTestUtils.setField(messageTransformerService, "streamingEnabled", true);
+        when(textToSpeechService.streamTextToSpeech(anyString(), any())).thenReturn(Flux.range(0, 4).map(i -> audioChunk()));
+
+        StepVerifier.create(Mono.defer(() -> messageTransformerService.processTextMessage("Hello streaming", "tester", AudioFormat.MP3))
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(message -> {
+                    assertThat(message.getStatus()).isEqualTo(MessageStatus.COMPLETED);
+                    assertThat(message.getFileSizeBytes()).isEqualTo(4L * 1024);
+                    assertThat(message.getChecksumSha256()).isNotBlank();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void bufferedPipelineDoesNotBlock() {
+        ReflectionTestUtils.setField(messageTransformerService, "streamingEnabled", false);
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[2048]));
+
+        StepVerifier.create(Mono.defer(() -> messageTransformerService.processTextMessage("Hello buffered", "tester", AudioFormat.MP3))
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(message -> {
+                    assertThat(message.getStatus()).isEqualTo(MessageStatus.COMPLETED);
+                    assertThat(message.getFileSizeBytes()).isEqualTo(2048L);
+                    assertThat(message.getStageDurationsMs()).containsKeys("status-update", "synthesis", "tts", "s3-upload");
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void longTextPipelineDoesNotBlock() {
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[512]));
+        String text = "This sentence is repeated to build a long multi-paragraph message. ".repeat(40);
+
+        StepVerifier.create(Mono.defer(() -> messageTransformerService.processTextMessage(text, "tester", AudioFormat.MP3))
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(message -> {
+                    assertThat(message.getStatus()).isEqualTo(MessageStatus.COMPLETED);
+                    assertThat(message.getChunkCount()).isGreaterThan(1);
+                    assertThat(message.getChunkDurationsMs()).hasSize(message.getChunkCount());
+                    assertThat(message.getFileSizeBytes()).isEqualTo(512L * message.getChunkCount());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void failsTheMessageBeforeCompletingWhenProcessingCannotBePublished() {
+        ReflectionTestUtils.setField(messageTransformerService, "streamingEnabled", false);
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[2048]));
+        doThrow(new IllegalStateException("Broker unavailable")).when(kafkaProducerService)
+                .publishStatusUpdate(argThat(status -> status.getStatus() == MessageStatus.PROCESSING));
+
+        StepVerifier.create(Mono.defer(() -> messageTransformerService.processTextMessage("Hello", "tester", AudioFormat.MP3))
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(message -> assertThat(message.getStatus()).isEqualTo(MessageStatus.FAILED))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        verify(statusWriteBehindService, never()).write(anyString(), eq(MessageStatus.COMPLETED), any());
+    }
+
+    @Test
+    void keepsTheMessageCompletedWhenItsCompletionCannotBePublished() {
+        ReflectionTestUtils.setField(messageTransformerService, "streamingEnabled", false);
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[2048]));
+        doThrow(new IllegalStateException("Broker unavailable")).when(kafkaProducerService)
+                .publishStatusUpdate(argThat(status -> status.getStatus() == MessageStatus.COMPLETED));
+
+        StepVerifier.create(Mono.defer(() -> messageTransformerService.processTextMessage("Hello", "tester", AudioFormat.MP3))
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(message -> assertThat(message.getStatus()).isEqualTo(MessageStatus.COMPLETED))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        verify(statusWriteBehindService, never()).write(anyString(), eq(MessageStatus.FAILED), any());
+    }
+
+    @Test
+    void blockHoundIsActive() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                            Thread.sleep(1);
+                            return "";
+                        })
+                        .subscribeOn(Schedulers.parallel()))
+                .expectErrorMatches(e -> e.getMessage() != null && e.getMessage().contains("Blocking call"))
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private DataBuffer audioChunk() {
+        return DefaultDataBufferFactory.sharedInstance.wrap(new byte[1024]);
+    }
+}
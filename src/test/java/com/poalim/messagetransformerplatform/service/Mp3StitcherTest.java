@@ -0,0 +1,56 @@
+package com.poalim.messagetransformerplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Mp3StitcherTest {
+
+    // MPEG-1 Layer III, 128 kbit/s, 44.1 kHz, stereo: 417-byte frames
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int FRAME_LENGTH = 417;
+
+    @Test
+    void stripsTagsAndTheInfoFrame() {
+        byte[] audioFrame = frame(null);
+        byte[] segment = concat(new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0}, frame("Info"), audioFrame, id3v1());
+
+        assertThat(Mp3Stitcher.stripTags(segment)).isEqualTo(audioFrame);
+    }
+
+    @Test
+    void keepsALeadingAudioFrame() {
+        byte[] segment = concat(frame(null), frame(null));
+
+        assertThat(Mp3Stitcher.stripTags(segment)).isSameAs(segment);
+    }
+
+    private static byte[] frame(String marker) {
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, frame, 0, FRAME_HEADER.length);
+        if (marker != null) {
+            // Stereo MPEG-1 side information is 32 bytes
+            System.arraycopy(marker.getBytes(StandardCharsets.US_ASCII), 0, frame, 36, marker.length());
+        }
+        return frame;
+    }
+
+    private static byte[] id3v1() {
+        byte[] tag = new byte[128];
+        tag[0] = 'T';
+        tag[1] = 'A';
+        tag[2] = 'G';
+        return tag;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+package com.poalim.messagetransformerplatform.service;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineInstrumentationTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private PipelineInstrumentation pipelineInstrumentation;
+
+    @BeforeEach
+    void setUp() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        pipelineInstrumentation = new PipelineInstrumentation(observationRegistry, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void nestsStagesAndTagsThemWithTheServingBackend() {
+        Mono<String> providerCall = Mono.deferContextual(context -> {
+            PipelineInstrumentation.recordBackend(context, "tts-1-hd", "nova");
+            return Mono.just("audio");
+        });
+
+        pipelineInstrumentation.timeStage("synthesis", "m1", null,
+                pipelineInstrumentation.timeStage("tts", "m1", null, providerCall)).block();
+        pipelineInstrumentation.timeStage("mongo-save", "m1", null, Mono.just("saved")).block();
+
+        Map<String, Observation.Context> stages = stopped.stream()
+                .collect(Collectors.toMap(Observation.Context::getContextualName, context -> context));
+        assertThat(stages.get("tts").getParentObservation().getContextView().getContextualName()).isEqualTo("synthesis");
+        assertThat(stages.get("tts").getLowCardinalityKeyValues()).contains(KeyValue.of("model", "tts-1-hd"));
+        assertThat(stages.get("synthesis").getLowCardinalityKeyValues())
+                .contains(KeyValue.of("model", "tts-1-hd"), KeyValue.of("voice", "nova"));
+        assertThat(stages.get("mongo-save").getLowCardinalityKeyValues())
+                .contains(KeyValue.of("model", PipelineInstrumentation.NO_BACKEND));
+    }
+
+    @Test
+    void nestsBlockingStagesAndTheReactiveCallsWithin() {
+        Mono<String> providerCall = Mono.deferContextual(context -> {
+            PipelineInstrumentation.recordBackend(context, "tts-1", "alloy");
+            return Mono.just("audio");
+        });
+
+        pipelineInstrumentation.timeStage("synthesis", "m1", null, () -> pipelineInstrumentation.timeStage(
+                "tts", "m1", null, () -> pipelineInstrumentation.inCurrentStage(providerCall).block()));
+
+        Map<String, Observation.Context> stages = stopped.stream()
+                .collect(Collectors.toMap(Observation.Context::getContextualName, context -> context));
+        assertThat(stages.get("tts").getParentObservation().getContextView().getContextualName()).isEqualTo("synthesis");
+        assertThat(stages.get("synthesis").getLowCardinalityKeyValues()).contains(KeyValue.of("voice", "alloy"));
+    }
+}
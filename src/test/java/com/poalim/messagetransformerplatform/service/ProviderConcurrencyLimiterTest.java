@@ -0,0 +1,111 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.ProviderLimiterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderConcurrencyLimiterTest {
+
+    @Test
+    void holdsCallsBeyondTheLimitUntilASlotFrees() {
+        ProviderConcurrencyLimiter limiter = limiter(2, 10);
+        List<String> started = new CopyOnWriteArrayList<>();
+        Sinks.One<String> first = Sinks.one();
+
+        limiter.limit("a", heldCall("1", first, started)).subscribe();
+        limiter.limit("a", heldCall("2", Sinks.one(), started)).subscribe();
+        limiter.limit("a", heldCall("3", Sinks.one(), started)).subscribe();
+
+        assertThat(started).containsExactly("1", "2");
+        assertThat(limiter.getQueueDepth()).isEqualTo(1);
+
+        first.tryEmitValue("done");
+
+        assertThat(started).containsExactly("1", "2", "3");
+        assertThat(limiter.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void servesTenantsFairlyRegardlessOfArrivalOrder() {
+        ProviderConcurrencyLimiter limiter = limiter(1, 10);
+        List<String> started = new CopyOnWriteArrayList<>();
+        List<Sinks.One<String>> calls = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            Sinks.One<String> call = Sinks.one();
+            calls.add(call);
+            limiter.limit("noisy", heldCall("noisy-" + i, call, started)).subscribe();
+        }
+        Sinks.One<String> quiet = Sinks.one();
+        limiter.limit("quiet", heldCall("quiet", quiet, started)).subscribe();
+
+        // The first noisy call holds the only slot; the quiet tenant is next despite arriving last
+        calls.get(0).tryEmitValue("done");
+
+        assertThat(started).containsExactly("noisy-0", "quiet");
+    }
+
+    @Test
+    void lowersTheLimitOnProviderThrottling() {
+        ProviderConcurrencyLimiter limiter = limiter(8, 10);
+
+        StepVerifier.create(limiter.limit("a", Flux.error(WebClientResponseException.create(
+                        HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", null, null, null))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        assertThat(limiter.getLimit()).isLessThan(8);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void measuresStreamedCallsUpToTheirFirstItem() {
+        ProviderConcurrencyLimiter limiter = limiter(8, 10);
+
+        // The provider answers at once, while the consumer takes well past the latency threshold
+        StepVerifier.create(limiter.limit("a", Flux.just("first", "second")
+                        .delayElements(Duration.ofMillis(100)).startWith("header")))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        ProviderConcurrencyLimiter limiter = limiter(1, 1);
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        limiter.limit("a", heldCall("1", Sinks.one(), started)).subscribe();
+        limiter.limit("a", heldCall("2", Sinks.one(), started)).subscribe();
+
+        StepVerifier.create(limiter.limit("b", heldCall("3", Sinks.one(), started)))
+                .expectErrorMessage("TTS provider queue is full")
+                .verify();
+    }
+
+    private static ProviderConcurrencyLimiter limiter(int initialLimit, int maxQueueSize) {
+        ProviderLimiterProperties properties = new ProviderLimiterProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMaxLimit(initialLimit); // Keep successes from widening the limit mid-test
+        properties.setMaxQueueSize(maxQueueSize);
+        properties.setLatencyThreshold(Duration.ofMillis(50));
+        return new ProviderConcurrencyLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    private static Flux<String> heldCall(String name, Sinks.One<String> completion, List<String> started) {
+        return completion.asMono().flux().doOnSubscribe(subscription -> started.add(name));
+    }
+}
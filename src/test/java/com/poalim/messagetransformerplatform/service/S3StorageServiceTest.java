@@ -0,0 +1,81 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class S3StorageServiceTest {
+
+    private final S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    private S3StorageService s3StorageService;
+
+    @BeforeEach
+    void setUp() {
+        AwsS3Properties properties = new AwsS3Properties();
+        properties.setBucketName("audio");
+        properties.setMultipartPartSizeBytes(8);
+        s3StorageService = new S3StorageService(mock(S3Client.class), s3AsyncClient, mock(S3Presigner.class), properties);
+
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        when(s3AsyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("upload-1").build()));
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+        when(s3AsyncClient.abortMultipartUpload(any(AbortMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+    }
+
+    @Test
+    void storesAudioShorterThanOnePartWithASinglePut() {
+        StoredAudio stored = s3StorageService.streamAudioToS3(Flux.just(buffer("abc"), buffer("de")),
+                "audio/mpeg", "audio/key.mp3").block();
+
+        assertThat(stored.getFileSizeBytes()).isEqualTo(5);
+        verify(s3AsyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        verify(s3AsyncClient, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsTheMultipartUploadWhenCancelled() {
+        Sinks.Many<DataBuffer> audio = Sinks.many().unicast().onBackpressureBuffer();
+        var subscription = s3StorageService.streamAudioToS3(audio.asFlux(), "audio/mpeg", "audio/key.mp3").subscribe();
+
+        audio.tryEmitNext(buffer("0123456789"));
+        verify(s3AsyncClient, timeout(1000)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        subscription.dispose();
+
+        verify(s3AsyncClient, timeout(1000)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes());
+    }
+}
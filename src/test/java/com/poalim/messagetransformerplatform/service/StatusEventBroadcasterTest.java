@@ -0,0 +1,76 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.StatusStreamProperties;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatusEventBroadcasterTest {
+
+    private final ReactiveVoiceMessageRepository reactiveVoiceMessageRepository = mock(ReactiveVoiceMessageRepository.class);
+    private final StatusEventBroadcaster broadcaster = new StatusEventBroadcaster(
+            reactiveVoiceMessageRepository, new StatusStreamProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void sendsTheSnapshotThenTransitionsUntilEveryMessageIsFinished() {
+        when(reactiveVoiceMessageRepository.findById("a")).thenReturn(Mono.just(message("a", MessageStatus.RECEIVED)));
+        when(reactiveVoiceMessageRepository.findById("b")).thenReturn(Mono.just(message("b", MessageStatus.COMPLETED)));
+
+        StepVerifier.create(broadcaster.watch(List.of("a", "b")))
+                .expectNextMatches(event -> event.getMessageId().equals("a") && event.getStatus() == MessageStatus.RECEIVED)
+                .expectNextMatches(event -> event.getMessageId().equals("b") && event.getStatus() == MessageStatus.COMPLETED)
+                .then(() -> {
+                    // A late duplicate of the snapshot is not repeated
+                    broadcaster.publish(status("a", MessageStatus.RECEIVED));
+                    broadcaster.publish(status("a", MessageStatus.PROCESSING));
+                    broadcaster.publish(status("a", MessageStatus.COMPLETED));
+                })
+                .expectNextMatches(event -> event.getStatus() == MessageStatus.PROCESSING)
+                .expectNextMatches(event -> event.getStatus() == MessageStatus.COMPLETED)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    void reportsUnknownMessagesAndStopsWatchingThem() {
+        when(reactiveVoiceMessageRepository.findById("missing")).thenReturn(Mono.empty());
+
+        StepVerifier.create(broadcaster.watch(List.of("missing")))
+                .expectNextMatches(event -> event.getMessageId().equals("missing") && event.getStatus() == null)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void endsTheStreamWhenTheSnapshotCannotBeRead() {
+        when(reactiveVoiceMessageRepository.findById("a")).thenReturn(Mono.error(new IllegalStateException("Mongo down")));
+
+        StepVerifier.create(broadcaster.watch(List.of("a")))
+                .expectErrorMessage("Mongo down")
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    private static VoiceMessage message(String id, MessageStatus status) {
+        return VoiceMessage.builder().id(id).status(status).build();
+    }
+
+    private static VoiceProcessingStatus status(String id, MessageStatus status) {
+        return VoiceProcessingStatus.builder().messageId(id).status(status).build();
+    }
+}
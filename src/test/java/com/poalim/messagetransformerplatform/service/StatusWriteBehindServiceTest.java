@@ -0,0 +1,143 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.poalim.messagetransformerplatform.config.PipelineProperties;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusWriteBehindServiceTest {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StatusWriteBehindService statusWriteBehindService;
+
+    @BeforeEach
+    void setUp() {
+        when(reactiveMongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(VoiceMessage.class)))
+                .thenReturn(bulkOperations);
+        statusWriteBehindService = new StatusWriteBehindService(reactiveMongoTemplate, new PipelineProperties(), meterRegistry);
+    }
+
+    @Test
+    void coalescesTransitionsOfOneMessageIntoOneUpdate() {
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+
+        Mono<Void> processing = statusWriteBehindService.write("a", MessageStatus.PROCESSING,
+                Map.of("status", MessageStatus.PROCESSING));
+        Mono<Void> completed = statusWriteBehindService.write("a", MessageStatus.COMPLETED,
+                Map.of("status", MessageStatus.COMPLETED, "fileSizeBytes", 2048L));
+        statusWriteBehindService.write("b", MessageStatus.PROCESSING, Map.of("status", MessageStatus.PROCESSING));
+
+        statusWriteBehindService.flush().block();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), updates.capture());
+        verify(bulkOperations, times(1)).execute();
+        Document set = (Document) updates.getAllValues().get(0).getUpdateObject().get("$set");
+        assertThat(set).containsEntry("status", MessageStatus.COMPLETED).containsEntry("fileSizeBytes", 2048L);
+        StepVerifier.create(processing).verifyComplete();
+        StepVerifier.create(completed).verifyComplete();
+        assertThat(meterRegistry.get("status.write.batch.size").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("status.write.coalesced").counter().count()).isEqualTo(1);
+        assertThat(statusWriteBehindService.getPendingCount()).isZero();
+    }
+
+    @Test
+    void failsSynchronousTransitionsWhenTheBulkWriteFails() {
+        when(bulkOperations.execute()).thenReturn(Mono.error(new IllegalStateException("Mongo unavailable")));
+
+        Mono<Void> failed = statusWriteBehindService.write("a", MessageStatus.FAILED,
+                Map.of("status", MessageStatus.FAILED));
+        statusWriteBehindService.flush().block();
+
+        StepVerifier.create(failed).verifyErrorMessage("Mongo unavailable");
+        assertThat(meterRegistry.get("status.write.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void completesBufferedTransitionsOnlyOnceFlushed() {
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+
+        Mono<Void> processing = statusWriteBehindService.write("a", MessageStatus.PROCESSING,
+                Map.of("status", MessageStatus.PROCESSING));
+
+        StepVerifier.create(processing).expectSubscription().expectNoEvent(Duration.ofMillis(50)).thenCancel().verify();
+        statusWriteBehindService.flush().block();
+        StepVerifier.create(processing).verifyComplete();
+    }
+
+    @Test
+    void finishesTheFlushInFlightAndWritesTheRestOnShutdown() {
+        when(bulkOperations.execute())
+                .thenReturn(Mono.delay(Duration.ofMillis(200)).thenReturn(mock(BulkWriteResult.class)));
+        statusWriteBehindService.start();
+
+        // Synchronous, so its batch is in flight by the time the second update is buffered
+        Mono<Void> failed = statusWriteBehindService.write("a", MessageStatus.FAILED,
+                Map.of("status", MessageStatus.FAILED));
+        Mono<Void> processing = statusWriteBehindService.write("b", MessageStatus.PROCESSING,
+                Map.of("status", MessageStatus.PROCESSING));
+        statusWriteBehindService.shutdown();
+
+        StepVerifier.create(failed).expectComplete().verify(Duration.ofSeconds(5));
+        StepVerifier.create(processing).expectComplete().verify(Duration.ofSeconds(5));
+        assertThat(statusWriteBehindService.getPendingCount()).isZero();
+    }
+
+    @Test
+    void writesStraightThroughOnceStopped() {
+        when(reactiveMongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(VoiceMessage.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        statusWriteBehindService.start();
+        statusWriteBehindService.shutdown();
+
+        StepVerifier.create(statusWriteBehindService.write("a", MessageStatus.PROCESSING,
+                        Map.of("status", MessageStatus.PROCESSING)))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertThat(statusWriteBehindService.getPendingCount()).isZero();
+    }
+
+    @Test
+    void keepsFlushingAfterABatchCannotBeBuilt() {
+        when(reactiveMongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(VoiceMessage.class)))
+                .thenThrow(new IllegalStateException("No session"))
+                .thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+        statusWriteBehindService.start();
+
+        StepVerifier.create(statusWriteBehindService.write("a", MessageStatus.COMPLETED,
+                        Map.of("status", MessageStatus.COMPLETED)))
+                .verifyErrorMessage("No session");
+        StepVerifier.create(statusWriteBehindService.write("b", MessageStatus.COMPLETED,
+                        Map.of("status", MessageStatus.COMPLETED)))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        statusWriteBehindService.shutdown();
+    }
+}
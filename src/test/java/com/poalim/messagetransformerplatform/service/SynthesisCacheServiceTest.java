@@ -0,0 +1,56 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.SynthesisCacheEntry;
+import com.poalim.messagetransformerplatform.repository.SynthesisCacheEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SynthesisCacheServiceTest {
+
+    private final SynthesisCacheEntryRepository cacheEntryRepository = mock(SynthesisCacheEntryRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SynthesisCacheService synthesisCacheService =
+            new SynthesisCacheService(cacheEntryRepository, new SynthesisCacheProperties(), meterRegistry);
+
+    @Test
+    void reportsRequestsJoiningAnInFlightSynthesisAsHits() {
+        when(cacheEntryRepository.findById(anyString())).thenReturn(Mono.empty());
+        when(cacheEntryRepository.save(any(SynthesisCacheEntry.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // The synthesis stays in flight until the second request has joined it
+        Sinks.One<StoredAudio> synthesized = Sinks.one();
+        AtomicInteger synthesisCalls = new AtomicInteger();
+        String cacheKey = synthesisCacheService.cacheKey("hello", "tts-1", "alloy", "mp3");
+
+        CompletableFuture<StoredAudio> first = synthesisCacheService.getOrSynthesize(cacheKey, key -> {
+            synthesisCalls.incrementAndGet();
+            return synthesized.asMono();
+        }).toFuture();
+        CompletableFuture<StoredAudio> second = synthesisCacheService.getOrSynthesize(cacheKey, key -> {
+            synthesisCalls.incrementAndGet();
+            return synthesized.asMono();
+        }).toFuture();
+        synthesized.tryEmitValue(StoredAudio.builder().s3ObjectKey("audio/cache/" + cacheKey + ".mp3").build());
+
+        assertThat(first.join().isCacheHit()).isFalse();
+        assertThat(second.join().isCacheHit()).isTrue();
+        assertThat(second.join().getS3ObjectKey()).isEqualTo(first.join().getS3ObjectKey());
+        assertThat(synthesisCalls).hasValue(1);
+        assertThat(meterRegistry.get("synthesis.cache.requests").tag("tier", "in-flight").counter().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,131 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AudioFormatProperties;
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.config.TemplateProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageTemplate;
+import com.poalim.messagetransformerplatform.model.StoredAudio;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.repository.MessageTemplateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TemplateSynthesisServiceTest {
+
+    private static final TtsBackendRouter.TtsBackend PRIMARY =
+            new TtsBackendRouter.TtsBackend("primary", "http://primary", "key", "tts-1", "alloy", 1);
+    private static final TtsBackendRouter.TtsBackend SECONDARY =
+            new TtsBackendRouter.TtsBackend("secondary", "http://secondary", "key", "tts-1", "nova", 1);
+
+    private final MessageTemplateRepository templateRepository = mock(MessageTemplateRepository.class);
+    private final TextToSpeechService textToSpeechService = mock(TextToSpeechService.class);
+    private final S3StorageService s3StorageService = mock(S3StorageService.class);
+    private final List<String> uploads = new ArrayList<>();
+    private final List<String> backendsUsed = new CopyOnWriteArrayList<>();
+
+    private TemplateSynthesisService templateSynthesisService;
+
+    @BeforeEach
+    void setUp() {
+        when(textToSpeechService.selectBackend()).thenReturn(PRIMARY);
+        // The "audio" of a segment is its text, so the joined upload shows the segment order
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenAnswer(invocation ->
+                Mono.deferContextual(context -> {
+                    backendsUsed.add(context.get(TtsBackendRouter.BACKEND_CONTEXT_KEY));
+                    return Mono.just(("[" + invocation.getArgument(0) + "]").getBytes(StandardCharsets.UTF_8));
+                }));
+        when(s3StorageService.streamAudioToS3(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            Flux<DataBuffer> audio = invocation.getArgument(0);
+            return DataBufferUtils.join(audio)
+                    .map(buffer -> {
+                        uploads.add(buffer.toString(StandardCharsets.UTF_8));
+                        return StoredAudio.builder().s3ObjectKey(invocation.getArgument(2)).build();
+                    });
+        });
+        when(templateRepository.insert(any(MessageTemplate.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        TemplateProperties templateProperties = new TemplateProperties();
+        templateProperties.setPrewarm(false);
+        templateSynthesisService = new TemplateSynthesisService(templateRepository, textToSpeechService,
+                s3StorageService, new SynthesisCacheService(null, new SynthesisCacheProperties(), new SimpleMeterRegistry()),
+                templateProperties, new AudioFormatProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void synthesizesStaticSegmentsOnceAndVariablesPerMessage() {
+        MessageTemplate template = templateSynthesisService
+                .registerTemplate("charge", "Your card ending {card} was charged {amount}.")
+                .block();
+        assertThat(template.getVariables()).containsExactly("card", "amount");
+
+        synthesize(Map.of("card", "1234", "amount", "50 shekels"));
+        synthesize(Map.of("card", "9876", "amount", "12 shekels"));
+
+        assertThat(uploads).containsExactly(
+                "[Your card ending][1234][was charged][50 shekels][.]",
+                "[Your card ending][9876][was charged][12 shekels][.]");
+        verify(textToSpeechService, times(1)).convertTextToSpeech("Your card ending", AudioFormat.AAC);
+        verify(textToSpeechService, times(1)).convertTextToSpeech("was charged", AudioFormat.AAC);
+        verify(textToSpeechService, times(1)).convertTextToSpeech("1234", AudioFormat.AAC);
+        verify(textToSpeechService, times(1)).convertTextToSpeech("9876", AudioFormat.AAC);
+    }
+
+    @Test
+    void pinsEverySegmentToOneBackendAndCachesStaticSegmentsPerBackend() {
+        templateSynthesisService.registerTemplate("charge", "Your card ending {card} was charged {amount}.").block();
+
+        synthesize(Map.of("card", "1234", "amount", "50 shekels"));
+        when(textToSpeechService.selectBackend()).thenReturn(SECONDARY);
+        synthesize(Map.of("card", "9876", "amount", "12 shekels"));
+
+        assertThat(backendsUsed).hasSize(10);
+        assertThat(backendsUsed.subList(0, 5)).containsOnly("primary");
+        assertThat(backendsUsed.subList(5, 10)).containsOnly("secondary");
+        verify(textToSpeechService, times(2)).convertTextToSpeech("was charged", AudioFormat.AAC);
+    }
+
+    @Test
+    void producesFormatsThatCannotBeJoinedAsMp3() {
+        assertThat(templateSynthesisService.effectiveFormat(AudioFormat.OPUS)).isEqualTo(AudioFormat.MP3);
+        assertThat(templateSynthesisService.effectiveFormat(AudioFormat.PCM)).isEqualTo(AudioFormat.PCM);
+    }
+
+    @Test
+    void negotiatesOnlyFormatsThatCanBeJoined() {
+        assertThat(templateSynthesisService.negotiateFormat("opus,aac")).isEqualTo(AudioFormat.AAC);
+        assertThat(templateSynthesisService.negotiateFormat(null)).isEqualTo(AudioFormat.MP3);
+        assertThatThrownBy(() -> templateSynthesisService.negotiateFormat("opus,wav"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void synthesize(Map<String, String> variables) {
+        VoiceMessage message = VoiceMessage.builder()
+                .id("m")
+                .templateId("charge")
+                .templateVariables(variables)
+                .build();
+        templateSynthesisService.synthesizeAndStore(message, AudioFormat.AAC, "audio/m.aac").block();
+    }
+}
@@ -0,0 +1,195 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.ProviderLimiterProperties;
+import com.poalim.messagetransformerplatform.config.TtsRoutingProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exercises routing and hedging against local stub TTS servers.
+ */
+class TtsBackendRouterTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebClient webClient = WebClient.create();
+    private ProviderConcurrencyLimiter limiter = limiter(8);
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void hedgesSlowBackendAndKeepsTheFasterResponse() throws IOException {
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger fastCalls = new AtomicInteger();
+        String slow = startStub("slow", 200, Duration.ofSeconds(2), slowCalls);
+        String fast = startStub("fast", 200, Duration.ZERO, fastCalls);
+
+        // The heavier weight makes the slow backend the first choice
+        TtsBackendRouter router = router(true, backend("slow", slow, 10), backend("fast", fast, 1));
+
+        StepVerifier.create(router.route(this::callStub))
+                .expectNext("fast")
+                .verifyComplete();
+
+        assertThat(slowCalls).hasValue(1);
+        assertThat(fastCalls).hasValue(1);
+        assertThat(meterRegistry.counter("tts.backend.hedges", "result", "won").count()).isEqualTo(1);
+    }
+
+    @Test
+    void routesAwayFromFailingBackend() throws IOException {
+        AtomicInteger failingCalls = new AtomicInteger();
+        AtomicInteger healthyCalls = new AtomicInteger();
+        String failing = startStub("failing", 503, Duration.ZERO, failingCalls);
+        String healthy = startStub("healthy", 200, Duration.ZERO, healthyCalls);
+
+        TtsBackendRouter router = router(false, backend("failing", failing, 1), backend("healthy", healthy, 1));
+
+        StepVerifier.create(router.route(this::callStub))
+                .expectError()
+                .verify();
+        StepVerifier.create(router.route(this::callStub))
+                .expectNext("healthy")
+                .verifyComplete();
+
+        assertThat(failingCalls).hasValue(1);
+        assertThat(healthyCalls).hasValue(1);
+    }
+
+    @Test
+    void hedgeWaitsForAProviderSlot() throws IOException {
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger fastCalls = new AtomicInteger();
+        String slow = startStub("slow", 200, Duration.ofSeconds(2), slowCalls);
+        String fast = startStub("fast", 200, Duration.ZERO, fastCalls);
+
+        limiter = limiter(1);
+        Sinks.One<String> heldCall = Sinks.one();
+        limiter.limit("other", heldCall.asMono().flux()).subscribe();
+        TtsBackendRouter router = router(true, backend("slow", slow, 10), backend("fast", fast, 1));
+
+        StepVerifier.create(router.route(this::callStub))
+                .expectSubscription()
+                .then(() -> {
+                    // Past the hedge delay, the hedge is still queued behind the held call
+                    sleep(Duration.ofMillis(300));
+                    assertThat(fastCalls).hasValue(0);
+                    assertThat(limiter.getQueueDepth()).isEqualTo(1);
+                    heldCall.tryEmitValue("done");
+                })
+                .expectNext("fast")
+                .verifyComplete();
+    }
+
+    @Test
+    void routesPinnedCallsToTheirBackendWithoutHedging() throws IOException {
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger fastCalls = new AtomicInteger();
+        String slow = startStub("slow", 200, Duration.ofMillis(500), slowCalls);
+        String fast = startStub("fast", 200, Duration.ZERO, fastCalls);
+
+        TtsBackendRouter router = router(true, backend("slow", slow, 10), backend("fast", fast, 1));
+        assertThat(router.selectBackend().name()).isEqualTo("slow");
+
+        StepVerifier.create(router.route(this::callStub)
+                        .contextWrite(context -> context.put(TtsBackendRouter.BACKEND_CONTEXT_KEY, "slow")))
+                .expectNext("slow")
+                .verifyComplete();
+
+        assertThat(slowCalls).hasValue(1);
+        assertThat(fastCalls).hasValue(0);
+    }
+
+    @Test
+    void listsEveryConfiguredModel() {
+        TtsRoutingProperties.Backend hd = backend("hd", "http://hd", 1);
+        hd.setModel("tts-1-hd");
+
+        TtsBackendRouter router = router(false, backend("standard", "http://standard", 1), hd);
+
+        assertThat(router.getModel()).isEqualTo("tts-1+tts-1-hd");
+        assertThat(router.getVoice()).isEqualTo("alloy");
+    }
+
+    private Flux<String> callStub(TtsBackendRouter.TtsBackend backend) {
+        return webClient.post()
+                .uri(backend.endpoint() + "/audio/speech")
+                .retrieve()
+                .bodyToFlux(String.class);
+    }
+
+    private TtsBackendRouter router(boolean hedgingEnabled, TtsRoutingProperties.Backend... backends) {
+        TtsRoutingProperties properties = new TtsRoutingProperties();
+        properties.setBackends(List.of(backends));
+        properties.setHedgingEnabled(hedgingEnabled);
+        properties.setMinHedgeDelay(Duration.ofMillis(100));
+        return new TtsBackendRouter(properties, limiter, meterRegistry, "http://unused", "key", "tts-1", "alloy");
+    }
+
+    private ProviderConcurrencyLimiter limiter(int limit) {
+        ProviderLimiterProperties properties = new ProviderLimiterProperties();
+        properties.setInitialLimit(limit);
+        properties.setMaxLimit(limit);
+        return new ProviderConcurrencyLimiter(properties, meterRegistry);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TtsRoutingProperties.Backend backend(String name, String endpoint, int weight) {
+        TtsRoutingProperties.Backend backend = new TtsRoutingProperties.Backend();
+        backend.setName(name);
+        backend.setEndpoint(endpoint);
+        backend.setWeight(weight);
+        return backend;
+    }
+
+    private String startStub(String body, int status, Duration delay, AtomicInteger calls) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/audio/speech", exchange -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            } catch (IOException e) {
+                // The client may have cancelled a losing hedge
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
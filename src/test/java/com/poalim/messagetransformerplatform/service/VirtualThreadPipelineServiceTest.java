@@ -0,0 +1,147 @@
+package com.poalim.messagetransformerplatform.service;
+
+import com.poalim.messagetransformerplatform.config.AwsS3Properties;
+import com.poalim.messagetransformerplatform.config.LongTextProperties;
+import com.poalim.messagetransformerplatform.config.SynthesisCacheProperties;
+import com.poalim.messagetransformerplatform.model.AudioFormat;
+import com.poalim.messagetransformerplatform.model.MessageStatus;
+import com.poalim.messagetransformerplatform.model.VoiceMessage;
+import com.poalim.messagetransformerplatform.model.VoiceProcessingStatus;
+import com.poalim.messagetransformerplatform.repository.ReactiveVoiceMessageRepository;
+import com.poalim.messagetransformerplatform.repository.VoiceMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VirtualThreadPipelineServiceTest {
+
+    private final List<VoiceProcessingStatus> publishedStatuses = new CopyOnWriteArrayList<>();
+    private final List<Boolean> virtualThreadSaves = new CopyOnWriteArrayList<>();
+    private S3Client s3Client;
+    private TextToSpeechService textToSpeechService;
+    private VoiceMessageRepository repository;
+    private ReactiveVoiceMessageRepository reactiveRepository;
+    private VirtualThreadPipelineService virtualThreadPipelineService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(VoiceMessageRepository.class);
+        reactiveRepository = mock(ReactiveVoiceMessageRepository.class);
+        when(repository.save(any(VoiceMessage.class))).thenAnswer(invocation -> {
+            virtualThreadSaves.add(Thread.currentThread().isVirtual());
+            return invocation.getArgument(0);
+        });
+
+        s3Client = mock(S3Client.class);
+        textToSpeechService = mock(TextToSpeechService.class);
+        when(textToSpeechService.getModel()).thenReturn("tts-1");
+        when(textToSpeechService.getVoice()).thenReturn("alloy");
+
+        KafkaProducerService kafkaProducerService = mock(KafkaProducerService.class);
+        when(kafkaProducerService.publishStatusUpdate(any())).thenAnswer(invocation -> {
+            publishedStatuses.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        AwsS3Properties s3Properties = new AwsS3Properties();
+        s3Properties.setBucketName("voice-messages-bucket");
+        S3StorageService s3StorageService = new S3StorageService(s3Client, null, null, s3Properties);
+        SynthesisCacheProperties cacheProperties = new SynthesisCacheProperties();
+        cacheProperties.setEnabled(false);
+        SynthesisCacheService synthesisCacheService =
+                new SynthesisCacheService(null, cacheProperties, new SimpleMeterRegistry());
+        LongTextSynthesisService longTextSynthesisService =
+                new LongTextSynthesisService(textToSpeechService, s3StorageService, new LongTextProperties());
+        PipelineInstrumentation pipelineInstrumentation =
+                new PipelineInstrumentation(ObservationRegistry.create(), new SimpleMeterRegistry());
+
+        TemplateSynthesisService templateSynthesisService = mock(TemplateSynthesisService.class);
+        StatusWriteBehindService statusWriteBehindService = mock(StatusWriteBehindService.class);
+        when(statusWriteBehindService.write(anyString(), any(), any())).thenAnswer(invocation -> {
+            virtualThreadSaves.add(Thread.currentThread().isVirtual());
+            return Mono.empty();
+        });
+
+        MessageTransformerService messageTransformerService = new MessageTransformerService(repository,
+                reactiveRepository, textToSpeechService, s3StorageService,
+                kafkaProducerService, synthesisCacheService, longTextSynthesisService, pipelineInstrumentation,
+                templateSynthesisService, statusWriteBehindService);
+        virtualThreadPipelineService = new VirtualThreadPipelineService(repository, messageTransformerService,
+                textToSpeechService, s3StorageService, kafkaProducerService, synthesisCacheService,
+                longTextSynthesisService, pipelineInstrumentation, templateSynthesisService, statusWriteBehindService,
+                "voice-messages-bucket");
+    }
+
+    @Test
+    void completesOnVirtualThreadsAndPublishesStatusesInOrder() {
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[2048]));
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        StepVerifier.create(virtualThreadPipelineService.processTextMessage("Hello", "tester", AudioFormat.MP3))
+                .assertNext(message -> {
+                    assertThat(message.getStatus()).isEqualTo(MessageStatus.COMPLETED);
+                    assertThat(message.getFileSizeBytes()).isEqualTo(2048L);
+                    assertThat(message.getChecksumSha256()).hasSize(64);
+                    assertThat(message.getStageDurationsMs()).containsKeys("status-update", "synthesis", "tts", "s3-upload");
+                })
+                .verifyComplete();
+
+        assertThat(publishedStatuses).extracting(VoiceProcessingStatus::getStatus)
+                .containsExactly(MessageStatus.RECEIVED, MessageStatus.PROCESSING, MessageStatus.COMPLETED);
+        assertThat(virtualThreadSaves).containsOnly(true);
+    }
+
+    @Test
+    void marksMessageFailedWhenUploadFails() {
+        when(textToSpeechService.convertTextToSpeech(anyString(), any())).thenReturn(Mono.just(new byte[2048]));
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(new IllegalStateException("S3 unavailable"));
+
+        StepVerifier.create(virtualThreadPipelineService.processTextMessage("Hello", "tester", AudioFormat.MP3))
+                .assertNext(message -> {
+                    assertThat(message.getStatus()).isEqualTo(MessageStatus.FAILED);
+                    assertThat(message.getErrorMessage()).contains("S3 unavailable");
+                })
+                .verifyComplete();
+
+        assertThat(publishedStatuses).extracting(VoiceProcessingStatus::getStatus).last()
+                .isEqualTo(MessageStatus.FAILED);
+    }
+
+    @Test
+    void skipsRedeliveredMessagesHeldByAnotherWorker() {
+        VoiceMessage processing = VoiceMessage.builder().id("m1").status(MessageStatus.PROCESSING).build();
+        when(reactiveRepository.claimForProcessing(eq("m1"), any())).thenReturn(Mono.empty());
+        when(reactiveRepository.findById("m1")).thenReturn(Mono.just(processing));
+        when(repository.findById("m1")).thenReturn(Optional.of(processing));
+
+        StepVerifier.create(virtualThreadPipelineService.processReceivedMessage("m1"))
+                .assertNext(message -> assertThat(message.getStatus()).isEqualTo(MessageStatus.PROCESSING))
+                .verifyComplete();
+
+        verify(textToSpeechService, never()).convertTextToSpeech(anyString(), any());
+        assertThat(publishedStatuses).isEmpty();
+    }
+}